@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import org.apache.karaf.cellar.bundle.BundleEventTypeFactory;
+import org.apache.karaf.cellar.bundle.ClusterBundleEvent;
+import org.apache.karaf.cellar.config.ClusterConfigurationEvent;
+import org.apache.karaf.cellar.config.ConfigurationEventTypeFactory;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.control.*;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.apache.karaf.cellar.dosgi.DosgiEventTypeFactory;
+import org.apache.karaf.cellar.dosgi.RemoteServiceCall;
+import org.apache.karaf.cellar.dosgi.RemoteServiceResult;
+import org.apache.karaf.cellar.event.ClusterEvent;
+import org.apache.karaf.cellar.event.EventEventTypeFactory;
+import org.apache.karaf.cellar.features.ClusterFeaturesEvent;
+import org.apache.karaf.cellar.features.ClusterRepositoryEvent;
+import org.apache.karaf.cellar.features.FeaturesEventTypeFactory;
+import org.apache.karaf.cellar.hazelcast.HazelcastNode;
+import org.apache.karaf.cellar.hazelcast.serialization.EventSerializer;
+import org.apache.karaf.cellar.obr.ClusterObrBundleEvent;
+import org.apache.karaf.cellar.obr.ClusterObrUrlEvent;
+import org.apache.karaf.cellar.obr.ObrEventTypeFactory;
+import org.apache.karaf.cellar.utils.ping.Ping;
+import org.apache.karaf.cellar.utils.ping.PingEventTypeFactory;
+import org.apache.karaf.cellar.utils.ping.Pong;
+import org.apache.karaf.features.FeatureEvent;
+import org.apache.karaf.features.RepositoryEvent;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Sample cluster events, one per cluster event type, populated like the events sent by a running node.
+ */
+public final class BenchmarkEvents {
+
+    private BenchmarkEvents() {
+        // utility class
+    }
+
+    /**
+     * Create a cluster event serializer supporting all the cluster event types.
+     *
+     * @return the cluster event serializer.
+     */
+    public static EventSerializer newEventSerializer() {
+        EventSerializer serializer = new EventSerializer();
+        serializer.bind(new ControlEventTypeFactory());
+        serializer.bind(new BundleEventTypeFactory());
+        serializer.bind(new ConfigurationEventTypeFactory());
+        serializer.bind(new FeaturesEventTypeFactory());
+        serializer.bind(new EventEventTypeFactory());
+        serializer.bind(new ObrEventTypeFactory());
+        serializer.bind(new DosgiEventTypeFactory());
+        serializer.bind(new PingEventTypeFactory());
+        return serializer;
+    }
+
+    /**
+     * Create a sample cluster event.
+     *
+     * @param type the simple class name of the cluster event.
+     * @return the cluster event.
+     */
+    public static Event create(String type) {
+        Event event = all().get(type);
+        if (event == null) {
+            throw new IllegalArgumentException("Unknown cluster event type " + type);
+        }
+        return event;
+    }
+
+    /**
+     * Create a sample of each cluster event type.
+     *
+     * @return the cluster events by simple class name.
+     */
+    public static Map<String, Event> all() {
+        Node node = new HazelcastNode("192.168.1.10", 5701);
+        Group group = new Group("default");
+        group.getNodes().add(node);
+        group.getNodes().add(new HazelcastNode("192.168.1.11", 5701));
+        Set<Node> destination = new HashSet<Node>();
+        destination.add(new HazelcastNode("192.168.1.11", 5701));
+
+        List<Event> events = new ArrayList<Event>();
+
+        events.add(new ProducerSwitchCommand("1", SwitchStatus.ON));
+        events.add(new ProducerSwitchResult("2", true, true));
+        events.add(new ConsumerSwitchCommand("3", SwitchStatus.OFF));
+        events.add(new ConsumerSwitchResult("4", true, false));
+
+        ManageHandlersCommand manageHandlersCommand = new ManageHandlersCommand("5");
+        manageHandlersCommand.setHandlerName("org.apache.karaf.cellar.bundle.BundleEventHandler");
+        manageHandlersCommand.setStatus(Boolean.TRUE);
+        events.add(manageHandlersCommand);
+
+        ManageHandlersResult manageHandlersResult = new ManageHandlersResult("6");
+        manageHandlersResult.getHandlers().put("org.apache.karaf.cellar.bundle.BundleEventHandler", "ON");
+        manageHandlersResult.getHandlers().put("org.apache.karaf.cellar.config.ConfigurationEventHandler", "ON");
+        manageHandlersResult.getHandlers().put("org.apache.karaf.cellar.features.FeaturesEventHandler", "ON");
+        events.add(manageHandlersResult);
+
+        ManageGroupCommand manageGroupCommand = new ManageGroupCommand("7");
+        manageGroupCommand.setAction(ManageGroupAction.JOIN);
+        manageGroupCommand.setGroupName("test");
+        events.add(manageGroupCommand);
+
+        ManageGroupResult manageGroupResult = new ManageGroupResult("8");
+        manageGroupResult.getGroups().add(group);
+        events.add(manageGroupResult);
+
+        events.add(new ClusterBundleEvent("org.apache.karaf.cellar.sample", "4.0.0",
+                "mvn:org.apache.karaf.cellar.samples/org.apache.karaf.cellar.sample/4.0.0", 2));
+
+        ClusterConfigurationEvent configurationEvent = new ClusterConfigurationEvent("org.apache.karaf.cellar.sample");
+        configurationEvent.setType(1);
+        events.add(configurationEvent);
+
+        events.add(new ClusterFeaturesEvent("cellar-sample", "4.0.0", null, false, false, FeatureEvent.EventType.FeatureInstalled));
+        events.add(new ClusterRepositoryEvent("mvn:org.apache.karaf.cellar/apache-karaf-cellar/4.0.0/xml/features",
+                RepositoryEvent.EventType.RepositoryAdded));
+
+        Map<String, Serializable> properties = new HashMap<String, Serializable>();
+        properties.put("bundle.symbolicName", "org.apache.karaf.cellar.sample");
+        properties.put("bundle.id", 42L);
+        properties.put("timestamp", System.currentTimeMillis());
+        events.add(new ClusterEvent("org/osgi/framework/BundleEvent/STARTED", properties));
+
+        events.add(new ClusterObrBundleEvent("org.apache.karaf.cellar.sample", true, false));
+        events.add(new ClusterObrUrlEvent("http://repository.example.org/repository.xml", 0));
+
+        RemoteServiceCall remoteServiceCall = new RemoteServiceCall("9");
+        remoteServiceCall.setEndpointId("org.apache.karaf.cellar.sample.Echo|1.0.0");
+        remoteServiceCall.setServiceClass("org.apache.karaf.cellar.sample.Echo");
+        remoteServiceCall.setMethod("echo");
+        remoteServiceCall.setArguments(Arrays.<Object>asList("hello", 42));
+        events.add(remoteServiceCall);
+
+        RemoteServiceResult remoteServiceResult = new RemoteServiceResult("10");
+        remoteServiceResult.setResult("hello");
+        events.add(remoteServiceResult);
+
+        events.add(new Ping("11"));
+        events.add(new Pong("12"));
+
+        List<Event> batched = new ArrayList<Event>();
+        for (int i = 0; i < 10; i++) {
+            ClusterConfigurationEvent batchedEvent = new ClusterConfigurationEvent("org.apache.karaf.cellar.sample." + i);
+            batchedEvent.setType(1);
+            batchedEvent.setSourceGroup(group);
+            batched.add(batchedEvent);
+        }
+        EventBatch batch = new EventBatch("13");
+        batch.setEvents(batched);
+        events.add(batch);
+
+        Map<String, Event> result = new LinkedHashMap<String, Event>();
+        for (Event event : events) {
+            event.setSourceNode(node);
+            event.setSourceGroup(group);
+            if (event instanceof ProducerSwitchResult || event instanceof ConsumerSwitchResult
+                    || event instanceof ManageHandlersResult || event instanceof ManageGroupResult
+                    || event instanceof RemoteServiceResult || event instanceof Pong) {
+                event.setDestination(destination);
+            }
+            result.put(event.getClass().getSimpleName(), event);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.*;
+import org.osgi.framework.Bundle;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Benchmark of the combined class loader lookup used to deserialize the cluster events, with the class provided by
+ * the last of the registered bundles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinedClassLoaderBenchmark {
+
+    private static final String CLASS_NAME = "org.apache.karaf.cellar.benchmarks.Sample";
+
+    /**
+     * Number of bundles registered in the combined class loader.
+     */
+    @Param({"10", "100"})
+    public int bundles;
+
+    private CombinedClassLoader classLoader;
+
+    @Setup
+    public void setUp() throws Exception {
+        classLoader = new CombinedClassLoader();
+        classLoader.init();
+        for (long id = 0; id < bundles; id++) {
+            Bundle bundle = createMock(Bundle.class);
+            expect(bundle.getBundleId()).andReturn(id).anyTimes();
+            expect(bundle.getState()).andReturn(Bundle.ACTIVE).anyTimes();
+            if (id == bundles - 1) {
+                expect((Class) bundle.loadClass((String) anyObject())).andReturn(CombinedClassLoaderBenchmark.class).anyTimes();
+            } else {
+                expect((Class) bundle.loadClass((String) anyObject())).andAnswer(new IAnswer<Class>() {
+                    @Override
+                    public Class answer() throws Throwable {
+                        throw new ClassNotFoundException(CLASS_NAME);
+                    }
+                }).anyTimes();
+            }
+            replay(bundle);
+            classLoader.addBundle(bundle);
+        }
+    }
+
+    @Benchmark
+    public Class findClass() throws ClassNotFoundException {
+        return classLoader.findClass(CLASS_NAME);
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventHandler;
+import org.apache.karaf.cellar.core.event.EventHandlerRegistryDispatcher;
+import org.apache.karaf.cellar.core.event.EventHandlerServiceRegistry;
+import org.apache.karaf.cellar.core.metrics.BasicEventMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the cluster event dispatcher throughput: a batch of cluster events is dispatched, and the benchmark
+ * waits until all of them have been handled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DispatcherBenchmark.EVENTS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatcherBenchmark {
+
+    static final int EVENTS = 1000;
+
+    @Param({"1", "8"})
+    public int workers;
+
+    /**
+     * Collect the cluster event metrics while dispatching.
+     */
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private EventHandlerRegistryDispatcher<Event> dispatcher;
+    private CountingHandler handler;
+    private Event[] events;
+
+    @Setup
+    public void setUp() {
+        handler = new CountingHandler();
+        EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+        registry.bind(handler);
+
+        dispatcher = new EventHandlerRegistryDispatcher<Event>();
+        dispatcher.setHandlerRegistry(registry);
+        dispatcher.setWorkers(workers);
+        if (metrics) {
+            dispatcher.setMetrics(new BasicEventMetrics());
+        }
+        dispatcher.init();
+
+        Group group = new Group("default");
+        events = new Event[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = new Event("event-" + i);
+            events[i].setSourceGroup(group);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Benchmark
+    public void dispatch() throws InterruptedException {
+        CountDownLatch latch = handler.expect(EVENTS);
+        for (Event event : events) {
+            dispatcher.dispatch(event);
+        }
+        latch.await();
+    }
+
+    /**
+     * Handler counting the handled cluster events.
+     */
+    static class CountingHandler implements EventHandler<Event> {
+
+        private final Switch handlerSwitch = new BasicSwitch("org.apache.karaf.cellar.benchmarks.handler");
+        private volatile CountDownLatch latch;
+
+        CountDownLatch expect(int count) {
+            latch = new CountDownLatch(count);
+            return latch;
+        }
+
+        @Override
+        public void handle(Event event) {
+            latch.countDown();
+        }
+
+        @Override
+        public Class<Event> getType() {
+            return Event.class;
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return handlerSwitch;
+        }
+
+    }
+
+}
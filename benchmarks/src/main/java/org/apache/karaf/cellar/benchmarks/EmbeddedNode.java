@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.BasicCommandStore;
+import org.apache.karaf.cellar.core.command.ClusteredExecutionContext;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventHandlerRegistryDispatcher;
+import org.apache.karaf.cellar.core.event.EventHandlerServiceRegistry;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.hazelcast.HazelcastClusterManager;
+import org.apache.karaf.cellar.hazelcast.TopicConsumer;
+import org.apache.karaf.cellar.hazelcast.TopicProducer;
+import org.apache.karaf.cellar.utils.ping.PingHandler;
+import org.apache.karaf.cellar.utils.ping.PongHandler;
+
+/**
+ * A Cellar node running on an embedded Hazelcast instance, wired like the Hazelcast blueprint: cluster event
+ * producer and consumer on the Cellar topic, dispatcher, handler registry, and the ping command and result handlers.
+ */
+public class EmbeddedNode {
+
+    private final HazelcastInstance instance;
+    private final HazelcastClusterManager clusterManager;
+    private final EventHandlerRegistryDispatcher<Event> dispatcher;
+    private final TopicConsumer<Event> consumer;
+    private final BasicCommandStore commandStore;
+    private final ClusteredExecutionContext executionContext;
+
+    public EmbeddedNode() {
+        instance = Hazelcast.newHazelcastInstance(newConfig());
+
+        clusterManager = new HazelcastClusterManager();
+        clusterManager.setInstance(instance);
+        Node node = clusterManager.getNode();
+
+        commandStore = new BasicCommandStore();
+        EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+
+        dispatcher = new EventHandlerRegistryDispatcher<Event>();
+        dispatcher.setHandlerRegistry(registry);
+        dispatcher.init();
+
+        TopicProducer<Event> producer = new TopicProducer<Event>();
+        producer.setInstance(instance);
+        producer.setNode(node);
+        producer.init();
+
+        consumer = new TopicConsumer<Event>();
+        consumer.setInstance(instance);
+        consumer.setDispatcher(dispatcher);
+        consumer.setNode(node);
+        consumer.init();
+
+        PingHandler pingHandler = new PingHandler();
+        pingHandler.setProducer(producer);
+        registry.bind(pingHandler);
+        PongHandler pongHandler = new PongHandler();
+        pongHandler.setCommandStore(commandStore);
+        registry.bind(pongHandler);
+
+        executionContext = new ClusteredExecutionContext(producer, commandStore);
+    }
+
+    /**
+     * Build the configuration of an embedded Hazelcast instance: TCP/IP join on the loopback interface and the
+     * Cellar cluster events serializer.
+     *
+     * @return the Hazelcast configuration.
+     */
+    public static Config newConfig() {
+        Config config = new Config();
+        config.getGroupConfig().setName("cellar-benchmarks");
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        SerializerConfig serializerConfig = new SerializerConfig();
+        serializerConfig.setTypeClass(CellarSerializable.class);
+        serializerConfig.setImplementation(BenchmarkEvents.newEventSerializer());
+        config.getSerializationConfig().addSerializerConfig(serializerConfig);
+        return config;
+    }
+
+    public void shutdown() {
+        commandStore.destroy();
+        consumer.destroy();
+        dispatcher.destroy();
+        instance.shutdown();
+    }
+
+    public HazelcastInstance getInstance() {
+        return instance;
+    }
+
+    public HazelcastClusterManager getClusterManager() {
+        return clusterManager;
+    }
+
+    public ClusteredExecutionContext getExecutionContext() {
+        return executionContext;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.apache.karaf.cellar.core.event.Event;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the cluster event serialization round-trips, for each cluster event type.
+ * The compact format is measured through a Hazelcast map of the local member (the value is serialized on set and
+ * deserialized on get), the Java serialization is measured as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSerializationBenchmark {
+
+    @Param({"ProducerSwitchCommand", "ProducerSwitchResult", "ConsumerSwitchCommand", "ConsumerSwitchResult",
+            "ManageHandlersCommand", "ManageHandlersResult", "ManageGroupCommand", "ManageGroupResult",
+            "ClusterBundleEvent", "ClusterConfigurationEvent", "ClusterFeaturesEvent", "ClusterRepositoryEvent",
+            "ClusterEvent", "ClusterObrBundleEvent", "ClusterObrUrlEvent", "RemoteServiceCall", "RemoteServiceResult",
+            "Ping", "Pong", "EventBatch"})
+    public String type;
+
+    private HazelcastInstance instance;
+    private IMap<String, Object> map;
+    private Event event;
+
+    @Setup
+    public void setUp() {
+        instance = Hazelcast.newHazelcastInstance(EmbeddedNode.newConfig());
+        map = instance.getMap("org.apache.karaf.cellar.benchmarks.serialization");
+        event = BenchmarkEvents.create(type);
+    }
+
+    @TearDown
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    @Benchmark
+    public Object compactRoundTrip() {
+        map.set(type, event);
+        return map.get(type);
+    }
+
+    @Benchmark
+    public Object javaRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(event);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return in.readObject();
+    }
+
+}
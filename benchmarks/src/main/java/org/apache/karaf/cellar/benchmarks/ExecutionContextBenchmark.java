@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.utils.ping.Ping;
+import org.apache.karaf.cellar.utils.ping.Pong;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the command round-trips through the execution context: a ping command is sent to all the nodes of an
+ * in-process cluster and the benchmark waits for the pong results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionContextBenchmark {
+
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Number of nodes in the cluster.
+     */
+    @Param({"1", "3"})
+    public int nodes;
+
+    private List<EmbeddedNode> cluster;
+    private EmbeddedNode local;
+    private Set<Node> destination;
+
+    @Setup
+    public void setUp() throws Exception {
+        cluster = new ArrayList<EmbeddedNode>();
+        for (int i = 0; i < nodes; i++) {
+            cluster.add(new EmbeddedNode());
+        }
+        local = cluster.get(0);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (local.getClusterManager().listNodes().size() < nodes) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("The cluster nodes didn't join within " + TIMEOUT + "ms");
+            }
+            Thread.sleep(100);
+        }
+        destination = local.getClusterManager().listNodes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (EmbeddedNode node : cluster) {
+            node.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Map<Node, Pong> execute() throws Exception {
+        Ping ping = new Ping(local.getClusterManager().generateId());
+        ping.setDestination(destination);
+        ping.setTimeout(TIMEOUT);
+        Map<Node, Pong> results = local.getExecutionContext().execute(ping);
+        if (results == null || results.size() != destination.size()) {
+            throw new IllegalStateException("Missing ping results");
+        }
+        return results;
+    }
+
+}
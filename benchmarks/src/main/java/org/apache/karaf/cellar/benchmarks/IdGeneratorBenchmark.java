@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IdGenerator;
+import org.apache.karaf.cellar.core.utils.LocalIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the command IDs generation, with one thread and with as many threads as cores.
+ * The local generator is compared with the former implementation, a synchronized call to the Hazelcast ID generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private HazelcastInstance instance;
+    private IdGenerator hazelcastGenerator;
+    private LocalIdGenerator localGenerator;
+
+    @Setup
+    public void setUp() {
+        instance = Hazelcast.newHazelcastInstance(EmbeddedNode.newConfig());
+        hazelcastGenerator = instance.getIdGenerator("org.apache.karaf.cellar.idgen");
+        localGenerator = new LocalIdGenerator(Long.toString(hazelcastGenerator.newId(), Character.MAX_RADIX));
+    }
+
+    @TearDown
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    private synchronized String synchronizedHazelcastId() {
+        return String.valueOf(hazelcastGenerator.newId());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String hazelcastSingleThread() {
+        return synchronizedHazelcastId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String hazelcastAllThreads() {
+        return synchronizedHazelcastId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String localSingleThread() {
+        return localGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String localAllThreads() {
+        return localGenerator.generateId();
+    }
+
+}
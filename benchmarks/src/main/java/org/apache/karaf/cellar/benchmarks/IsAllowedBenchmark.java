@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.benchmarks;
+
+import org.apache.karaf.cellar.core.CellarSupport;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.event.EventType;
+import org.openjdk.jmh.annotations.*;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Benchmark of the cluster group whitelist/blacklist check done by the handlers and listeners for each resource.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsAllowedBenchmark {
+
+    private static final int RESOURCES = 64;
+
+    /**
+     * Number of entries in the whitelist and in the blacklist.
+     */
+    @Param({"1", "10", "50"})
+    public int listSize;
+
+    private CellarSupport support;
+    private Group group;
+    private String[] resources;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        Dictionary<String, Object> properties = new Hashtable<String, Object>();
+        properties.put(key(Configurations.WHITELIST), entries("mvn:org.apache.karaf.cellar.sample", "/*", listSize));
+        properties.put(key(Configurations.BLACKLIST), "*.xml," + entries("mvn:org.apache.karaf.cellar.sample", "/*/0.*", listSize - 1));
+
+        ConfigurationAdmin configurationAdmin = createMock(ConfigurationAdmin.class);
+        Configuration configuration = createMock(Configuration.class);
+        expect(configurationAdmin.getConfiguration(Configurations.GROUP, null)).andReturn(configuration).anyTimes();
+        expect(configuration.getProperties()).andReturn(properties).anyTimes();
+        replay(configuration);
+        replay(configurationAdmin);
+
+        support = new CellarSupport();
+        support.setConfigurationAdmin(configurationAdmin);
+        group = new Group(Configurations.DEFAULT_GROUP_NAME);
+
+        resources = new String[RESOURCES];
+        for (int i = 0; i < RESOURCES; i++) {
+            resources[i] = "mvn:org.apache.karaf.cellar.sample" + (i % (listSize * 2)) + "/sample/" + (i % 3) + ".0.0";
+        }
+    }
+
+    private static String key(String listType) {
+        return Configurations.DEFAULT_GROUP_NAME + Configurations.SEPARATOR + "bundle" + Configurations.SEPARATOR
+                + listType + Configurations.SEPARATOR + EventType.INBOUND.name().toLowerCase();
+    }
+
+    private static String entries(String prefix, String suffix, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(Configurations.DELIMETER);
+            }
+            builder.append(prefix).append(i).append(suffix);
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public Boolean isAllowed() {
+        String resource = resources[next++ & (RESOURCES - 1)];
+        return support.isAllowed(group, "bundle", resource, EventType.INBOUND);
+    }
+
+}
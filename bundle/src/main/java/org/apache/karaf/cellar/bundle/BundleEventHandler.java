@@ -13,7 +13,6 @@
  */
 package org.apache.karaf.cellar.bundle;
 
-import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
@@ -22,7 +21,6 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.Feature;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -115,19 +113,13 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getHandlerStatus(this.getClass().getName()).equals(SwitchStatus.ON)) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // ignore
         }
         return eventSwitch;
     }
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventTypeFactory;
+
+/**
+ * Factory of the cluster bundle events.
+ */
+public class BundleEventTypeFactory implements EventTypeFactory {
+
+    public static final int FACTORY_ID = 2;
+
+    public static final int CLUSTER_BUNDLE_EVENT = 1;
+
+    @Override
+    public int getFactoryId() {
+        return FACTORY_ID;
+    }
+
+    @Override
+    public CellarSerializable create(int typeId) {
+        switch (typeId) {
+            case CLUSTER_BUNDLE_EVENT:
+                return new ClusterBundleEvent(null, null, null, 0);
+            default:
+                return null;
+        }
+    }
+
+}
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.bundle;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Cluster bundle event.
  */
-public class ClusterBundleEvent extends Event {
+public class ClusterBundleEvent extends Event implements CellarSerializable {
 
     private String symbolicName;
     private String version;
@@ -65,4 +70,32 @@ public class ClusterBundleEvent extends Event {
         this.type = type;
     }
 
+    @Override
+    public int getFactoryId() {
+        return BundleEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return BundleEventTypeFactory.CLUSTER_BUNDLE_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(symbolicName);
+        out.writeString(version);
+        out.writeString(location);
+        out.writeInt(type);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        symbolicName = in.readString();
+        version = in.readString();
+        location = in.readString();
+        type = in.readInt();
+    }
+
 }
@@ -21,11 +21,9 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.Feature;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.SynchronousBundleListener;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -143,17 +141,7 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
      * @return true if enabled, false else.
      */
     private boolean isEnabled() {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            Dictionary<String, Object> properties = configuration.getProperties();
-            if (properties != null) {
-                String value = properties.get(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER).toString();
-                return Boolean.parseBoolean(value);
-            }
-        } catch (Exception e) {
-            LOGGER.warn("CELLAR BUNDLE: can't check listener configuration", e);
-        }
-        return false;
+        return switchRegistry != null && switchRegistry.getListenerStatus(Constants.CATEGORY).equals(SwitchStatus.ON);
     }
 
     public void init() {
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.config;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Cluster configuration event.
  */
-public class ClusterConfigurationEvent extends Event {
+public class ClusterConfigurationEvent extends Event implements CellarSerializable {
 
 	private Integer type;
 
@@ -37,9 +42,34 @@ public class ClusterConfigurationEvent extends Event {
 	@Override
 	public String toString() {
 		return "ClusterConfigurationEvent [type=" + type + ", id=" + id
-				+ ", sourceNode=" + sourceNode + ", sourceGroup=" + sourceGroup
+				+ ", sourceNode=" + sourceNode + ", sourceGroup=" + sourceGroupName
 				+ ", destination=" + destination + ", force=" + force
 				+ ", postPublish=" + postPublish + "]";
 	}
 
+    @Override
+    public int getFactoryId() {
+        return ConfigurationEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ConfigurationEventTypeFactory.CLUSTER_CONFIGURATION_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeBoolean(type != null);
+        if (type != null) {
+            out.writeInt(type);
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        type = in.readBoolean() ? in.readInt() : null;
+    }
+
 }
@@ -115,19 +115,13 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getHandlerStatus(this.getClass().getName()).equals(SwitchStatus.ON)) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // nothing to do
         }
         return eventSwitch;
     }
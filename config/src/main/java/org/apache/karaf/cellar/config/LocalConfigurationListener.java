@@ -112,17 +112,7 @@ public class LocalConfigurationListener extends ConfigurationSupport implements
      * @return true if enabled, false else.
      */
     private boolean isEnabled() {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            Dictionary<String, Object> properties = configuration.getProperties();
-            if (properties != null) {
-                String value = properties.get(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER).toString();
-                return Boolean.parseBoolean(value);
-            }
-        } catch (Exception e) {
-            LOGGER.warn("CELLAR CONFIG: can't check listener configuration", e);
-        }
-        return false;
+        return switchRegistry != null && switchRegistry.getListenerStatus(Constants.CATEGORY).equals(SwitchStatus.ON);
     }
 
     public void init() {
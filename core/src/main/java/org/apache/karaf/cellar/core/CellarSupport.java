@@ -13,7 +13,9 @@
  */
 package org.apache.karaf.cellar.core;
 
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.filter.ResourceFilter;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
@@ -21,6 +23,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +38,9 @@ public class CellarSupport {
     protected ClusterManager clusterManager;
     protected GroupManager groupManager;
     protected ConfigurationAdmin configurationAdmin;
+    protected SwitchRegistry switchRegistry;
+
+    private final ConcurrentMap<String, ResourceFilter> resourceFilters = new ConcurrentHashMap<String, ResourceFilter>();
 
     /**
      * If the entry is not present in the list, add it. If the entry is present in the list, remove it.
@@ -67,6 +74,7 @@ public class CellarSupport {
                 dictionary.put(key, entry);
             }
             configuration.update(dictionary);
+            ResourceFilter.invalidateAll();
         }
     }
 
@@ -172,29 +180,33 @@ public class CellarSupport {
      * @param type the event type (inbound, outbound).
      */
     public Boolean isAllowed(Group group, String category, String event, EventType type) {
-        Boolean result = true;
-        Set<String> whiteList = getListEntries(Configurations.WHITELIST, group, category, type);
-        Set<String> blackList = getListEntries(Configurations.BLACKLIST, group, category, type);
-
-        // if no white listed items we assume all are accepted.
-        if (whiteList != null && !whiteList.isEmpty()) {
-            result = false;
-            for (String whiteListItem : whiteList) {
-                if (wildCardMatch(event, whiteListItem))
-                    result = true;
-            }
+        if (group == null || group.getName() == null) {
+            // no list entries, so all are accepted
+            return true;
         }
+        return getResourceFilter(group.getName(), category, type).isAllowed(event);
+    }
 
-        // if any blackList item matched, then false is returned.
-        if (blackList != null && !blackList.isEmpty()) {
-            for (String blackListItem : blackList) {
-                if (wildCardMatch(event, blackListItem)) {
-                    result = false;
-                }
-            }
+    /**
+     * Get the compiled whitelist and blacklist of a cluster group.
+     * The filter is built once from the cluster groups configuration and rebuilt when this configuration changes.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param type the event type (inbound, outbound).
+     * @return the resource filter.
+     */
+    protected ResourceFilter getResourceFilter(String group, String category, EventType type) {
+        String key = group + Configurations.SEPARATOR + category + Configurations.SEPARATOR + type.name().toLowerCase();
+        ResourceFilter filter = resourceFilters.get(key);
+        if (filter == null || !filter.isCurrent()) {
+            // read the generation first, a concurrent configuration change makes the new filter stale
+            long generation = ResourceFilter.currentGeneration();
+            filter = new ResourceFilter(getListEntries(Configurations.WHITELIST, group, category, type),
+                    getListEntries(Configurations.BLACKLIST, group, category, type), generation);
+            resourceFilters.put(key, filter);
         }
-
-        return result;
+        return filter;
     }
 
     /**
@@ -219,6 +231,7 @@ public class CellarSupport {
 
     public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
         this.configurationAdmin = configurationAdmin;
+        resourceFilters.clear();
     }
 
     public ClusterManager getClusterManager() {
@@ -237,4 +250,12 @@ public class CellarSupport {
         this.groupManager = groupManager;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
 }
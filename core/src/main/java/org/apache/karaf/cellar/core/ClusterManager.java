@@ -31,6 +31,23 @@ public interface ClusterManager {
      */
     public Map getMap(String mapName);
 
+    /**
+     * Listen the changes of a map in the cluster.
+     *
+     * @param mapName the map name in the cluster.
+     * @param listener the listener to notify.
+     * @return the listener registration ID, or null if the map can't be listened (the map has to be polled).
+     */
+    public String addMapListener(String mapName, MapListener listener);
+
+    /**
+     * Stop listening the changes of a map in the cluster.
+     *
+     * @param mapName the map name in the cluster.
+     * @param id the listener registration ID.
+     */
+    public void removeMapListener(String mapName, String id);
+
     /**
      * Get a list in the cluster.
      *
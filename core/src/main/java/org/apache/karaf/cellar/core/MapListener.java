@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+/**
+ * Listener notified of the changes of a map in the cluster.
+ *
+ * @see ClusterManager#addMapListener(String, MapListener)
+ */
+public interface MapListener<K, V> {
+
+    /**
+     * Notify that an entry has been added or updated.
+     *
+     * @param key the entry key.
+     * @param value the new entry value.
+     */
+    public void entryUpdated(K key, V value);
+
+    /**
+     * Notify that an entry has been removed (or evicted).
+     *
+     * @param key the entry key.
+     */
+    public void entryRemoved(K key);
+
+    /**
+     * Notify that all the entries have been removed (or evicted).
+     */
+    public void mapCleared();
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+/**
+ * Listener notified when a node leaves the cluster.
+ * The services implementing this interface are notified by the cluster membership listener.
+ */
+public interface NodeListener {
+
+    /**
+     * Notify that a node left the cluster.
+     *
+     * @param node the node which left the cluster.
+     */
+    public void nodeRemoved(Node node);
+
+}
@@ -13,15 +13,77 @@
  */
 package org.apache.karaf.cellar.core.command;
 
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.Gauge;
+import org.apache.karaf.cellar.core.utils.HashedWheelTimer;
+
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Basic command store.
+ * The commands expiration is handled by a single hashed wheel timer, shared by all the execution contexts using the
+ * store.
  */
 public class BasicCommandStore implements CommandStore {
 
     private ConcurrentMap<String, Command> pending = new ConcurrentHashMap<String, Command>();
+    private final ConcurrentMap<String, HashedWheelTimer.Timeout> timeouts = new ConcurrentHashMap<String, HashedWheelTimer.Timeout>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private long tickDuration = 100;
+    private int ticksPerWheel = 512;
+    private HashedWheelTimer timer;
+
+    private EventMetrics metrics;
+
+    public void init() {
+        if (metrics != null) {
+            metrics.registerGauge("commands.pending", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getPendingCount();
+                }
+            });
+            metrics.registerGauge("commands.completed", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getCompletedCount();
+                }
+            });
+            metrics.registerGauge("commands.expired", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getExpiredCount();
+                }
+            });
+        }
+    }
+
+    public void destroy() {
+        if (metrics != null) {
+            metrics.unregisterGauge("commands.pending");
+            metrics.unregisterGauge("commands.completed");
+            metrics.unregisterGauge("commands.expired");
+        }
+        synchronized (this) {
+            if (timer != null) {
+                timer.stop();
+                timer = null;
+            }
+        }
+    }
+
+    private synchronized HashedWheelTimer getTimer() {
+        if (timer == null) {
+            timer = new HashedWheelTimer("Cellar command timeout", tickDuration, TimeUnit.MILLISECONDS, ticksPerWheel);
+        }
+        return timer;
+    }
 
     @Override
     public ConcurrentMap<String, Command> getPending() {
@@ -33,4 +95,77 @@ public class BasicCommandStore implements CommandStore {
         this.pending = pending;
     }
 
+    @Override
+    public void add(Command command) {
+        String id = command.getId();
+        pending.put(id, command);
+        timeouts.put(id, getTimer().schedule(new TimeoutTask(command, this), command.getTimeout(), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public Command complete(String id) {
+        HashedWheelTimer.Timeout timeout = timeouts.remove(id);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        Command command = pending.remove(id);
+        if (command != null) {
+            completed.incrementAndGet();
+        }
+        return command;
+    }
+
+    @Override
+    public Command expire(String id) {
+        HashedWheelTimer.Timeout timeout = timeouts.remove(id);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        Command command = pending.remove(id);
+        if (command != null) {
+            expired.incrementAndGet();
+            command.onTimeout();
+        }
+        return command;
+    }
+
+    @Override
+    public long getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public void setTickDuration(long tickDuration) {
+        this.tickDuration = tickDuration;
+    }
+
+    public int getTicksPerWheel() {
+        return ticksPerWheel;
+    }
+
+    public void setTicksPerWheel(int ticksPerWheel) {
+        this.ticksPerWheel = ticksPerWheel;
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 }
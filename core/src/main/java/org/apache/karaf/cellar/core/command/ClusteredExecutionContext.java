@@ -19,9 +19,8 @@ import org.apache.karaf.cellar.core.exception.ProducerNotFoundException;
 import org.apache.karaf.cellar.core.exception.StoreNotFoundException;
 
 import java.util.Map;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Clustered execution context.
@@ -31,8 +30,6 @@ public class ClusteredExecutionContext implements ExecutionContext {
     private Producer producer;
     private CommandStore commandStore;
 
-    private ScheduledExecutorService timeoutScheduler = new ScheduledThreadPoolExecutor(10);
-
     public ClusteredExecutionContext() {
         // nothing to do
     }
@@ -44,20 +41,50 @@ public class ClusteredExecutionContext implements ExecutionContext {
 
     @Override
     public <R extends Result, C extends Command<R>> Map<Node, R> execute(C command) throws StoreNotFoundException, ProducerNotFoundException, InterruptedException {
+        CommandFuture<R> future = executeAsync(command);
+        try {
+            return future.get(command.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // the command store timer didn't expire the command yet
+            commandStore.expire(command.getId());
+            command.onTimeout();
+            return future.get();
+        }
+    }
+
+    @Override
+    public <R extends Result, C extends Command<R>> CommandFuture<R> executeAsync(C command) throws StoreNotFoundException, ProducerNotFoundException {
         if (command == null) {
             throw new StoreNotFoundException("Command store not found");
-        } else {
-            commandStore.getPending().put(command.getId(), command);
-            TimeoutTask timeoutTask = new TimeoutTask(command, commandStore);
-            timeoutScheduler.schedule(timeoutTask, command.getTimeout(), TimeUnit.MILLISECONDS);
         }
+        if (producer == null) {
+            throw new ProducerNotFoundException("Command producer not found");
+        }
+
+        final String id = command.getId();
+        commandStore.add(command);
+
+        CommandFuture<R> future = command.getFuture();
+        future.addCallback(new CommandCallback<R>() {
+            @Override
+            public void onComplete(Map<Node, R> results) {
+                // no-op if the command expired
+                commandStore.complete(id);
+            }
 
-        if (producer != null) {
+            @Override
+            public void onCancel() {
+                commandStore.complete(id);
+            }
+        });
+
+        try {
             producer.produce(command);
-            return command.getResult();
-        } else {
-            throw new ProducerNotFoundException("Command producer not found");
+        } catch (RuntimeException e) {
+            future.cancel(false);
+            throw e;
         }
+        return future;
     }
 
     public Producer getProducer() {
@@ -15,14 +15,16 @@ package org.apache.karaf.cellar.core.command;
 
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Command.
@@ -32,8 +34,10 @@ public class Command<R extends Result> extends Event {
     protected static final transient Logger LOGGER = LoggerFactory.getLogger(Command.class);
 
     protected long timeout = 10000;
-    protected final BlockingQueue<Map<Node, R>> resultQueue = new LinkedBlockingQueue<Map<Node, R>>();
     protected final Map<Node, R> nodeResults = new HashMap<Node, R>();
+    private transient CommandFuture<R> future;
+    private transient CompletionPolicy completionPolicy = CompletionPolicy.all();
+    private transient ResultCallback<R> resultCallback;
 
     public Command(String id) {
         super(id);
@@ -46,50 +50,91 @@ public class Command<R extends Result> extends Event {
     }
 
     /**
-     * Process the event of timeout.
+     * Get the future of the command results.
+     *
+     * @return the command future.
+     */
+    public synchronized CommandFuture<R> getFuture() {
+        if (future == null) {
+            future = new CommandFuture<R>();
+        }
+        return future;
+    }
+
+    /**
+     * Process the event of timeout: the command is completed with the results received so far.
      */
     public void onTimeout() {
-        try {
-            resultQueue.put(nodeResults);
-        } catch (InterruptedException e) {
-            LOGGER.error("Error adding result to result queue", e);
+        Map<Node, R> results;
+        synchronized (this) {
+            results = new HashMap<Node, R>(nodeResults);
         }
+        getFuture().complete(results);
     }
 
     /**
-     * Add {@code Results} to the result queue.
+     * Add {@code Results} to the command. The result callback is notified of each result, and the command is completed
+     * as soon as the completion policy is satisfied.
      *
-     * @param results the results in the queue.
+     * @param results the results to add.
      */
     public void addResults(R... results) {
         if (results != null && results.length > 0) {
-            for (R result : results) {
-                nodeResults.put(result.getSourceNode(), result);
+            Map<Node, R> completed = null;
+            synchronized (this) {
+                for (R result : results) {
+                    nodeResults.put(result.getSourceNode(), result);
+                }
+                int expected = (getDestination() != null) ? getDestination().size() : -1;
+                if (getCompletionPolicy().isComplete(nodeResults.size(), expected)) {
+                    completed = new HashMap<Node, R>(nodeResults);
+                }
             }
-
-            if (getDestination() == null || (nodeResults.size() == getDestination().size())) {
-                try {
-                    resultQueue.put(nodeResults);
-                } catch (InterruptedException e) {
-                    LOGGER.error("Error adding result to result queue", e);
+            ResultCallback<R> callback = resultCallback;
+            if (callback != null && !getFuture().isDone()) {
+                for (R result : results) {
+                    try {
+                        callback.onResult(result);
+                    } catch (Exception e) {
+                        LOGGER.warn("CELLAR: command result callback failed", e);
+                    }
                 }
             }
+            if (completed != null) {
+                getFuture().complete(completed);
+            }
         }
     }
 
     /**
-     * Return the responses.
-     * If no result is found, it returns an empty map.
+     * Return the responses, waiting for the command timeout at most.
+     * If no result is received within the timeout, it returns null.
      *
      * @return a map of results.
-     * @throws Exception in case of interruption.
+     * @throws InterruptedException in case of interruption.
      */
     public Map<Node, R> getResult() throws InterruptedException {
-        Map<Node, R> nodeResults = null;
-        if (this.resultQueue != null) {
-            nodeResults = resultQueue.poll(timeout, TimeUnit.MILLISECONDS);
+        try {
+            return getFuture().get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
         }
-        return nodeResults;
+    }
+
+    public CompletionPolicy getCompletionPolicy() {
+        return (completionPolicy != null) ? completionPolicy : CompletionPolicy.all();
+    }
+
+    public void setCompletionPolicy(CompletionPolicy completionPolicy) {
+        this.completionPolicy = completionPolicy;
+    }
+
+    public ResultCallback<R> getResultCallback() {
+        return resultCallback;
+    }
+
+    public void setResultCallback(ResultCallback<R> resultCallback) {
+        this.resultCallback = resultCallback;
     }
 
     public long getTimeout() {
@@ -100,4 +145,16 @@ public class Command<R extends Result> extends Event {
         this.timeout = timeout;
     }
 
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeLong(timeout);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        timeout = in.readLong();
+    }
+
 }
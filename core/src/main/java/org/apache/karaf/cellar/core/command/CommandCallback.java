@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.util.Map;
+
+/**
+ * Callback notified when a {@link CommandFuture} is done.
+ * The callback is called by the thread completing the command (a result handler or the timeout task), so it
+ * should not block.
+ */
+public interface CommandCallback<R extends Result> {
+
+    /**
+     * Called when the command is completed, with the results satisfying the command completion policy or with the
+     * results received before the timeout.
+     *
+     * @param results the results per node.
+     */
+    public void onComplete(Map<Node, R> results);
+
+    /**
+     * Called when the command has been cancelled.
+     */
+    public void onCancel();
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future of the results of a {@link Command}.
+ * The future is completed when the results satisfy the command {@link CompletionPolicy}, or when the command times
+ * out with the results received so far. Callbacks can be registered to be notified of the completion without holding a thread.
+ */
+public class CommandFuture<R extends Result> implements Future<Map<Node, R>> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(CommandFuture.class);
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final List<CommandCallback<R>> callbacks = new ArrayList<CommandCallback<R>>(1);
+
+    private Map<Node, R> results;
+    private boolean done = false;
+    private boolean cancelled = false;
+
+    /**
+     * Complete the future with the given results.
+     *
+     * @param results the results per node.
+     * @return true if the future has been completed by this call, false if it was already done.
+     */
+    public boolean complete(Map<Node, R> results) {
+        List<CommandCallback<R>> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.results = results;
+            this.done = true;
+            toNotify = new ArrayList<CommandCallback<R>>(callbacks);
+            callbacks.clear();
+        }
+        latch.countDown();
+        for (CommandCallback<R> callback : toNotify) {
+            fire(callback);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        List<CommandCallback<R>> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.done = true;
+            this.cancelled = true;
+            toNotify = new ArrayList<CommandCallback<R>>(callbacks);
+            callbacks.clear();
+        }
+        latch.countDown();
+        for (CommandCallback<R> callback : toNotify) {
+            fire(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Register a callback. If the future is already done, the callback is called immediately by the current thread.
+     *
+     * @param callback the callback to register.
+     */
+    public void addCallback(CommandCallback<R> callback) {
+        synchronized (this) {
+            if (!done) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        fire(callback);
+    }
+
+    private void fire(CommandCallback<R> callback) {
+        try {
+            if (cancelled) {
+                callback.onCancel();
+            } else {
+                callback.onComplete(results);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: command callback failed", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public Map<Node, R> get() throws InterruptedException {
+        latch.await();
+        return report();
+    }
+
+    @Override
+    public Map<Node, R> get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Command results not received within " + unit.toMillis(timeout) + "ms");
+        }
+        return report();
+    }
+
+    private synchronized Map<Node, R> report() {
+        if (cancelled) {
+            throw new CancellationException("Command cancelled");
+        }
+        return results;
+    }
+
+}
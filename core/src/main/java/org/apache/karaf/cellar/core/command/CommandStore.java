@@ -24,4 +24,48 @@ public interface CommandStore {
 
     public void setPending(ConcurrentMap<String, Command> pending);
 
+    /**
+     * Add a pending command. The command expires after its timeout if not completed before.
+     *
+     * @param command the command.
+     */
+    public void add(Command command);
+
+    /**
+     * Remove a completed command.
+     *
+     * @param id the command ID.
+     * @return the command, or null if the command was not pending anymore.
+     */
+    public Command complete(String id);
+
+    /**
+     * Remove an expired command, and complete it with the results received so far.
+     *
+     * @param id the command ID.
+     * @return the command, or null if the command was not pending anymore.
+     */
+    public Command expire(String id);
+
+    /**
+     * Get the number of pending commands.
+     *
+     * @return the number of pending commands.
+     */
+    public long getPendingCount();
+
+    /**
+     * Get the number of commands completed since the store creation.
+     *
+     * @return the number of completed commands.
+     */
+    public long getCompletedCount();
+
+    /**
+     * Get the number of commands expired since the store creation.
+     *
+     * @return the number of expired commands.
+     */
+    public long getExpiredCount();
+
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+/**
+ * Policy deciding when a {@link Command} is completed, depending on the number of results received.
+ * If the command has no destination, the number of expected results is unknown and the policies complete the command
+ * with the first result (except first N, waiting for N results).
+ */
+public abstract class CompletionPolicy {
+
+    private static final CompletionPolicy ALL = new CompletionPolicy() {
+        @Override
+        public boolean isComplete(int received, int expected) {
+            return (expected < 0) ? received > 0 : received >= expected;
+        }
+
+        @Override
+        public String toString() {
+            return "all";
+        }
+    };
+
+    private static final CompletionPolicy ANY = new CompletionPolicy() {
+        @Override
+        public boolean isComplete(int received, int expected) {
+            return received > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "any";
+        }
+    };
+
+    private static final CompletionPolicy QUORUM = new CompletionPolicy() {
+        @Override
+        public boolean isComplete(int received, int expected) {
+            return (expected < 0) ? received > 0 : received >= (expected / 2) + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "quorum";
+        }
+    };
+
+    /**
+     * Check if a command is completed.
+     *
+     * @param received the number of results received.
+     * @param expected the number of destination nodes, or -1 if the command has no destination.
+     * @return true if the command is completed, false else.
+     */
+    public abstract boolean isComplete(int received, int expected);
+
+    /**
+     * Complete the command when all the destination nodes have answered (the default policy).
+     *
+     * @return the all policy.
+     */
+    public static CompletionPolicy all() {
+        return ALL;
+    }
+
+    /**
+     * Complete the command with the first result.
+     *
+     * @return the any policy.
+     */
+    public static CompletionPolicy any() {
+        return ANY;
+    }
+
+    /**
+     * Complete the command when a majority of the destination nodes have answered.
+     *
+     * @return the quorum policy.
+     */
+    public static CompletionPolicy quorum() {
+        return QUORUM;
+    }
+
+    /**
+     * Complete the command when the given number of nodes have answered, or all the destination nodes if there are
+     * less destination nodes.
+     *
+     * @param count the number of results to wait for.
+     * @return the first N policy.
+     */
+    public static CompletionPolicy first(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The number of results must be positive: " + count);
+        }
+        return new CompletionPolicy() {
+            @Override
+            public boolean isComplete(int received, int expected) {
+                return received >= ((expected < 0) ? count : Math.min(count, expected));
+            }
+
+            @Override
+            public String toString() {
+                return "first " + count;
+            }
+        };
+    }
+
+}
@@ -33,4 +33,17 @@ public interface ExecutionContext {
      */
     public <R extends Result, C extends Command<R>> Map<Node, R> execute(C command) throws Exception;
 
+    /**
+     * Execute {@link Command} without waiting for the {@link Result}s.
+     * The returned future is completed when the results satisfy the command {@link CompletionPolicy}, or when the
+     * command times out with the results received so far.
+     *
+     * @param command the command to execute.
+     * @param <R> the result type.
+     * @param <C> the command type.
+     * @return the future of the command results.
+     * @throws Exception in case of command execution failure.
+     */
+    public <R extends Result, C extends Command<R>> CommandFuture<R> executeAsync(C command) throws Exception;
+
 }
@@ -27,15 +27,17 @@ public class TimeoutTask implements Runnable {
     }
 
     /**
-     * Runs the timeout task.
+     * Runs the timeout task: if the command is still pending, it's removed from the store and completed with the
+     * results received so far.
      */
     @Override
     public void run() {
-        // check if command is still pending
-        Boolean pending = store.getPending().containsKey(command);
-        if (pending) {
-            store.getPending().remove(command);
-        }
+        store.expire(command.getId());
+    }
+
+    @Override
+    public String toString() {
+        return "TimeoutTask{" + command.getId() + "}";
     }
 
 }
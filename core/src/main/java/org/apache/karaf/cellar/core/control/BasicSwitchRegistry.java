@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Basic switch registry.
+ * The switches status are loaded from the node configuration and only refreshed when the node configuration changes,
+ * so checking a switch doesn't involve configuration admin.
+ */
+public class BasicSwitchRegistry implements SwitchRegistry, ConfigurationListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BasicSwitchRegistry.class);
+
+    private static final String HANDLER_PREFIX = Configurations.HANDLER + Configurations.SEPARATOR;
+    private static final String LISTENER_SUFFIX = Configurations.SEPARATOR + Configurations.LISTENER;
+
+    private ConfigurationAdmin configurationAdmin;
+
+    private volatile boolean configured = false;
+    private volatile SwitchStatus producerStatus = SwitchStatus.ON;
+    private volatile SwitchStatus consumerStatus = SwitchStatus.ON;
+    private volatile Map<String, SwitchStatus> handlerStatus = Collections.emptyMap();
+    private volatile Map<String, SwitchStatus> listenerStatus = Collections.emptyMap();
+
+    public void init() {
+        refresh();
+    }
+
+    public void destroy() {
+        // nothing to do
+    }
+
+    @Override
+    public SwitchStatus getProducerStatus() {
+        return producerStatus;
+    }
+
+    @Override
+    public SwitchStatus getConsumerStatus() {
+        return consumerStatus;
+    }
+
+    @Override
+    public SwitchStatus getHandlerStatus(String handler) {
+        if (!configured) {
+            return SwitchStatus.ON;
+        }
+        SwitchStatus status = handlerStatus.get(handler);
+        return (status != null) ? status : SwitchStatus.OFF;
+    }
+
+    @Override
+    public SwitchStatus getListenerStatus(String category) {
+        SwitchStatus status = listenerStatus.get(category);
+        return (status != null) ? status : SwitchStatus.OFF;
+    }
+
+    @Override
+    public void refresh() {
+        try {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
+            if (configuration != null) {
+                update(configuration.getProperties());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Can't load the switches status from the node configuration", e);
+        }
+    }
+
+    /**
+     * Update the switches status with the given node configuration properties.
+     *
+     * @param properties the node configuration properties.
+     */
+    protected void update(Dictionary<String, Object> properties) {
+        if (properties == null) {
+            // no node configuration, keep the switches ON as the default switch status
+            listenerStatus = Collections.emptyMap();
+            handlerStatus = Collections.emptyMap();
+            producerStatus = SwitchStatus.ON;
+            consumerStatus = SwitchStatus.ON;
+            configured = false;
+            return;
+        }
+
+        Map<String, SwitchStatus> handlers = new HashMap<String, SwitchStatus>();
+        Map<String, SwitchStatus> listeners = new HashMap<String, SwitchStatus>();
+        Enumeration<String> keys = properties.keys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            if (key.startsWith(HANDLER_PREFIX)) {
+                handlers.put(key.substring(HANDLER_PREFIX.length()), toStatus(properties.get(key)));
+            } else if (key.endsWith(LISTENER_SUFFIX)) {
+                listeners.put(key.substring(0, key.length() - LISTENER_SUFFIX.length()), toStatus(properties.get(key)));
+            }
+        }
+
+        listenerStatus = Collections.unmodifiableMap(listeners);
+        handlerStatus = Collections.unmodifiableMap(handlers);
+        producerStatus = toStatus(properties.get(Configurations.PRODUCER));
+        consumerStatus = toStatus(properties.get(Configurations.CONSUMER));
+        configured = true;
+    }
+
+    /**
+     * Convert a node configuration value to a switch status.
+     *
+     * @param value the configuration value.
+     * @return ON if the value is true, OFF else.
+     */
+    private SwitchStatus toStatus(Object value) {
+        if (value != null && Boolean.parseBoolean(value.toString().trim())) {
+            return SwitchStatus.ON;
+        }
+        return SwitchStatus.OFF;
+    }
+
+    /**
+     * Refresh the switches status when the node configuration changes.
+     *
+     * @param event the local configuration event.
+     */
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.NODE.equals(event.getPid())) {
+            refresh();
+        }
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+}
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Consumer switch command.
  */
-public class ConsumerSwitchCommand extends Command<ConsumerSwitchResult> {
+public class ConsumerSwitchCommand extends Command<ConsumerSwitchResult> implements CellarSerializable {
 
     private SwitchStatus status = null;
 
@@ -49,4 +54,27 @@ public class ConsumerSwitchCommand extends Command<ConsumerSwitchResult> {
         this.status = status;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.CONSUMER_SWITCH_COMMAND;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(status == null ? -1 : status.ordinal());
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int statusOrdinal = in.readByte();
+        status = statusOrdinal < 0 ? null : SwitchStatus.values()[statusOrdinal];
+    }
+
 }
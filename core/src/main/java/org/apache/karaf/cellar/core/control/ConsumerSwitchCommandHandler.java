@@ -69,6 +69,10 @@ public class ConsumerSwitchCommandHandler extends CommandHandler<ConsumerSwitchC
                 if (properties != null) {
                     properties.put(Configurations.CONSUMER, switchStatus.getValue().toString());
                     configuration.update(properties);
+                    // don't wait for the configuration event to update the switches status
+                    if (switchRegistry != null) {
+                        switchRegistry.refresh();
+                    }
                 }
             }
         } catch (Exception e) {
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Consumer switch result.
  */
-public class ConsumerSwitchResult extends Result {
+public class ConsumerSwitchResult extends Result implements CellarSerializable {
 
     protected Boolean success = Boolean.TRUE;
     protected Boolean status = Boolean.TRUE;
@@ -54,4 +59,30 @@ public class ConsumerSwitchResult extends Result {
         this.status = status;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.CONSUMER_SWITCH_RESULT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(success == null ? -1 : (success ? 1 : 0));
+        out.writeByte(status == null ? -1 : (status ? 1 : 0));
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        byte successFlag = in.readByte();
+        success = successFlag < 0 ? null : successFlag == 1;
+        byte statusFlag = in.readByte();
+        status = statusFlag < 0 ? null : statusFlag == 1;
+    }
+
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventTypeFactory;
+
+/**
+ * Factory of the core cluster events: the control commands and results, and the event batches.
+ */
+public class ControlEventTypeFactory implements EventTypeFactory {
+
+    public static final int FACTORY_ID = 1;
+
+    public static final int PRODUCER_SWITCH_COMMAND = 1;
+    public static final int PRODUCER_SWITCH_RESULT = 2;
+    public static final int CONSUMER_SWITCH_COMMAND = 3;
+    public static final int CONSUMER_SWITCH_RESULT = 4;
+    public static final int MANAGE_HANDLERS_COMMAND = 5;
+    public static final int MANAGE_HANDLERS_RESULT = 6;
+    public static final int MANAGE_GROUP_COMMAND = 7;
+    public static final int MANAGE_GROUP_RESULT = 8;
+    public static final int EVENT_BATCH = 9;
+
+    @Override
+    public int getFactoryId() {
+        return FACTORY_ID;
+    }
+
+    @Override
+    public CellarSerializable create(int typeId) {
+        switch (typeId) {
+            case PRODUCER_SWITCH_COMMAND:
+                return new ProducerSwitchCommand(null);
+            case PRODUCER_SWITCH_RESULT:
+                return new ProducerSwitchResult(null);
+            case CONSUMER_SWITCH_COMMAND:
+                return new ConsumerSwitchCommand(null);
+            case CONSUMER_SWITCH_RESULT:
+                return new ConsumerSwitchResult(null);
+            case MANAGE_HANDLERS_COMMAND:
+                return new ManageHandlersCommand(null);
+            case MANAGE_HANDLERS_RESULT:
+                return new ManageHandlersResult(null);
+            case MANAGE_GROUP_COMMAND:
+                return new ManageGroupCommand(null);
+            case MANAGE_GROUP_RESULT:
+                return new ManageGroupResult(null);
+            case EVENT_BATCH:
+                return new EventBatch(null);
+            default:
+                return null;
+        }
+    }
+
+}
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Manager group command.
  */
-public class ManageGroupCommand extends Command<ManageGroupResult> {
+public class ManageGroupCommand extends Command<ManageGroupResult> implements CellarSerializable {
 
     private ManageGroupAction action;
     private String groupName;
@@ -43,4 +48,29 @@ public class ManageGroupCommand extends Command<ManageGroupResult> {
         this.groupName = groupName;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.MANAGE_GROUP_COMMAND;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(action == null ? -1 : action.ordinal());
+        out.writeString(groupName);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int actionOrdinal = in.readByte();
+        action = actionOrdinal < 0 ? null : ManageGroupAction.values()[actionOrdinal];
+        groupName = in.readString();
+    }
+
 }
@@ -15,14 +15,18 @@ package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Manager group result.
  */
-public class ManageGroupResult extends Result {
+public class ManageGroupResult extends Result implements CellarSerializable {
 
     private Boolean success = Boolean.TRUE;
     private Set<Group> groups = new HashSet<Group>();
@@ -47,4 +51,42 @@ public class ManageGroupResult extends Result {
         this.groups = groups;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.MANAGE_GROUP_RESULT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(success == null ? -1 : (success ? 1 : 0));
+        out.writeInt(groups == null ? -1 : groups.size());
+        if (groups != null) {
+            for (Group group : groups) {
+                out.writeGroup(group);
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        byte successFlag = in.readByte();
+        success = successFlag < 0 ? null : successFlag == 1;
+        int size = in.readInt();
+        if (size < 0) {
+            groups = null;
+        } else {
+            groups = new HashSet<Group>();
+            for (int i = 0; i < size; i++) {
+                groups.add(in.readGroup());
+            }
+        }
+    }
+
 }
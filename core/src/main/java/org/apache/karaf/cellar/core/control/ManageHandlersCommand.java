@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Manage handlers command.
  */
-public class ManageHandlersCommand extends Command<ManageHandlersResult> {
+public class ManageHandlersCommand extends Command<ManageHandlersResult> implements CellarSerializable {
 
     private String handlerName;
     private Boolean status = Boolean.TRUE;
@@ -43,4 +48,29 @@ public class ManageHandlersCommand extends Command<ManageHandlersResult> {
         this.status = status;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.MANAGE_HANDLERS_COMMAND;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(handlerName);
+        out.writeByte(status == null ? -1 : (status ? 1 : 0));
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        handlerName = in.readString();
+        byte statusFlag = in.readByte();
+        status = statusFlag < 0 ? null : statusFlag == 1;
+    }
+
 }
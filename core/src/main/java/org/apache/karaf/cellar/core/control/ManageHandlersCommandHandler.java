@@ -110,6 +110,10 @@ public class ManageHandlersCommandHandler extends CommandHandler<ManageHandlersC
                 if (properties != null) {
                     properties.put(Configurations.HANDLER + "." + handler, switchStatus.getValue().toString());
                     configuration.update(properties);
+                    // don't wait for the configuration event to update the switches status
+                    if (switchRegistry != null) {
+                        switchRegistry.refresh();
+                    }
                 }
             }
         } catch (Exception e) {
@@ -14,14 +14,18 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Manage handlers result.
  */
-public class ManageHandlersResult extends Result {
+public class ManageHandlersResult extends Result implements CellarSerializable {
 
     public Map<String, String> handlers = new HashMap<String, String>();
 
@@ -37,4 +41,40 @@ public class ManageHandlersResult extends Result {
         this.handlers = handlers;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.MANAGE_HANDLERS_RESULT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeInt(handlers == null ? -1 : handlers.size());
+        if (handlers != null) {
+            for (Map.Entry<String, String> entry : handlers.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeString(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int size = in.readInt();
+        if (size < 0) {
+            handlers = null;
+        } else {
+            handlers = new HashMap<String, String>();
+            for (int i = 0; i < size; i++) {
+                handlers.put(in.readString(), in.readString());
+            }
+        }
+    }
+
 }
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Producer switch command.
  */
-public class ProducerSwitchCommand extends Command<ProducerSwitchResult> {
+public class ProducerSwitchCommand extends Command<ProducerSwitchResult> implements CellarSerializable {
 
     private SwitchStatus status = null;
 
@@ -39,4 +44,27 @@ public class ProducerSwitchCommand extends Command<ProducerSwitchResult> {
         this.status = status;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.PRODUCER_SWITCH_COMMAND;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(status == null ? -1 : status.ordinal());
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int statusOrdinal = in.readByte();
+        status = statusOrdinal < 0 ? null : SwitchStatus.values()[statusOrdinal];
+    }
+
 }
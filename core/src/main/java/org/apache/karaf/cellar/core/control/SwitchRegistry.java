@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+/**
+ * Registry holding the status of the node switches (producer, consumer, handlers, listeners)
+ * defined in the node configuration.
+ */
+public interface SwitchRegistry {
+
+    /**
+     * Get the status of the cluster event producer.
+     *
+     * @return the producer switch status.
+     */
+    public SwitchStatus getProducerStatus();
+
+    /**
+     * Get the status of the cluster event consumer.
+     *
+     * @return the consumer switch status.
+     */
+    public SwitchStatus getConsumerStatus();
+
+    /**
+     * Get the status of a cluster event handler.
+     *
+     * @param handler the handler class name.
+     * @return the handler switch status.
+     */
+    public SwitchStatus getHandlerStatus(String handler);
+
+    /**
+     * Get the status of a local listener.
+     *
+     * @param category the resource category of the listener (bundle, config, feature, ...).
+     * @return the listener switch status.
+     */
+    public SwitchStatus getListenerStatus(String category);
+
+    /**
+     * Reload the switches status from the node configuration.
+     */
+    public void refresh();
+
+}
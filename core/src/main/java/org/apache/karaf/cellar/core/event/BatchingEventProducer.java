@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchStatus;
+import org.apache.karaf.cellar.core.serialization.SizeEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event producer coalescing cluster events into {@link EventBatch}es sent by a delegate producer.
+ * A batch is flushed when it reaches the max number of events, the max estimated size in bytes, or when the
+ * first event of the batch has waited for the linger time.
+ * Commands and results are not batched: the pending batch is flushed and they are sent right away.
+ */
+public class BatchingEventProducer<E extends Event> implements EventProducer<E> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BatchingEventProducer.class);
+
+    public static final int DEFAULT_MAX_EVENTS = 100;
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024;
+    public static final long DEFAULT_LINGER = 10;
+
+    private EventProducer<Event> delegate;
+    private int maxEvents = DEFAULT_MAX_EVENTS;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long linger = DEFAULT_LINGER;
+
+    private ScheduledExecutorService scheduler;
+    private boolean ownScheduler;
+
+    private final Object lock = new Object();
+    private List<Event> pending = new ArrayList<Event>();
+    private long pendingBytes;
+    private ScheduledFuture<?> lingerFlush;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedEventCount = new AtomicLong();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (Exception e) {
+                LOGGER.warn("CELLAR: failed to flush the cluster events batch", e);
+            }
+        }
+    };
+
+    public void init() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Cellar batching producer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            ownScheduler = true;
+        }
+    }
+
+    public void destroy() {
+        flush();
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            ownScheduler = false;
+        }
+    }
+
+    @Override
+    public void produce(E event) {
+        synchronized (lock) {
+            if (!isBatchable(event)) {
+                // keep the order with the events already pending
+                flushPending();
+                delegate.produce(event);
+                return;
+            }
+            pending.add(event);
+            pendingBytes += SizeEstimator.estimate(event);
+            if (pending.size() >= maxEvents || pendingBytes >= maxBytes) {
+                flushPending();
+            } else if (lingerFlush == null) {
+                try {
+                    lingerFlush = scheduler.schedule(flushTask, linger, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the scheduler is shutting down
+                    flushPending();
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the pending events now.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushPending();
+        }
+    }
+
+    private boolean isBatchable(Event event) {
+        if (maxEvents <= 1 || scheduler == null) {
+            return false;
+        }
+        if (event instanceof Command || event instanceof Result || event instanceof EventBatch) {
+            return false;
+        }
+        // the events refused by the delegate go through it, to be logged and dropped the usual way
+        return event.getForce() || delegate.getSwitch().getStatus().equals(SwitchStatus.ON);
+    }
+
+    private void flushPending() {
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Event> events = pending;
+        pending = new ArrayList<Event>();
+        pendingBytes = 0;
+        if (events.size() == 1) {
+            delegate.produce(events.get(0));
+        } else {
+            EventBatch batch = new EventBatch(events.get(0).getId());
+            batch.setEvents(events);
+            delegate.produce(batch);
+            batchCount.incrementAndGet();
+            batchedEventCount.addAndGet(events.size());
+        }
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return delegate.getSwitch();
+    }
+
+    /**
+     * Get the number of batches sent.
+     *
+     * @return the number of batches.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Get the number of events sent in batches.
+     *
+     * @return the number of batched events.
+     */
+    public long getBatchedEventCount() {
+        return batchedEventCount.get();
+    }
+
+    public EventProducer<Event> getDelegate() {
+        return delegate;
+    }
+
+    public void setDelegate(EventProducer<Event> delegate) {
+        this.delegate = delegate;
+    }
+
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    public void setMaxEvents(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getLinger() {
+        return linger;
+    }
+
+    public void setLinger(long linger) {
+        this.linger = linger;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+}
@@ -15,7 +15,10 @@ package org.apache.karaf.cellar.core.event;
 
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Set;
 
@@ -27,7 +30,9 @@ public class Event implements Serializable {
 
     protected String id;
     protected Node sourceNode;
-    protected Group sourceGroup;
+    protected String sourceGroupName;
+    // only the group name is sent to the cluster, not the group members
+    protected transient Group sourceGroup;
     protected Set<Node> destination;
     protected Boolean force = Boolean.FALSE;
     protected Boolean postPublish = Boolean.FALSE;
@@ -52,12 +57,27 @@ public class Event implements Serializable {
         this.sourceNode = sourceNode;
     }
 
+    /**
+     * Get the source cluster group of the event.
+     * On the receiving node, the group is only a reference holding the group name. The group members can be
+     * resolved using {@link org.apache.karaf.cellar.core.GroupManager#findGroupByName(String)}.
+     *
+     * @return the source cluster group.
+     */
     public Group getSourceGroup() {
+        if (sourceGroup == null && sourceGroupName != null) {
+            sourceGroup = new Group(sourceGroupName);
+        }
         return sourceGroup;
     }
 
     public void setSourceGroup(Group sourceGroup) {
         this.sourceGroup = sourceGroup;
+        this.sourceGroupName = (sourceGroup != null) ? sourceGroup.getName() : null;
+    }
+
+    public String getSourceGroupName() {
+        return sourceGroupName;
     }
 
     public Set<Node> getDestination() {
@@ -84,4 +104,36 @@ public class Event implements Serializable {
         this.postPublish = postPublish;
     }
 
+    /**
+     * Write the common event state.
+     * Subclasses implementing {@link org.apache.karaf.cellar.core.serialization.CellarSerializable} call it first.
+     *
+     * @param out the output to write to.
+     * @throws IOException in case of write failure.
+     */
+    public void writeData(EventOutput out) throws IOException {
+        out.writeString(id);
+        out.writeNode(sourceNode);
+        out.writeString(sourceGroupName);
+        out.writeNodes(destination);
+        out.writeBoolean(force != null && force);
+        out.writeBoolean(postPublish != null && postPublish);
+    }
+
+    /**
+     * Read the common event state written by {@link #writeData(EventOutput)}.
+     *
+     * @param in the input to read from.
+     * @throws IOException in case of read failure.
+     */
+    public void readData(EventInput in) throws IOException {
+        id = in.readString();
+        sourceNode = in.readNode();
+        sourceGroupName = in.readString();
+        sourceGroup = null;
+        destination = in.readNodes();
+        force = in.readBoolean();
+        postPublish = in.readBoolean();
+    }
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.control.ControlEventTypeFactory;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envelope sending several cluster events in a single cluster message.
+ * The consumers unpack the batch and consume each event in order.
+ */
+public class EventBatch extends Event implements CellarSerializable {
+
+    private List<Event> events = new ArrayList<Event>();
+
+    public EventBatch(String id) {
+        super(id);
+        this.force = true;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<Event> events) {
+        this.events = events;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return ControlEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ControlEventTypeFactory.EVENT_BATCH;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeInt(events.size());
+        for (Event event : events) {
+            out.writeObject(event);
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int size = in.readInt();
+        events = new ArrayList<Event>(size);
+        for (int i = 0; i < size; i++) {
+            Event event = in.readObject();
+            // the source node is set once on the batch
+            if (event.getSourceNode() == null) {
+                event.setSourceNode(sourceNode);
+            }
+            events.add(event);
+        }
+    }
+
+}
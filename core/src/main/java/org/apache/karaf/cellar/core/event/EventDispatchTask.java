@@ -13,79 +13,70 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Event dispatcher task.
+ * If no handler is available for the cluster event, the event is parked in the handler registry until the
+ * corresponding handler is registered.
+ * If metrics are provided, the time spent in the dispatcher queue and in the handler are recorded.
  */
 public class EventDispatchTask<E extends Event> implements Runnable {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(EventDispatchTask.class);
 
     private E event;
-    private EventHandlerRegistry handlerRegistry;
-    private long timeout = 10000;
-    private long interval = 1000;
+    private EventHandlerRegistry<E> handlerRegistry;
+    private EventDispatcher<E> dispatcher;
+    private EventMetrics metrics;
+    private final long created = System.nanoTime();
 
-    public EventDispatchTask(E event, EventHandlerRegistry handlerRegistry) {
+    public EventDispatchTask(E event, EventHandlerRegistry<E> handlerRegistry) {
         this.event = event;
         this.handlerRegistry = handlerRegistry;
     }
 
-    public EventDispatchTask(E event, EventHandlerRegistry handlerRegistry, long timeout) {
+    public EventDispatchTask(E event, EventHandlerRegistry<E> handlerRegistry, EventDispatcher<E> dispatcher) {
         this.event = event;
         this.handlerRegistry = handlerRegistry;
-        this.timeout = timeout;
-    }
-
-    public EventDispatchTask(EventHandlerRegistry handlerRegistry, long timeout, long interval, E event) {
-        this.handlerRegistry = handlerRegistry;
-        this.timeout = timeout;
-        this.interval = interval;
-        this.event = event;
+        this.dispatcher = dispatcher;
     }
 
     @Override
     public void run() {
+        long start = System.nanoTime();
+        if (metrics != null) {
+            metrics.record(PipelineStage.DISPATCH, event, start - created);
+        }
         try {
-            boolean dispatched = false;
-
-            for (long delay = 0; delay < timeout && !dispatched; delay += interval) {
-                EventHandler handler = handlerRegistry.getHandler(event);
-                if (handler != null) {
-                    handler.handle(event);
-                    dispatched = true;
-                } else {
-                    try {
-                        Thread.sleep(interval);
-                    } catch (InterruptedException e) {
-                        LOGGER.warn("Interrupted while waiting for cluster event handler", e);
-                    }
+            EventHandler<E> handler = handlerRegistry.getHandler(event);
+            if (handler != null) {
+                handler.handle(event);
+                if (metrics != null) {
+                    metrics.record(PipelineStage.HANDLE, event, System.nanoTime() - start);
                 }
-            }
-            if (!dispatched) {
+            } else if (dispatcher == null || !handlerRegistry.park(event, dispatcher)) {
                 LOGGER.warn("Failed to retrieve handler for cluster event {}", event.getClass());
+            } else {
+                LOGGER.debug("No handler available yet for cluster event {}, event parked", event.getClass());
             }
         } catch (Exception ex) {
+            if (metrics != null) {
+                metrics.error(PipelineStage.HANDLE, event);
+            }
             LOGGER.error("Error while dispatching task", ex);
         }
     }
 
-    public long getTimeout() {
-        return timeout;
-    }
-
-    public void setTimeout(long timeout) {
-        this.timeout = timeout;
-    }
-
-    public long getInterval() {
-        return interval;
+    public EventMetrics getMetrics() {
+        return metrics;
     }
 
-    public void setInterval(long interval) {
-        this.interval = interval;
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
     }
 
 }
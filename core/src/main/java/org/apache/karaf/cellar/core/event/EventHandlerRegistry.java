@@ -27,4 +27,14 @@ public interface EventHandlerRegistry<E extends Event> extends HandlerRegistry<E
     @Override
     public EventHandler<E> getHandler(E event);
 
+    /**
+     * Park a cluster {@code Event} without handler. The event is dispatched again using the given
+     * {@code EventDispatcher} as soon as a handler for the event type is registered.
+     *
+     * @param event the cluster event to park.
+     * @param dispatcher the cluster event dispatcher to use when the handler is registered.
+     * @return true if the cluster event has been parked, false else.
+     */
+    public boolean park(E event, EventDispatcher<E> dispatcher);
+
 }
@@ -13,20 +13,84 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.Gauge;
+
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Event handler service registry dispatcher.
+ * The cluster events are dispatched on a fixed number of lanes. By default, a lane queue grows beyond its capacity
+ * rather than losing cluster events or blocking the cluster transport threads. The cluster events with the same
+ * key (the event ID and the cluster group) are handled in order on the same lane, the other ones are handled in parallel.
+ * The command results are dispatched on their own lanes: a handler waiting for the result of a command (for instance a
+ * remote service calling another remote service) doesn't prevent the delivery of this result.
  */
 public class EventHandlerRegistryDispatcher<E extends Event> implements EventDispatcher<E> {
 
+    public static final int DEFAULT_WORKERS = 8;
+    public static final int DEFAULT_RESULT_WORKERS = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
     private ExecutorService threadPool;
+    private KeyedDispatchExecutor executor;
+    private KeyedDispatchExecutor resultExecutor;
     private EventHandlerRegistry handlerRegistry;
+    private EventMetrics metrics;
+
+    private int workers = DEFAULT_WORKERS;
+    private int resultWorkers = DEFAULT_RESULT_WORKERS;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.GROW;
 
     public void init() {
-        if (threadPool == null) {
-            threadPool = Executors.newCachedThreadPool();
+        if (threadPool == null && executor == null) {
+            executor = new KeyedDispatchExecutor("cellar-dispatcher", workers, queueCapacity, overflowPolicy);
+            resultExecutor = new KeyedDispatchExecutor("cellar-result-dispatcher", resultWorkers, queueCapacity, overflowPolicy);
+        }
+        if (metrics != null) {
+            metrics.registerGauge("dispatcher.queue.size", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getQueueSize();
+                }
+            });
+            metrics.registerGauge("dispatcher.rejected", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getRejectedCount();
+                }
+            });
+            metrics.registerGauge("dispatcher.dropped", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getDroppedCount();
+                }
+            });
+            metrics.registerGauge("dispatcher.queue.peak", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getPeakQueueSize();
+                }
+            });
+        }
+    }
+
+    public void destroy() {
+        if (metrics != null) {
+            metrics.unregisterGauge("dispatcher.queue.size");
+            metrics.unregisterGauge("dispatcher.rejected");
+            metrics.unregisterGauge("dispatcher.dropped");
+            metrics.unregisterGauge("dispatcher.queue.peak");
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (resultExecutor != null) {
+            resultExecutor.shutdown();
+            resultExecutor = null;
         }
     }
 
@@ -36,8 +100,66 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
      * @param event the cluster event to dispatch.
      */
     public void dispatch(E event) {
-        EventDispatchTask task = new EventDispatchTask(event, handlerRegistry);
-        threadPool.execute(task);
+        EventDispatchTask task = new EventDispatchTask(event, handlerRegistry, this);
+        task.setMetrics(metrics);
+        if (threadPool != null) {
+            // an external thread pool has been provided, no ordering guarantee
+            threadPool.execute(task);
+        } else if (event instanceof Result) {
+            resultExecutor.execute(getKey(event), task);
+        } else {
+            executor.execute(getKey(event), task);
+        }
+    }
+
+    /**
+     * Get the ordering key of a cluster event, based on the event ID and the source cluster group.
+     *
+     * @param event the cluster event.
+     * @return the ordering key.
+     */
+    protected int getKey(E event) {
+        int key = (event.getId() != null) ? event.getId().hashCode() : 0;
+        if (event.getSourceGroupName() != null) {
+            key = 31 * key + event.getSourceGroupName().hashCode();
+        }
+        return key;
+    }
+
+    /**
+     * Get the number of cluster events waiting to be handled.
+     *
+     * @return the number of pending cluster events.
+     */
+    public int getQueueSize() {
+        return (executor != null) ? executor.getQueueSize() + resultExecutor.getQueueSize() : 0;
+    }
+
+    /**
+     * Get the number of cluster events dispatched while the dispatch queue was full (or over its capacity).
+     *
+     * @return the number of rejected cluster events.
+     */
+    public long getRejectedCount() {
+        return (executor != null) ? executor.getRejectedCount() + resultExecutor.getRejectedCount() : 0;
+    }
+
+    /**
+     * Get the largest number of cluster events pending in a lane grown beyond its capacity.
+     *
+     * @return the peak lane queue size.
+     */
+    public long getPeakQueueSize() {
+        return (executor != null) ? Math.max(executor.getPeakQueueSize(), resultExecutor.getPeakQueueSize()) : 0;
+    }
+
+    /**
+     * Get the number of cluster events discarded due to the overflow policy.
+     *
+     * @return the number of dropped cluster events.
+     */
+    public long getDroppedCount() {
+        return (executor != null) ? executor.getDroppedCount() + resultExecutor.getDroppedCount() : 0;
     }
 
     public EventHandlerRegistry getHandlerRegistry() {
@@ -48,6 +170,14 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
         this.handlerRegistry = handlerRegistry;
     }
 
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public ExecutorService getThreadPool() {
         return threadPool;
     }
@@ -56,4 +186,36 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
         this.threadPool = threadPool;
     }
 
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getResultWorkers() {
+        return resultWorkers;
+    }
+
+    public void setResultWorkers(int resultWorkers) {
+        this.resultWorkers = resultWorkers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
 }
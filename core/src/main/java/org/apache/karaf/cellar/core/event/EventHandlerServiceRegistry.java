@@ -13,15 +13,113 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.Gauge;
+import org.apache.karaf.cellar.core.utils.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Event handler service registry.
+ * The cluster events received without registered handler are parked per event type, and dispatched again when the
+ * corresponding handler is bound. The parked cluster events expire after the parking TTL, using a hashed wheel timer,
+ * and at most max parked events are kept per type, the oldest ones being dropped.
+ * The parked cluster events are dispatched again by a dedicated thread, not by the thread binding the handler.
+ * While parked cluster events of a type are not handled yet, the new cluster events of this type are parked as well,
+ * so the cluster events of a type are handled in their arrival order, including around the handler binding.
  */
 public class EventHandlerServiceRegistry<E extends Event> implements EventHandlerRegistry<E> {
 
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventHandlerServiceRegistry.class);
+
+    public static final long DEFAULT_PARKING_TTL = 10000;
+    public static final int DEFAULT_MAX_PARKED = 1000;
+
     private Map<Class,EventHandler> eventHandlerMap = new ConcurrentHashMap<Class,EventHandler>();
+    private ConcurrentMap<Class,Parking<E>> parkedEvents = new ConcurrentHashMap<Class,Parking<E>>();
+
+    private long parkingTtl = DEFAULT_PARKING_TTL;
+    private int maxParked = DEFAULT_MAX_PARKED;
+    private EventMetrics metrics;
+
+    private HashedWheelTimer timer;
+    private ExecutorService drainer;
+
+    private final AtomicLong parkedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public void init() {
+        timer = new HashedWheelTimer("Cellar parked events timeout", 100, TimeUnit.MILLISECONDS, 512);
+        drainer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Cellar parked events");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (metrics != null) {
+            metrics.registerGauge("dispatcher.parked", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getParkedSize();
+                }
+            });
+            metrics.registerGauge("dispatcher.parked.total", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getParkedCount();
+                }
+            });
+            metrics.registerGauge("dispatcher.expired", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getExpiredCount();
+                }
+            });
+            metrics.registerGauge("dispatcher.parked.dropped", new Gauge() {
+                @Override
+                public long getValue() {
+                    return getDroppedCount();
+                }
+            });
+        }
+    }
+
+    public void destroy() {
+        if (metrics != null) {
+            metrics.unregisterGauge("dispatcher.parked");
+            metrics.unregisterGauge("dispatcher.parked.total");
+            metrics.unregisterGauge("dispatcher.expired");
+            metrics.unregisterGauge("dispatcher.parked.dropped");
+        }
+        if (drainer != null) {
+            drainer.shutdownNow();
+            drainer = null;
+        }
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+        parkedEvents.clear();
+    }
 
     /**
      * Return the appropriate cluster {@code EventHandler} found inside the cluster {@code HandlerRegistry}.
@@ -33,14 +131,67 @@ public class EventHandlerServiceRegistry<E extends Event> implements EventHandle
     public EventHandler<E> getHandler(E event) {
         if (event != null) {
             Class clazz = event.getClass();
+            Parking<E> parking = parkedEvents.get(clazz);
+            if (parking != null && !parking.release(event)) {
+                // cluster events of the same type parked before this one are not handled yet, park it behind them
+                return null;
+            }
             return eventHandlerMap.get(clazz);
         }
         return null;
     }
 
+    /**
+     * Park a cluster {@code Event} until a handler for its type is bound.
+     * If max parked events of the same type are already parked, the oldest one is dropped.
+     *
+     * @param event the cluster event to park.
+     * @param dispatcher the cluster event dispatcher to use when the handler is bound.
+     * @return true if the cluster event has been parked, false else.
+     */
+    @Override
+    public boolean park(E event, EventDispatcher<E> dispatcher) {
+        HashedWheelTimer timer = this.timer;
+        if (event == null || dispatcher == null || parkingTtl <= 0 || maxParked <= 0 || timer == null) {
+            return false;
+        }
+        Class clazz = event.getClass();
+        Parking<E> parking = parkedEvents.get(clazz);
+        if (parking == null) {
+            parking = new Parking<E>(maxParked);
+            Parking<E> existing = parkedEvents.putIfAbsent(clazz, parking);
+            if (existing != null) {
+                parking = existing;
+            }
+        }
+        final ParkedEvent<E> parked = new ParkedEvent<E>(event, dispatcher, System.currentTimeMillis() + parkingTtl);
+        final BlockingQueue<ParkedEvent<E>> parkingQueue = parking.queue;
+        while (!parkingQueue.offer(parked)) {
+            ParkedEvent<E> oldest = parkingQueue.poll();
+            if (oldest != null) {
+                drop(oldest);
+            }
+        }
+        parkedCount.incrementAndGet();
+        parked.timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (parkingQueue.remove(parked)) {
+                    expire(parked);
+                }
+            }
+        }, parkingTtl, TimeUnit.MILLISECONDS);
+        // the handler may have been bound in the meantime
+        if (eventHandlerMap.containsKey(clazz)) {
+            scheduleDrain(clazz);
+        }
+        return true;
+    }
+
     public void bind(EventHandler handler) {
         if(handler != null && handler.getType() != null) {
             eventHandlerMap.put(handler.getType(),handler);
+            scheduleDrain(handler.getType());
         }
     }
 
@@ -50,4 +201,209 @@ public class EventHandlerServiceRegistry<E extends Event> implements EventHandle
         }
     }
 
+    /**
+     * Dispatch again the parked cluster events of a given type, on the drainer thread.
+     *
+     * @param clazz the cluster event type.
+     */
+    private void scheduleDrain(final Class clazz) {
+        ExecutorService drainer = this.drainer;
+        if (drainer == null || !parkedEvents.containsKey(clazz)) {
+            return;
+        }
+        try {
+            drainer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(clazz);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the registry is stopping
+        }
+    }
+
+    /**
+     * Dispatch again the parked cluster events of a given type, in their parking order.
+     * The new cluster events of this type are parked until the dispatched ones are handled.
+     *
+     * @param clazz the cluster event type.
+     */
+    private void drain(Class clazz) {
+        Parking<E> parking = parkedEvents.get(clazz);
+        if (parking == null) {
+            return;
+        }
+        List<ParkedEvent<E>> released = new ArrayList<ParkedEvent<E>>();
+        synchronized (parking) {
+            long now = System.currentTimeMillis();
+            ParkedEvent<E> parked;
+            while ((parked = parking.queue.poll()) != null) {
+                if (parked.timeout != null) {
+                    parked.timeout.cancel();
+                }
+                if (parked.isExpired(now)) {
+                    expire(parked);
+                } else {
+                    parking.released(parked.event, now + parkingTtl);
+                    released.add(parked);
+                }
+            }
+        }
+        // dispatched out of the lock, the dispatcher may wait for room in its queue
+        for (ParkedEvent<E> parked : released) {
+            parked.dispatcher.dispatch(parked.event);
+        }
+    }
+
+    private void expire(ParkedEvent<E> parked) {
+        expiredCount.incrementAndGet();
+        LOGGER.warn("Failed to retrieve handler for cluster event {}", parked.event.getClass());
+    }
+
+    private void drop(ParkedEvent<E> parked) {
+        if (parked.timeout != null) {
+            parked.timeout.cancel();
+        }
+        droppedCount.incrementAndGet();
+        LOGGER.warn("Too many cluster events {} parked, dropping the oldest one", parked.event.getClass());
+    }
+
+    /**
+     * Get the number of cluster events currently parked.
+     *
+     * @return the number of parked cluster events.
+     */
+    public int getParkedSize() {
+        int size = 0;
+        for (Parking<E> parking : parkedEvents.values()) {
+            size += parking.queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the total number of cluster events parked.
+     *
+     * @return the number of cluster events parked since the registry start.
+     */
+    public long getParkedCount() {
+        return parkedCount.get();
+    }
+
+    /**
+     * Get the total number of parked cluster events expired before a handler was bound.
+     *
+     * @return the number of expired cluster events.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Get the total number of parked cluster events dropped because too many events of the same type were parked.
+     *
+     * @return the number of dropped cluster events.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getParkingTtl() {
+        return parkingTtl;
+    }
+
+    public void setParkingTtl(long parkingTtl) {
+        this.parkingTtl = parkingTtl;
+    }
+
+    public int getMaxParked() {
+        return maxParked;
+    }
+
+    public void setMaxParked(int maxParked) {
+        this.maxParked = maxParked;
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * The parked cluster events of a type, and the ones dispatched again but not handled yet.
+     */
+    private static class Parking<E extends Event> {
+
+        private final BlockingQueue<ParkedEvent<E>> queue;
+        // dispatched again, with the time after which they are considered lost by the dispatcher
+        private final Map<E, Long> released = new IdentityHashMap<E, Long>();
+        private volatile int releasedSize;
+
+        Parking(int maxParked) {
+            this.queue = new LinkedBlockingQueue<ParkedEvent<E>>(maxParked);
+        }
+
+        /**
+         * Check if a cluster event can be handled: it has been dispatched again by the drain, or no cluster event
+         * of its type is waiting.
+         *
+         * @param event the cluster event to handle.
+         * @return true if the cluster event can be handled, false if it has to be parked.
+         */
+        boolean release(E event) {
+            if (releasedSize == 0 && queue.isEmpty()) {
+                // nothing waiting, no lock
+                return true;
+            }
+            synchronized (this) {
+                try {
+                    if (released.remove(event) != null) {
+                        return true;
+                    }
+                    long now = System.currentTimeMillis();
+                    for (Iterator<Long> iterator = released.values().iterator(); iterator.hasNext(); ) {
+                        if (iterator.next() < now) {
+                            iterator.remove();
+                        }
+                    }
+                    return queue.isEmpty() && released.isEmpty();
+                } finally {
+                    releasedSize = released.size();
+                }
+            }
+        }
+
+        synchronized void released(E event, long expiration) {
+            released.put(event, expiration);
+            releasedSize = released.size();
+        }
+
+    }
+
+    /**
+     * A cluster event waiting for its handler.
+     */
+    private static class ParkedEvent<E extends Event> {
+
+        private final E event;
+        private final EventDispatcher<E> dispatcher;
+        private final long expiration;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        ParkedEvent(E event, EventDispatcher<E> dispatcher, long expiration) {
+            this.event = event;
+            this.dispatcher = dispatcher;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(long now) {
+            return now > expiration;
+        }
+
+    }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.MapListener;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.Switch;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Event producer sending the cluster events of a cluster group on the channel of this group.
+ * Only the members of the group consume the group channel, so the other nodes don't receive its traffic.
+ * Commands, results, events with explicit destinations and events without cluster group go to the default producer.
+ * The producer of a cluster group is destroyed (flushing its pending events) when the group is deleted.
+ */
+public class GroupRoutingEventProducer<E extends Event> implements EventProducer<E>, MapListener<String, Object> {
+
+    private EventProducer<Event> defaultProducer;
+    private EventTransportFactory eventTransportFactory;
+    private ClusterManager clusterManager;
+
+    private String groupListenerId;
+
+    private final ConcurrentMap<String, EventProducer<Event>> groupProducers = new ConcurrentHashMap<String, EventProducer<Event>>();
+
+    public void init() {
+        if (clusterManager != null) {
+            groupListenerId = clusterManager.addMapListener(Configurations.GROUP, this);
+        }
+    }
+
+    public void destroy() {
+        if (groupListenerId != null) {
+            clusterManager.removeMapListener(Configurations.GROUP, groupListenerId);
+            groupListenerId = null;
+        }
+        removeGroups();
+    }
+
+    @Override
+    public void produce(E event) {
+        getProducer(event).produce(event);
+    }
+
+    /**
+     * Get the producer to use for a cluster event.
+     *
+     * @param event the cluster event.
+     * @return the producer of the event cluster group, or the default producer.
+     */
+    @SuppressWarnings("unchecked")
+    protected EventProducer<Event> getProducer(Event event) {
+        String groupName = event.getSourceGroupName();
+        if (groupName == null || eventTransportFactory == null || event.getDestination() != null
+                || event instanceof Command || event instanceof Result) {
+            return defaultProducer;
+        }
+        EventProducer<Event> producer = groupProducers.get(groupName);
+        if (producer == null) {
+            producer = eventTransportFactory.getEventProducer(groupName, Boolean.TRUE);
+            EventProducer<Event> existing = groupProducers.putIfAbsent(groupName, producer);
+            if (existing != null) {
+                producer = existing;
+            }
+        }
+        return producer;
+    }
+
+    /**
+     * Destroy the producer of a cluster group, sending its pending events.
+     *
+     * @param groupName the cluster group name.
+     */
+    public void removeGroup(String groupName) {
+        destroy(groupProducers.remove(groupName));
+    }
+
+    private void removeGroups() {
+        for (Iterator<EventProducer<Event>> iterator = groupProducers.values().iterator(); iterator.hasNext(); ) {
+            EventProducer<Event> producer = iterator.next();
+            iterator.remove();
+            destroy(producer);
+        }
+    }
+
+    private void destroy(EventProducer<Event> producer) {
+        if (producer instanceof BatchingEventProducer) {
+            ((BatchingEventProducer) producer).destroy();
+        }
+    }
+
+    @Override
+    public void entryUpdated(String groupName, Object group) {
+        // the producer of a new group is created on its first event
+    }
+
+    @Override
+    public void entryRemoved(String groupName) {
+        removeGroup(groupName);
+    }
+
+    @Override
+    public void mapCleared() {
+        removeGroups();
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return defaultProducer.getSwitch();
+    }
+
+    public EventProducer<Event> getDefaultProducer() {
+        return defaultProducer;
+    }
+
+    public void setDefaultProducer(EventProducer<Event> defaultProducer) {
+        this.defaultProducer = defaultProducer;
+    }
+
+    public EventTransportFactory getEventTransportFactory() {
+        return eventTransportFactory;
+    }
+
+    public void setEventTransportFactory(EventTransportFactory eventTransportFactory) {
+        this.eventTransportFactory = eventTransportFactory;
+    }
+
+    public ClusterManager getClusterManager() {
+        return clusterManager;
+    }
+
+    public void setClusterManager(ClusterManager clusterManager) {
+        this.clusterManager = clusterManager;
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor using a fixed number of lanes, each lane having its own worker thread and queue.
+ * Tasks submitted with the same key always go to the same lane, so they are executed in submission order,
+ * whereas tasks with different keys are executed in parallel.
+ */
+public class KeyedDispatchExecutor {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(KeyedDispatchExecutor.class);
+
+    private final Lane[] lanes;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong peakQueueSize = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public KeyedDispatchExecutor(String name, int lanes, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("The number of lanes must be greater than 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The queue capacity must be greater than 0");
+        }
+        this.overflowPolicy = (overflowPolicy != null) ? overflowPolicy : OverflowPolicy.GROW;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(name + "-" + i, queueCapacity, this.overflowPolicy == OverflowPolicy.GROW);
+            this.lanes[i].start();
+        }
+    }
+
+    /**
+     * Execute a task on the lane of the given key.
+     *
+     * @param key the task ordering key.
+     * @param task the task to execute.
+     */
+    public void execute(int key, Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("Executor is shutdown");
+        }
+        Lane lane = lanes[(key & Integer.MAX_VALUE) % lanes.length];
+        if (overflowPolicy == OverflowPolicy.GROW) {
+            int size = lane.queue.size();
+            if (size >= lane.capacity) {
+                rejectedCount.incrementAndGet();
+                updatePeak(size + 1);
+            }
+            lane.queue.offer(task);
+            return;
+        }
+        if (lane.queue.offer(task)) {
+            return;
+        }
+        rejectedCount.incrementAndGet();
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!lane.queue.offer(task)) {
+                    if (lane.queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            case CALLER_RUNS:
+                task.run();
+                break;
+            default:
+                if (Thread.currentThread() == lane) {
+                    // the lane can't wait for itself
+                    task.run();
+                    break;
+                }
+                try {
+                    lane.queue.put(task);
+                } catch (InterruptedException e) {
+                    droppedCount.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    LOGGER.warn("Interrupted while waiting to dispatch a task");
+                }
+        }
+    }
+
+    private void updatePeak(long size) {
+        long peak = peakQueueSize.get();
+        while (size > peak && !peakQueueSize.compareAndSet(peak, size)) {
+            peak = peakQueueSize.get();
+        }
+    }
+
+    /**
+     * Stop the lanes worker threads. The pending tasks are discarded.
+     */
+    public void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+    }
+
+    /**
+     * Get the number of pending tasks in all lanes.
+     *
+     * @return the number of pending tasks.
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of tasks submitted while their lane queue was full.
+     *
+     * @return the number of rejected tasks.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Get the number of tasks discarded due to the overflow policy.
+     *
+     * @return the number of dropped tasks.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the largest number of pending tasks of a lane grown beyond its capacity.
+     *
+     * @return the peak lane queue size, 0 if no lane exceeded its capacity.
+     */
+    public long getPeakQueueSize() {
+        return peakQueueSize.get();
+    }
+
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * A lane: a worker thread consuming a queue, bounded unless it grows beyond its capacity.
+     */
+    private class Lane extends Thread {
+
+        private final BlockingQueue<Runnable> queue;
+        private final int capacity;
+
+        Lane(String name, int capacity, boolean grow) {
+            super(name);
+            this.capacity = capacity;
+            this.queue = grow ? new LinkedBlockingQueue<Runnable>() : new ArrayBlockingQueue<Runnable>(capacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.error("Error while executing task", t);
+                }
+            }
+        }
+
+    }
+
+}
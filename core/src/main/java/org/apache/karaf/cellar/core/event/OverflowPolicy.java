@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+/**
+ * Policy applied when a cluster event is dispatched while the dispatch queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The dispatching thread waits until there is room in the queue.
+     * The dispatching thread can be a Hazelcast listener thread, blocking the delivery of the other cluster events.
+     */
+    BLOCK,
+
+    /**
+     * The oldest pending cluster event of the queue is dropped, whatever its key.
+     * The cluster events are lost, this policy is only suitable if the lost events are synchronized again later.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The cluster event is handled by the dispatching thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The queue grows beyond its capacity: the cluster event is neither lost nor blocks the dispatching thread.
+     * The capacity is only the threshold above which the cluster events are counted as rejected. This is the default
+     * policy.
+     */
+    GROW;
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.control.Switch;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Event producer sending the cluster events with a destination (commands, results, pings, ...) to the inbox channel
+ * of each destination node, instead of broadcasting them to all the nodes.
+ * The events without destination go to the delegate producer.
+ */
+public class UnicastEventProducer<E extends Event> implements EventProducer<E> {
+
+    public static final String INBOX = "inbox";
+
+    private EventProducer<Event> delegate;
+    private EventTransportFactory eventTransportFactory;
+
+    private final ConcurrentMap<String, EventProducer<Event>> inboxProducers = new ConcurrentHashMap<String, EventProducer<Event>>();
+
+    /**
+     * Get the name of the inbox channel of a node.
+     *
+     * @param node the cluster node.
+     * @return the inbox channel name.
+     */
+    public static String getInboxName(Node node) {
+        return INBOX + Configurations.SEPARATOR + node.getId();
+    }
+
+    @Override
+    public void produce(E event) {
+        Set<Node> destination = event.getDestination();
+        if (destination == null || destination.isEmpty() || eventTransportFactory == null) {
+            delegate.produce(event);
+            return;
+        }
+        for (Node node : destination) {
+            getInboxProducer(node).produce(event);
+        }
+    }
+
+    /**
+     * Get the producer of the inbox channel of a node.
+     *
+     * @param node the cluster node.
+     * @return the inbox producer.
+     */
+    @SuppressWarnings("unchecked")
+    protected EventProducer<Event> getInboxProducer(Node node) {
+        EventProducer<Event> producer = inboxProducers.get(node.getId());
+        if (producer == null) {
+            producer = eventTransportFactory.getEventProducer(getInboxName(node), Boolean.TRUE);
+            EventProducer<Event> existing = inboxProducers.putIfAbsent(node.getId(), producer);
+            if (existing != null) {
+                producer = existing;
+            }
+        }
+        return producer;
+    }
+
+    /**
+     * Forget the inbox producer of a node, when the node leaves the cluster.
+     *
+     * @param node the cluster node.
+     */
+    public void removeNode(Node node) {
+        inboxProducers.remove(node.getId());
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return delegate.getSwitch();
+    }
+
+    public EventProducer<Event> getDelegate() {
+        return delegate;
+    }
+
+    public void setDelegate(EventProducer<Event> delegate) {
+        this.delegate = delegate;
+    }
+
+    public EventTransportFactory getEventTransportFactory() {
+        return eventTransportFactory;
+    }
+
+    public void setEventTransportFactory(EventTransportFactory eventTransportFactory) {
+        this.eventTransportFactory = eventTransportFactory;
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.filter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiled whitelist and blacklist of a cluster group, for a resource category and an event type.
+ * The filters are built from the cluster groups configuration: they are stamped with the configuration generation
+ * when built, and considered as stale as soon as the cluster groups configuration changes.
+ */
+public class ResourceFilter {
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private final ResourceMatcher whiteList;
+    private final ResourceMatcher blackList;
+    private final long generation;
+
+    /**
+     * Build a resource filter.
+     *
+     * @param whiteList the whitelist entries (can be null).
+     * @param blackList the blacklist entries (can be null).
+     * @param generation the configuration generation read before loading the entries.
+     */
+    public ResourceFilter(Collection<String> whiteList, Collection<String> blackList, long generation) {
+        this.whiteList = ResourceMatcher.compile(whiteList);
+        this.blackList = ResourceMatcher.compile(blackList);
+        this.generation = generation;
+    }
+
+    /**
+     * Check if a resource is allowed.
+     * If the whitelist is empty, all resources are accepted, else the resource has to match a whitelist entry.
+     * A resource matching a blacklist entry is never allowed.
+     *
+     * @param resource the resource name.
+     * @return true if the resource is allowed, false else.
+     */
+    public boolean isAllowed(String resource) {
+        if (!whiteList.isEmpty() && !whiteList.matches(resource)) {
+            return false;
+        }
+        return !blackList.matches(resource);
+    }
+
+    /**
+     * Check if the filter has been built with the current cluster groups configuration.
+     *
+     * @return true if the filter is up to date, false else.
+     */
+    public boolean isCurrent() {
+        return generation == GENERATION.get();
+    }
+
+    /**
+     * Get the current cluster groups configuration generation.
+     *
+     * @return the current generation.
+     */
+    public static long currentGeneration() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Mark all the filters as stale, they will be rebuilt on the next check.
+     */
+    public static void invalidateAll() {
+        GENERATION.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.filter;
+
+import org.apache.karaf.cellar.core.Configurations;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+
+/**
+ * Invalidate the compiled resource filters when the cluster groups configuration changes.
+ */
+public class ResourceFilterListener implements ConfigurationListener {
+
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.GROUP.equals(event.getPid())) {
+            ResourceFilter.invalidateAll();
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a cluster group whitelist or blacklist.
+ * The entries are wildcard patterns: a '*' matches any sequence of characters and the other characters keep their
+ * regex meaning (a '.' matches any character). Instead of compiling a regex for each entry on each check, the
+ * entries are sorted once:
+ * <ul>
+ *     <li>plain literals are looked up in a hash set,</li>
+ *     <li>entries only using '.' and a trailing '*' are stored in a trie, walked once per check,</li>
+ *     <li>the other entries are compiled to a regex.</li>
+ * </ul>
+ * A resource matches when at least one entry matches, exactly as the former regex loop.
+ */
+public class ResourceMatcher {
+
+    private static final ResourceMatcher EMPTY = new ResourceMatcher();
+
+    private static final String REGEX_CHARS = "\\^$.|?+*()[]{}";
+
+    private final Set<String> literals = new HashSet<String>();
+    private final Node root = new Node();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+    private boolean empty = true;
+    private boolean trie = false;
+
+    private ResourceMatcher() {
+    }
+
+    /**
+     * Compile a set of wildcard patterns.
+     *
+     * @param entries the list entries (can be null).
+     * @return the compiled matcher.
+     */
+    public static ResourceMatcher compile(Collection<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return EMPTY;
+        }
+        ResourceMatcher matcher = new ResourceMatcher();
+        for (String entry : entries) {
+            if (entry != null) {
+                matcher.add(entry);
+            }
+        }
+        return matcher;
+    }
+
+    private void add(String entry) {
+        empty = false;
+        int length = entry.length();
+        boolean prefix = length > 0 && entry.charAt(length - 1) == '*';
+        int end = prefix ? length - 1 : length;
+        boolean dot = false;
+        for (int i = 0; i < end; i++) {
+            char c = entry.charAt(i);
+            if (c == '.') {
+                dot = true;
+            } else if (REGEX_CHARS.indexOf(c) >= 0) {
+                // real regex, keep the wildcard to regex translation
+                patterns.add(Pattern.compile(entry.replace("*", ".*")));
+                return;
+            }
+        }
+        if (!prefix && !dot) {
+            literals.add(entry);
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < end; i++) {
+            node = node.child(entry.charAt(i));
+        }
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.terminal = true;
+        }
+        trie = true;
+    }
+
+    /**
+     * Check if the list doesn't contain any entry.
+     *
+     * @return true if the list is empty, false else.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Check if a resource matches at least one entry of the list.
+     *
+     * @param resource the resource name.
+     * @return true if the resource matches, false else.
+     */
+    public boolean matches(String resource) {
+        if (empty) {
+            return false;
+        }
+        if (literals.contains(resource)) {
+            return true;
+        }
+        if (trie && root.matches(resource, 0)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(resource).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trie node. The '.' children match any character.
+     */
+    private static class Node {
+
+        private Map<Character, Node> children;
+        private boolean terminal;
+        private boolean prefix;
+
+        private Node child(char c) {
+            if (children == null) {
+                children = new HashMap<Character, Node>(4);
+            }
+            Node child = children.get(c);
+            if (child == null) {
+                child = new Node();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        private boolean matches(String resource, int index) {
+            if (prefix && !hasLineTerminator(resource, index)) {
+                return true;
+            }
+            if (index == resource.length()) {
+                return terminal;
+            }
+            if (children == null) {
+                return false;
+            }
+            char c = resource.charAt(index);
+            Node next = children.get(c);
+            if (next != null && next.matches(resource, index + 1)) {
+                return true;
+            }
+            if (c != '.' && !isLineTerminator(c)) {
+                next = children.get('.');
+                return next != null && next.matches(resource, index + 1);
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * As in a regex without the DOTALL flag, '.' (and so '*') doesn't match line terminators.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean hasLineTerminator(String resource, int index) {
+        for (int i = index; i < resource.length(); i++) {
+            if (isLineTerminator(resource.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
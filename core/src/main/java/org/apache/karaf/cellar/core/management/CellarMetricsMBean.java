@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.management;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * Describe the operations and attributes of the Cellar Metrics MBean.
+ */
+public interface CellarMetricsMBean {
+
+    /**
+     * Get the statistics of the cluster events on the local node, per pipeline stage, cluster event type and
+     * cluster group. The latencies are in microseconds.
+     *
+     * @return the statistics of the cluster events.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData getStatistics() throws Exception;
+
+    /**
+     * Get the gauges of the cluster event pipeline on the local node, like the dispatcher queue depth.
+     *
+     * @return the gauges of the cluster event pipeline.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData getGauges() throws Exception;
+
+    /**
+     * Clear the statistics of the cluster events on the local node.
+     *
+     * @throws Exception in case of reset failure.
+     */
+    void reset() throws Exception;
+
+}
@@ -29,6 +29,17 @@ public interface CellarNodeMBean {
      */
     long pingNode(String nodeId) throws Exception;
 
+    /**
+     * Ping all the other nodes concurrently and measure the round-trip times (in microseconds).
+     *
+     * @param iterations the number of pings sent to each node.
+     * @param timeout the timeout (in milliseconds) of each ping.
+     * @param allNodes true to measure from every node to every other node, false to measure from the local node only.
+     * @return the round-trip times per couple of nodes.
+     * @throws Exception in case of ping failure.
+     */
+    TabularData latency(int iterations, long timeout, boolean allNodes) throws Exception;
+
     /**
      * Get the list of nodes.
      *
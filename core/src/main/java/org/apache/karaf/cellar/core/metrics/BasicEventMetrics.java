@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.metrics;
+
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Basic implementation of the cluster event pipeline metrics.
+ * The statistics are looked up by cluster event class and cluster group name without allocation, and updated with
+ * atomic counters only, so the metrics can stay enabled in production.
+ */
+public class BasicEventMetrics implements EventMetrics {
+
+    private static final String NO_GROUP = "";
+
+    private final Map<PipelineStage, ConcurrentMap<Class, ConcurrentMap<String, EventStatistics>>> statistics =
+            new EnumMap<PipelineStage, ConcurrentMap<Class, ConcurrentMap<String, EventStatistics>>>(PipelineStage.class);
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    private volatile boolean enabled = true;
+
+    public BasicEventMetrics() {
+        for (PipelineStage stage : PipelineStage.values()) {
+            statistics.put(stage, new ConcurrentHashMap<Class, ConcurrentMap<String, EventStatistics>>());
+        }
+    }
+
+    /**
+     * Record a cluster event at a stage of the pipeline.
+     * For a batch of cluster events, the latency is recorded for the batch, and each event of the batch is counted.
+     *
+     * @param stage the pipeline stage.
+     * @param event the cluster event.
+     * @param duration the latency of the stage in nanoseconds.
+     */
+    @Override
+    public void record(PipelineStage stage, Event event, long duration) {
+        if (!enabled || event == null) {
+            return;
+        }
+        getStatistics(stage, event).record(duration);
+        if (event instanceof EventBatch) {
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                getStatistics(stage, batched).increment();
+            }
+        }
+    }
+
+    @Override
+    public void error(PipelineStage stage, Event event) {
+        if (!enabled || event == null) {
+            return;
+        }
+        getStatistics(stage, event).error();
+    }
+
+    private EventStatistics getStatistics(PipelineStage stage, Event event) {
+        ConcurrentMap<Class, ConcurrentMap<String, EventStatistics>> types = statistics.get(stage);
+        ConcurrentMap<String, EventStatistics> groups = types.get(event.getClass());
+        if (groups == null) {
+            ConcurrentMap<String, EventStatistics> created = new ConcurrentHashMap<String, EventStatistics>();
+            groups = types.putIfAbsent(event.getClass(), created);
+            if (groups == null) {
+                groups = created;
+            }
+        }
+        String group = (event.getSourceGroupName() != null) ? event.getSourceGroupName() : NO_GROUP;
+        EventStatistics eventStatistics = groups.get(group);
+        if (eventStatistics == null) {
+            EventStatistics created = new EventStatistics(stage, event.getClass().getName(), group);
+            eventStatistics = groups.putIfAbsent(group, created);
+            if (eventStatistics == null) {
+                eventStatistics = created;
+            }
+        }
+        return eventStatistics;
+    }
+
+    @Override
+    public void registerGauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public void unregisterGauge(String name) {
+        gauges.remove(name);
+    }
+
+    @Override
+    public List<EventStatistics> getStatistics() {
+        List<EventStatistics> result = new ArrayList<EventStatistics>();
+        for (ConcurrentMap<Class, ConcurrentMap<String, EventStatistics>> types : statistics.values()) {
+            for (ConcurrentMap<String, EventStatistics> groups : types.values()) {
+                result.addAll(groups.values());
+            }
+        }
+        Collections.sort(result, new Comparator<EventStatistics>() {
+            @Override
+            public int compare(EventStatistics s1, EventStatistics s2) {
+                int result = s1.getStage().compareTo(s2.getStage());
+                if (result == 0) {
+                    result = s1.getEventType().compareTo(s2.getEventType());
+                }
+                if (result == 0) {
+                    result = s1.getGroup().compareTo(s2.getGroup());
+                }
+                return result;
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (ConcurrentMap<Class, ConcurrentMap<String, EventStatistics>> types : statistics.values()) {
+            types.clear();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+}
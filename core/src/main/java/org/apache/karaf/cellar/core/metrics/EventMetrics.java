@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.metrics;
+
+import org.apache.karaf.cellar.core.event.Event;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metrics of the cluster event pipeline.
+ * The statistics are kept per cluster event type and per cluster group, for each {@code PipelineStage}.
+ */
+public interface EventMetrics {
+
+    /**
+     * Check if the metrics are collected.
+     *
+     * @return true if the metrics are collected, false else.
+     */
+    boolean isEnabled();
+
+    /**
+     * Record a cluster event at a stage of the pipeline.
+     *
+     * @param stage the pipeline stage.
+     * @param event the cluster event.
+     * @param duration the latency of the stage in nanoseconds.
+     */
+    void record(PipelineStage stage, Event event, long duration);
+
+    /**
+     * Record a failure for a cluster event at a stage of the pipeline.
+     *
+     * @param stage the pipeline stage.
+     * @param event the cluster event.
+     */
+    void error(PipelineStage stage, Event event);
+
+    /**
+     * Register a gauge, like a queue depth.
+     *
+     * @param name the gauge name.
+     * @param gauge the gauge.
+     */
+    void registerGauge(String name, Gauge gauge);
+
+    /**
+     * Unregister a gauge.
+     *
+     * @param name the gauge name.
+     */
+    void unregisterGauge(String name);
+
+    /**
+     * Get the statistics of the cluster events.
+     *
+     * @return the list of statistics, sorted by stage, cluster event type and cluster group.
+     */
+    List<EventStatistics> getStatistics();
+
+    /**
+     * Get the current values of the gauges.
+     *
+     * @return a map of gauge names and values.
+     */
+    Map<String, Long> getGauges();
+
+    /**
+     * Clear the statistics of the cluster events.
+     */
+    void reset();
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a cluster event type, in a cluster group, at a stage of the cluster event pipeline.
+ */
+public class EventStatistics {
+
+    private final PipelineStage stage;
+    private final String eventType;
+    private final String group;
+    private final long since = System.currentTimeMillis();
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public EventStatistics(PipelineStage stage, String eventType, String group) {
+        this.stage = stage;
+        this.eventType = eventType;
+        this.group = group;
+    }
+
+    /**
+     * Count a cluster event and record its latency.
+     *
+     * @param duration the latency in nanoseconds.
+     */
+    public void record(long duration) {
+        count.incrementAndGet();
+        latency.record(duration);
+    }
+
+    /**
+     * Count a cluster event without latency (for instance an event sent in a batch).
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Count a failure.
+     */
+    public void error() {
+        errors.incrementAndGet();
+    }
+
+    public PipelineStage getStage() {
+        return stage;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getSince() {
+        return since;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get the mean rate of cluster events since the statistics have been created.
+     *
+     * @return the number of cluster events per second.
+     */
+    public double getRate() {
+        long elapsed = System.currentTimeMillis() - since;
+        return (elapsed <= 0) ? 0 : count.get() * 1000.0 / elapsed;
+    }
+
+}
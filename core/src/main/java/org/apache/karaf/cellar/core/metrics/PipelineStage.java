@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.metrics;
+
+/**
+ * Stages of the cluster event pipeline measured by the {@code EventMetrics}.
+ */
+public enum PipelineStage {
+
+    /**
+     * Cluster event sent by an event producer.
+     */
+    PRODUCE,
+
+    /**
+     * Cluster event received by an event consumer and handed to the dispatcher.
+     */
+    CONSUME,
+
+    /**
+     * Cluster event waiting in the dispatcher queue.
+     */
+    DISPATCH,
+
+    /**
+     * Cluster event processed by an event handler.
+     */
+    HANDLE
+
+}
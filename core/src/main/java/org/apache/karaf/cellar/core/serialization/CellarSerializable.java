@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import java.io.IOException;
+
+/**
+ * Cluster event written with the Cellar compact binary format instead of the Java serialization.
+ * The class is identified on the wire by its factory id and type id, so no class descriptor is sent.
+ */
+public interface CellarSerializable {
+
+    /**
+     * Get the id of the {@link EventTypeFactory} able to create this type.
+     *
+     * @return the factory id.
+     */
+    public int getFactoryId();
+
+    /**
+     * Get the id of this type in its factory.
+     *
+     * @return the type id.
+     */
+    public int getTypeId();
+
+    /**
+     * Write the state of this object.
+     *
+     * @param out the output to write to.
+     * @throws IOException in case of write failure.
+     */
+    public void writeData(EventOutput out) throws IOException;
+
+    /**
+     * Read the state of this object, in the same order as {@link #writeData(EventOutput)}.
+     *
+     * @param in the input to read from.
+     * @throws IOException in case of read failure.
+     */
+    public void readData(EventInput in) throws IOException;
+
+}
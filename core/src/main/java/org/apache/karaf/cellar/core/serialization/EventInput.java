@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Input used to read {@link CellarSerializable} objects.
+ * It's provided by the cluster transport.
+ */
+public interface EventInput extends DataInput {
+
+    /**
+     * Read a string written by {@link EventOutput#writeString(String)}.
+     *
+     * @return the string, possibly null.
+     * @throws IOException in case of read failure.
+     */
+    public String readString() throws IOException;
+
+    /**
+     * Read a cluster node written by {@link EventOutput#writeNode(Node)}.
+     *
+     * @return the node, possibly null.
+     * @throws IOException in case of read failure.
+     */
+    public Node readNode() throws IOException;
+
+    /**
+     * Read a set of cluster nodes written by {@link EventOutput#writeNodes(Set)}.
+     *
+     * @return the nodes, possibly null.
+     * @throws IOException in case of read failure.
+     */
+    public Set<Node> readNodes() throws IOException;
+
+    /**
+     * Read a cluster group written by {@link EventOutput#writeGroup(Group)}.
+     *
+     * @return the group, possibly null.
+     * @throws IOException in case of read failure.
+     */
+    public Group readGroup() throws IOException;
+
+    /**
+     * Read an object written by {@link EventOutput#writeObject(Object)}.
+     *
+     * @return the object, possibly null.
+     * @throws IOException in case of read failure.
+     */
+    public <T> T readObject() throws IOException;
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Output used to write {@link CellarSerializable} objects.
+ * It's provided by the cluster transport.
+ */
+public interface EventOutput extends DataOutput {
+
+    /**
+     * Write a string, possibly null.
+     *
+     * @param value the string to write.
+     * @throws IOException in case of write failure.
+     */
+    public void writeString(String value) throws IOException;
+
+    /**
+     * Write a cluster node, possibly null.
+     *
+     * @param node the node to write.
+     * @throws IOException in case of write failure.
+     */
+    public void writeNode(Node node) throws IOException;
+
+    /**
+     * Write a set of cluster nodes, possibly null.
+     *
+     * @param nodes the nodes to write.
+     * @throws IOException in case of write failure.
+     */
+    public void writeNodes(Set<Node> nodes) throws IOException;
+
+    /**
+     * Write a cluster group with its members, possibly null.
+     *
+     * @param group the group to write.
+     * @throws IOException in case of write failure.
+     */
+    public void writeGroup(Group group) throws IOException;
+
+    /**
+     * Write any other object using the transport serialization.
+     *
+     * @param object the object to write.
+     * @throws IOException in case of write failure.
+     */
+    public void writeObject(Object object) throws IOException;
+
+}
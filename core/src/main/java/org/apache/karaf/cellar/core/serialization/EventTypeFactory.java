@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+/**
+ * Factory creating empty {@link CellarSerializable} instances from their type id.
+ * Each Cellar module contributing cluster events registers its factory as an OSGi service.
+ *
+ * The factory ids used by Cellar are: 1 core, 2 bundle, 3 config, 4 features, 5 event, 6 obr, 7 dosgi, 8 utils.
+ */
+public interface EventTypeFactory {
+
+    /**
+     * Get the unique id of this factory.
+     *
+     * @return the factory id.
+     */
+    public int getFactoryId();
+
+    /**
+     * Create an empty instance of the given type, ready to be populated by {@link CellarSerializable#readData(EventInput)}.
+     *
+     * @param typeId the type id.
+     * @return the new instance, or null if the type id is unknown.
+     */
+    public CellarSerializable create(int typeId);
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.serialization;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * {@link EventOutput} counting the bytes written instead of writing them.
+ * It estimates the size of a {@link CellarSerializable} event without depending on the cluster transport.
+ * The objects written with {@link #writeObject(Object)} are estimated, other values are counted exactly.
+ */
+public class SizeEstimator implements EventOutput {
+
+    /**
+     * Estimated size of an event not implementing {@link CellarSerializable}.
+     */
+    public static final int DEFAULT_EVENT_SIZE = 1024;
+
+    /**
+     * Estimated size of an object written with {@link #writeObject(Object)} and not otherwise known.
+     */
+    public static final int DEFAULT_OBJECT_SIZE = 128;
+
+    private long size;
+
+    /**
+     * Estimate the serialized size of an object.
+     *
+     * @param object the object.
+     * @return the estimated size in bytes.
+     */
+    public static long estimate(Object object) {
+        if (!(object instanceof CellarSerializable)) {
+            return DEFAULT_EVENT_SIZE;
+        }
+        SizeEstimator estimator = new SizeEstimator();
+        try {
+            estimator.writeObject(object);
+        } catch (IOException e) {
+            // not possible, nothing is written
+        }
+        return estimator.size;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        size += 1;
+        if (value != null) {
+            writeUTF(value);
+        }
+    }
+
+    @Override
+    public void writeNode(Node node) throws IOException {
+        size += 1;
+        if (node != null) {
+            writeUTF(node.getHost());
+            size += 4;
+        }
+    }
+
+    @Override
+    public void writeNodes(Set<Node> nodes) throws IOException {
+        size += 4;
+        if (nodes != null) {
+            for (Node node : nodes) {
+                writeNode(node);
+            }
+        }
+    }
+
+    @Override
+    public void writeGroup(Group group) throws IOException {
+        size += 1;
+        if (group != null) {
+            writeString(group.getName());
+            writeNodes(group.getNodes());
+        }
+    }
+
+    @Override
+    public void writeObject(Object object) throws IOException {
+        // type header
+        size += 4;
+        if (object instanceof CellarSerializable) {
+            size += 4;
+            ((CellarSerializable) object).writeData(this);
+        } else if (object instanceof String) {
+            writeUTF((String) object);
+        } else if (object instanceof byte[]) {
+            size += 4 + ((byte[]) object).length;
+        } else if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            size += 8;
+        } else if (object != null) {
+            size += DEFAULT_OBJECT_SIZE;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        size += 1;
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        size += b.length;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        size += len;
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        size += 1;
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        size += 1;
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        size += 2;
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        size += 2;
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        size += 4;
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        size += 8;
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        size += 4;
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        size += 8;
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        size += s.length();
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        size += 2 * s.length();
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        // length prefix and mostly single byte characters
+        size += 2 + s.length();
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed wheel timer.
+ * The timeouts are stored in a wheel of buckets, a single thread advancing the wheel one bucket per tick and running
+ * the expired tasks. Scheduling and cancelling a timeout are O(1), whatever the number of pending timeouts, and a
+ * cancelled timeout is removed from the wheel on the next tick. The timeouts fire up to one tick late.
+ * <p/>
+ * The tasks are run by the timer thread, so they should not block.
+ */
+public class HashedWheelTimer {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int STOPPED = 2;
+
+    private final String name;
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<Timeout>();
+    private final AtomicInteger state = new AtomicInteger(INIT);
+    private volatile long startTime;
+    private Thread worker;
+
+    /**
+     * Create a timer. The timer thread is started with the first timeout.
+     *
+     * @param name the timer thread name.
+     * @param tickDuration the duration of a tick.
+     * @param unit the tick duration unit.
+     * @param ticksPerWheel the number of buckets in the wheel, rounded up to a power of two.
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ticks per wheel: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedule a task.
+     *
+     * @param task the task to run when the timeout expires.
+     * @param delay the timeout delay.
+     * @param unit the delay unit.
+     * @return the timeout, used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        start();
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + unit.toNanos(Math.max(delay, 0)));
+        additions.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        if (state.get() == STARTED) {
+            return;
+        }
+        synchronized (this) {
+            if (state.get() == STOPPED) {
+                throw new IllegalStateException("Timer " + name + " is stopped");
+            }
+            if (state.get() == INIT) {
+                startTime = System.nanoTime();
+                worker = new Thread(new Worker(), name);
+                worker.setDaemon(true);
+                state.set(STARTED);
+                worker.start();
+            }
+        }
+    }
+
+    /**
+     * Stop the timer. The pending timeouts are dropped.
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            if (state.getAndSet(STOPPED) != STARTED) {
+                return;
+            }
+            thread = worker;
+        }
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Timer thread, advancing the wheel.
+     */
+    private class Worker implements Runnable {
+
+        private long tick = 0;
+
+        @Override
+        public void run() {
+            while (state.get() == STARTED) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                processCancellations();
+                transferAdditions();
+                wheel[(int) (tick & mask)].expire();
+                tick++;
+            }
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            while (true) {
+                long sleep = deadline - (System.nanoTime() - startTime);
+                if (sleep <= 0) {
+                    return true;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (state.get() != STARTED) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void processCancellations() {
+            Timeout timeout;
+            while ((timeout = cancellations.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+
+        private void transferAdditions() {
+            // bound the transfer so a flood of new timeouts doesn't delay the current tick too much
+            for (int i = 0; i < 100000; i++) {
+                Timeout timeout = additions.poll();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.state.get() != Timeout.PENDING) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // only accessed by the timer thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the timeout.
+         *
+         * @return true if the timeout has been cancelled, false if it already expired or was already cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.cancellations.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOGGER.warn("CELLAR: timeout task {} failed", task, t);
+            }
+        }
+
+    }
+
+    /**
+     * Doubly linked list of timeouts, only accessed by the timer thread.
+     */
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+    }
+
+}
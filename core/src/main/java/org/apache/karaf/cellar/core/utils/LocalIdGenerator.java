@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free generator of unique IDs, without any cluster round-trip.
+ * An ID is a prefix, unique in the cluster for this generator, followed by a sequence number. Each thread leases a
+ * block of sequence numbers from a shared counter and then generates IDs from its block without any contention.
+ */
+public class LocalIdGenerator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final String prefix;
+    private final int blockSize;
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final ThreadLocal<long[]> blocks = new ThreadLocal<long[]>();
+
+    /**
+     * Create a generator.
+     *
+     * @param prefix the prefix of the generated IDs, it has to be unique in the cluster.
+     */
+    public LocalIdGenerator(String prefix) {
+        this(prefix, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a generator.
+     *
+     * @param prefix the prefix of the generated IDs, it has to be unique in the cluster.
+     * @param blockSize the number of sequence numbers leased by a thread at once.
+     */
+    public LocalIdGenerator(String prefix, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.prefix = prefix + "-";
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Generate a new unique ID.
+     *
+     * @return the generated ID.
+     */
+    public String generateId() {
+        // block[0] is the next sequence number of the thread, block[1] the end of its block
+        long[] block = blocks.get();
+        if (block == null) {
+            block = new long[2];
+            blocks.set(block);
+        }
+        if (block[0] == block[1]) {
+            long start = nextBlock.getAndAdd(blockSize);
+            block[0] = start;
+            block[1] = start + blockSize;
+        }
+        return prefix + (block[0]++);
+    }
+
+    public String getPrefix() {
+        return prefix.substring(0, prefix.length() - 1);
+    }
+
+}
@@ -17,6 +17,7 @@ import java.io.InputStream;
 import java.util.Dictionary;
 import java.util.Properties;
 import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.cellar.core.filter.ResourceFilter;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -30,6 +31,8 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class CellarSupportTest {
 
@@ -79,4 +82,28 @@ public class CellarSupportTest {
         assertEquals("Instance config should be allowed",expectedResult,result);
     }
 
+    @Test
+    public void testListsLoadedOnce() throws Exception {
+        ConfigurationAdmin cachedConfigurationAdmin = createMock(ConfigurationAdmin.class);
+        Configuration cachedConfiguration = createMock(Configuration.class);
+        // whitelist and blacklist loaded once, then once again after the configuration change
+        expect(cachedConfigurationAdmin.getConfiguration(Configurations.GROUP, null)).andReturn(cachedConfiguration).times(4);
+        expect(cachedConfiguration.getProperties()).andReturn((Dictionary) props).times(4);
+        replay(cachedConfiguration);
+        replay(cachedConfigurationAdmin);
+
+        CellarSupport support = new CellarSupport();
+        support.setConfigurationAdmin(cachedConfigurationAdmin);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(support.isAllowed(defaultGroup, "config", "org.apache.karaf.shell", EventType.INBOUND));
+            assertTrue(support.isAllowed(defaultGroup, "config", "org.apache.karaf.cellar.group", EventType.INBOUND));
+        }
+
+        ResourceFilter.invalidateAll();
+        assertFalse(support.isAllowed(defaultGroup, "config", "org.apache.karaf.cellar.node", EventType.INBOUND));
+
+        verify(cachedConfiguration);
+        verify(cachedConfigurationAdmin);
+    }
+
 }
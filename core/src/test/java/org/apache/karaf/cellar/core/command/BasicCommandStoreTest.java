@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BasicCommandStoreTest {
+
+    private BasicCommandStore store;
+
+    @Before
+    public void setUp() {
+        store = new BasicCommandStore();
+        store.setTickDuration(10);
+        store.setTicksPerWheel(8);
+        store.init();
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        Command<Result> command = command("1", 50);
+        store.add(command);
+        assertEquals(1, store.getPendingCount());
+
+        // the command is completed with no result on expiration
+        assertTrue(command.getFuture().get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals(0, store.getPendingCount());
+        assertEquals(1, store.getExpiredCount());
+        assertEquals(0, store.getCompletedCount());
+    }
+
+    @Test
+    public void testComplete() throws Exception {
+        Command<Result> command = command("2", 50);
+        store.add(command);
+        assertNotNull(store.complete("2"));
+        assertNull(store.complete("2"));
+        assertEquals(0, store.getPendingCount());
+        assertEquals(1, store.getCompletedCount());
+
+        // the expiration has been cancelled
+        Thread.sleep(200);
+        assertEquals(0, store.getExpiredCount());
+        assertTrue(!command.getFuture().isDone());
+    }
+
+    @Test
+    public void testExpireAfterSeveralRounds() throws Exception {
+        // 8 ticks of 10ms per round, so a 250ms timeout needs several wheel rounds
+        Command<Result> command = command("3", 250);
+        long start = System.nanoTime();
+        store.add(command);
+        command.getFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+        assertEquals(1, store.getExpiredCount());
+    }
+
+    private Command<Result> command(String id, long timeout) {
+        Command<Result> command = new Command<Result>(id);
+        command.setTimeout(timeout);
+        return command;
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.Producer;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusteredExecutionContextTest {
+
+    private static final Node NODE1 = new TestNode("node1");
+    private static final Node NODE2 = new TestNode("node2");
+    private static final Node NODE3 = new TestNode("node3");
+
+    private BasicCommandStore commandStore;
+    private ResultHandler<Result> resultHandler;
+    private List<Command> produced;
+    private ClusteredExecutionContext executionContext;
+
+    @Before
+    public void setUp() {
+        commandStore = new BasicCommandStore();
+        resultHandler = new ResultHandler<Result>();
+        resultHandler.setCommandStore(commandStore);
+        produced = new ArrayList<Command>();
+        executionContext = new ClusteredExecutionContext(new Producer<Command>() {
+            private Switch producerSwitch = new BasicSwitch("test");
+
+            @Override
+            public void produce(Command command) {
+                produced.add(command);
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return producerSwitch;
+            }
+        }, commandStore);
+    }
+
+    @Test
+    public void testCompletedByResults() throws Exception {
+        Command<Result> command = command("1", 10000, NODE1, NODE2);
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+        final AtomicInteger completions = new AtomicInteger();
+        future.addCallback(new CommandCallback<Result>() {
+            @Override
+            public void onComplete(Map<Node, Result> results) {
+                completions.incrementAndGet();
+            }
+
+            @Override
+            public void onCancel() {
+            }
+        });
+        assertEquals(1, produced.size());
+        assertFalse(future.isDone());
+        assertTrue(commandStore.getPending().containsKey("1"));
+
+        resultHandler.handle(result("1", NODE1));
+        assertFalse(future.isDone());
+        resultHandler.handle(result("1", NODE2));
+        assertTrue(future.isDone());
+        assertEquals(1, completions.get());
+        assertEquals(2, future.get().size());
+        assertFalse(commandStore.getPending().containsKey("1"));
+
+        // late results are ignored
+        resultHandler.handle(result("1", NODE2));
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testCompletedByTimeoutWithPartialResults() throws Exception {
+        Command<Result> command = command("2", 200, NODE1, NODE2);
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+        resultHandler.handle(result("2", NODE1));
+
+        Map<Node, Result> results = future.get(5, TimeUnit.SECONDS);
+        assertEquals(1, results.size());
+        assertTrue(results.containsKey(NODE1));
+        assertFalse(commandStore.getPending().containsKey("2"));
+    }
+
+    @Test
+    public void testBlockingExecute() throws Exception {
+        Command<Result> command = command("3", 200, NODE1);
+        long start = System.currentTimeMillis();
+        Map<Node, Result> results = executionContext.execute(command);
+        assertTrue(results.isEmpty());
+        assertTrue(System.currentTimeMillis() - start >= 200);
+        assertTrue(commandStore.getPending().isEmpty());
+    }
+
+    @Test
+    public void testQuorumWithResultCallback() throws Exception {
+        Command<Result> command = command("4", 10000, NODE1, NODE2, NODE3);
+        command.setCompletionPolicy(CompletionPolicy.quorum());
+        final List<Node> received = new ArrayList<Node>();
+        command.setResultCallback(new ResultCallback<Result>() {
+            @Override
+            public void onResult(Result result) {
+                received.add(result.getSourceNode());
+            }
+        });
+        CommandFuture<Result> future = executionContext.executeAsync(command);
+
+        resultHandler.handle(result("4", NODE2));
+        assertEquals(Arrays.asList(NODE2), received);
+        assertFalse(future.isDone());
+        resultHandler.handle(result("4", NODE3));
+        assertEquals(Arrays.asList(NODE2, NODE3), received);
+        assertTrue(future.isDone());
+        assertEquals(2, future.get().size());
+        assertEquals(1, commandStore.getCompletedCount());
+    }
+
+    @Test
+    public void testCompletionPolicies() {
+        assertFalse(CompletionPolicy.all().isComplete(2, 3));
+        assertTrue(CompletionPolicy.all().isComplete(3, 3));
+        assertTrue(CompletionPolicy.all().isComplete(1, -1));
+        assertTrue(CompletionPolicy.any().isComplete(1, 3));
+        assertFalse(CompletionPolicy.quorum().isComplete(1, 3));
+        assertTrue(CompletionPolicy.quorum().isComplete(2, 3));
+        assertFalse(CompletionPolicy.quorum().isComplete(2, 4));
+        assertTrue(CompletionPolicy.quorum().isComplete(3, 4));
+        assertFalse(CompletionPolicy.first(2).isComplete(1, 3));
+        assertTrue(CompletionPolicy.first(2).isComplete(2, 3));
+        assertTrue(CompletionPolicy.first(5).isComplete(3, 3));
+        assertFalse(CompletionPolicy.first(2).isComplete(1, -1));
+    }
+
+    private Command<Result> command(String id, long timeout, Node... destination) {
+        Command<Result> command = new Command<Result>(id);
+        command.setTimeout(timeout);
+        command.setDestination(new HashSet<Node>(Arrays.asList(destination)));
+        return command;
+    }
+
+    private Result result(String id, Node node) {
+        Result result = new Result(id);
+        result.setSourceNode(node);
+        return result;
+    }
+
+    private static class TestNode implements Node {
+
+        private final String id;
+
+        TestNode(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getHost() {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return 5701;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestNode && id.equals(((TestNode) o).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.control;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import org.apache.karaf.cellar.core.Configurations;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.junit.Assert.assertEquals;
+
+public class BasicSwitchRegistryTest {
+
+    ConfigurationAdmin configurationAdmin = createMock(ConfigurationAdmin.class);
+    Configuration configuration = createMock(Configuration.class);
+    Dictionary<String, Object> properties = new Hashtable<String, Object>();
+
+    BasicSwitchRegistry registry = new BasicSwitchRegistry();
+
+    @Before
+    public void setUp() throws Exception {
+        properties.put(Configurations.PRODUCER, "true");
+        properties.put(Configurations.CONSUMER, "false");
+        properties.put("bundle.listener", "true");
+        properties.put("config.listener", "false");
+        properties.put("handler.org.apache.karaf.cellar.bundle.BundleEventHandler", "true");
+        properties.put("handler.org.apache.karaf.cellar.config.ConfigurationEventHandler", "false");
+        expect(configurationAdmin.getConfiguration(Configurations.NODE, null)).andReturn(configuration).anyTimes();
+        expect(configuration.getProperties()).andReturn(properties).anyTimes();
+        replay(configuration);
+        replay(configurationAdmin);
+        registry.setConfigurationAdmin(configurationAdmin);
+        registry.init();
+    }
+
+    @Test
+    public void testStatus() {
+        assertEquals(SwitchStatus.ON, registry.getProducerStatus());
+        assertEquals(SwitchStatus.OFF, registry.getConsumerStatus());
+        assertEquals(SwitchStatus.ON, registry.getListenerStatus("bundle"));
+        assertEquals(SwitchStatus.OFF, registry.getListenerStatus("config"));
+        assertEquals(SwitchStatus.OFF, registry.getListenerStatus("feature"));
+        assertEquals(SwitchStatus.ON, registry.getHandlerStatus("org.apache.karaf.cellar.bundle.BundleEventHandler"));
+        assertEquals(SwitchStatus.OFF, registry.getHandlerStatus("org.apache.karaf.cellar.config.ConfigurationEventHandler"));
+        assertEquals(SwitchStatus.OFF, registry.getHandlerStatus("org.apache.karaf.cellar.features.FeaturesEventHandler"));
+    }
+
+    @Test
+    public void testConfigurationEvent() {
+        properties.put(Configurations.CONSUMER, "true");
+        properties.put("handler.org.apache.karaf.cellar.bundle.BundleEventHandler", "false");
+
+        // the switches are not reloaded until the node configuration event
+        assertEquals(SwitchStatus.OFF, registry.getConsumerStatus());
+
+        ConfigurationEvent event = createMock(ConfigurationEvent.class);
+        expect(event.getPid()).andReturn(Configurations.NODE).anyTimes();
+        replay(event);
+        registry.configurationEvent(event);
+
+        assertEquals(SwitchStatus.ON, registry.getConsumerStatus());
+        assertEquals(SwitchStatus.OFF, registry.getHandlerStatus("org.apache.karaf.cellar.bundle.BundleEventHandler"));
+    }
+
+    @Test
+    public void testNoConfiguration() {
+        reset(configuration);
+        expect(configuration.getProperties()).andReturn(null).anyTimes();
+        replay(configuration);
+        registry.refresh();
+
+        assertEquals(SwitchStatus.ON, registry.getProducerStatus());
+        assertEquals(SwitchStatus.ON, registry.getConsumerStatus());
+        assertEquals(SwitchStatus.ON, registry.getHandlerStatus("org.apache.karaf.cellar.bundle.BundleEventHandler"));
+        assertEquals(SwitchStatus.OFF, registry.getListenerStatus("bundle"));
+    }
+
+}
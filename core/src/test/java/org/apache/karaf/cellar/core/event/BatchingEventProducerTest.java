@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingEventProducerTest {
+
+    private CollectingProducer delegate;
+    private BatchingEventProducer<Event> producer;
+
+    @Before
+    public void setUp() {
+        delegate = new CollectingProducer();
+        producer = new BatchingEventProducer<Event>();
+        producer.setDelegate(delegate);
+        producer.setMaxEvents(3);
+        producer.setLinger(60000);
+        producer.init();
+    }
+
+    @After
+    public void tearDown() {
+        producer.destroy();
+    }
+
+    @Test
+    public void testFlushOnMaxEvents() {
+        producer.produce(new Event("1"));
+        producer.produce(new Event("2"));
+        assertEquals(0, delegate.produced.size());
+        producer.produce(new Event("3"));
+        assertEquals(1, delegate.produced.size());
+        EventBatch batch = (EventBatch) delegate.produced.get(0);
+        assertEquals(3, batch.getEvents().size());
+        assertEquals("1", batch.getEvents().get(0).getId());
+        assertEquals("3", batch.getEvents().get(2).getId());
+        assertEquals(1, producer.getBatchCount());
+        assertEquals(3, producer.getBatchedEventCount());
+    }
+
+    @Test
+    public void testFlushOnMaxBytes() {
+        producer.setMaxEvents(100);
+        producer.setMaxBytes(1);
+        producer.produce(new Event("1"));
+        // a single event is sent without envelope
+        assertEquals(1, delegate.produced.size());
+        assertEquals("1", delegate.produced.get(0).getId());
+    }
+
+    @Test
+    public void testFlushOnLinger() throws Exception {
+        producer.setLinger(10);
+        producer.produce(new Event("1"));
+        producer.produce(new Event("2"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delegate.produced.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, delegate.produced.size());
+        assertEquals(2, ((EventBatch) delegate.produced.get(0)).getEvents().size());
+    }
+
+    @Test
+    public void testCommandsAndResultsAreNotBatched() {
+        producer.produce(new Event("1"));
+        producer.produce(new Command<Result>("2"));
+        producer.produce(new Result("3"));
+        assertEquals(3, delegate.produced.size());
+        assertEquals("1", delegate.produced.get(0).getId());
+        assertTrue(delegate.produced.get(1) instanceof Command);
+        assertTrue(delegate.produced.get(2) instanceof Result);
+    }
+
+    @Test
+    public void testSwitchOff() {
+        delegate.getSwitch().turnOff();
+        producer.produce(new Event("1"));
+        // refused events go straight to the delegate
+        assertEquals(1, delegate.produced.size());
+    }
+
+    @Test
+    public void testDestroyFlushes() {
+        producer.produce(new Event("1"));
+        producer.destroy();
+        assertEquals(1, delegate.produced.size());
+    }
+
+    private static class CollectingProducer implements EventProducer<Event> {
+
+        private final List<Event> produced = new CopyOnWriteArrayList<Event>();
+        private final Switch eventSwitch = new BasicSwitch("test");
+
+        @Override
+        public void produce(Event event) {
+            produced.add(event);
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return eventSwitch;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventHandlerRegistryDispatcherTest {
+
+    private EventHandlerRegistryDispatcher<Event> dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    public void testResultWhileHandlerWaits() throws Exception {
+        final CountDownLatch resultHandled = new CountDownLatch(1);
+        final CountDownLatch commandHandled = new CountDownLatch(1);
+        final EventHandler<Event> handler = new EventHandler<Event>() {
+            @Override
+            public void handle(Event event) {
+                if (event instanceof Result) {
+                    resultHandled.countDown();
+                    return;
+                }
+                // the command handler waits for the result of another command
+                try {
+                    if (resultHandled.await(10, TimeUnit.SECONDS)) {
+                        commandHandled.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public Class<Event> getType() {
+                return Event.class;
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return new BasicSwitch("test");
+            }
+        };
+
+        dispatcher = new EventHandlerRegistryDispatcher<Event>();
+        dispatcher.setWorkers(1);
+        dispatcher.setResultWorkers(1);
+        dispatcher.setHandlerRegistry(new EventHandlerRegistry<Event>() {
+            @Override
+            public EventHandler<Event> getHandler(Event event) {
+                return handler;
+            }
+
+            @Override
+            public boolean park(Event event, EventDispatcher<Event> dispatcher) {
+                return false;
+            }
+        });
+        dispatcher.init();
+
+        dispatcher.dispatch(new Command<Result>("1"));
+        dispatcher.dispatch(new Command<Result>("2"));
+        dispatcher.dispatch(new Result("2"));
+        Assert.assertTrue(commandHandled.await(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventHandlerServiceRegistryTest {
+
+    EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+    List<Event> dispatched = Collections.synchronizedList(new ArrayList<Event>());
+
+    EventDispatcher<Event> dispatcher = new EventDispatcher<Event>() {
+        @Override
+        public void dispatch(Event event) {
+            dispatched.add(event);
+        }
+    };
+
+    EventHandler<Event> handler = new EventHandler<Event>() {
+        @Override
+        public void handle(Event event) {
+            // nothing to do
+        }
+
+        @Override
+        public Class<Event> getType() {
+            return Event.class;
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return new BasicSwitch("test");
+        }
+    };
+
+    @Before
+    public void setUp() {
+        registry.init();
+    }
+
+    @After
+    public void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    public void testDrainOnBind() throws Exception {
+        Event first = new Event("first");
+        Event second = new Event("second");
+        assertTrue(registry.park(first, dispatcher));
+        assertTrue(registry.park(second, dispatcher));
+        assertEquals(2, registry.getParkedSize());
+        assertEquals(0, dispatched.size());
+
+        registry.bind(handler);
+
+        waitFor(2);
+        assertEquals(0, registry.getParkedSize());
+        assertEquals(2, registry.getParkedCount());
+        assertEquals(2, dispatched.size());
+        assertEquals(first, dispatched.get(0));
+        assertEquals(second, dispatched.get(1));
+    }
+
+    @Test
+    public void testOrderAroundBind() throws Exception {
+        Event installed = new Event("installed");
+        Event started = new Event("started");
+        Event later = new Event("later");
+        // no handler yet, the lane parks the first event
+        assertNull(registry.getHandler(installed));
+        assertTrue(registry.park(installed, dispatcher));
+
+        registry.bind(handler);
+        waitFor(1);
+        // the next event reaches its lane before the parked one is handled: it's parked behind it
+        assertNull(registry.getHandler(started));
+        assertTrue(registry.park(started, dispatcher));
+        waitFor(2);
+        assertEquals(installed, dispatched.get(0));
+        assertEquals(started, dispatched.get(1));
+        assertNull(registry.getHandler(later));
+
+        // the dispatched events are handled in order, then the new events are handled directly
+        assertSame(handler, registry.getHandler(installed));
+        assertSame(handler, registry.getHandler(started));
+        assertSame(handler, registry.getHandler(later));
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        registry.setParkingTtl(1);
+        registry.park(new Event("expired"), dispatcher);
+
+        // the parked event expires without any other event parked
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.getExpiredCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.getExpiredCount());
+        assertEquals(0, registry.getParkedSize());
+
+        registry.bind(handler);
+        Thread.sleep(100);
+        assertEquals(0, dispatched.size());
+    }
+
+    @Test
+    public void testMaxParked() throws Exception {
+        registry.setMaxParked(2);
+        Event second = new Event("second");
+        Event third = new Event("third");
+        registry.park(new Event("first"), dispatcher);
+        registry.park(second, dispatcher);
+        registry.park(third, dispatcher);
+        assertEquals(2, registry.getParkedSize());
+        assertEquals(1, registry.getDroppedCount());
+
+        registry.bind(handler);
+
+        waitFor(2);
+        assertEquals(second, dispatched.get(0));
+        assertEquals(third, dispatched.get(1));
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatched.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class GroupRoutingEventProducerTest {
+
+    private CollectingProducer defaultProducer;
+    private Map<String, CollectingProducer> groupProducers;
+    private GroupRoutingEventProducer<Event> producer;
+
+    @Before
+    public void setUp() {
+        defaultProducer = new CollectingProducer();
+        groupProducers = new HashMap<String, CollectingProducer>();
+        producer = new GroupRoutingEventProducer<Event>();
+        producer.setDefaultProducer(defaultProducer);
+        producer.setEventTransportFactory(new EventTransportFactory() {
+            @Override
+            public EventProducer getEventProducer(String name, Boolean pubsub) {
+                CollectingProducer groupProducer = new CollectingProducer();
+                groupProducers.put(name, groupProducer);
+                return groupProducer;
+            }
+
+            @Override
+            public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testGroupEventsUseGroupChannel() {
+        producer.produce(event("1", "group1"));
+        producer.produce(event("2", "group2"));
+        producer.produce(event("3", "group1"));
+        assertEquals(0, defaultProducer.produced.size());
+        assertEquals(2, groupProducers.size());
+        assertEquals(2, groupProducers.get("group1").produced.size());
+        assertEquals(1, groupProducers.get("group2").produced.size());
+    }
+
+    @Test
+    public void testOtherEventsUseDefaultChannel() {
+        producer.produce(new Event("1"));
+
+        Command<Result> command = new Command<Result>("2");
+        command.setSourceGroup(new Group("group1"));
+        producer.produce(command);
+
+        Result result = new Result("3");
+        result.setSourceGroup(new Group("group1"));
+        producer.produce(result);
+
+        Event event = event("4", "group1");
+        event.setDestination(new HashSet<Node>());
+        producer.produce(event);
+
+        assertEquals(4, defaultProducer.produced.size());
+        assertEquals(0, groupProducers.size());
+    }
+
+    @Test
+    public void testDeletedGroupProducerIsFlushed() {
+        final List<BatchingEventProducer<Event>> batchingProducers = new ArrayList<BatchingEventProducer<Event>>();
+        producer.setEventTransportFactory(new EventTransportFactory() {
+            @Override
+            public EventProducer getEventProducer(String name, Boolean pubsub) {
+                CollectingProducer groupProducer = new CollectingProducer();
+                groupProducers.put(name, groupProducer);
+                BatchingEventProducer<Event> batchingProducer = new BatchingEventProducer<Event>();
+                batchingProducer.setDelegate(groupProducer);
+                batchingProducer.setMaxEvents(10);
+                batchingProducer.setLinger(60000);
+                batchingProducer.init();
+                batchingProducers.add(batchingProducer);
+                return batchingProducer;
+            }
+
+            @Override
+            public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+                return null;
+            }
+        });
+
+        producer.produce(event("1", "group1"));
+        producer.produce(event("2", "group1"));
+        producer.produce(event("3", "group2"));
+        assertEquals(0, groupProducers.get("group1").produced.size());
+
+        // deleting the group sends its pending events
+        producer.entryRemoved("group1");
+        assertEquals(1, groupProducers.get("group1").produced.size());
+        assertEquals(0, groupProducers.get("group2").produced.size());
+
+        // a new producer is created if the group comes back
+        producer.produce(event("4", "group1"));
+        assertEquals(3, batchingProducers.size());
+
+        // destroying the routing producer sends all the pending events
+        producer.destroy();
+        assertEquals(1, groupProducers.get("group1").produced.size());
+        assertEquals(1, groupProducers.get("group2").produced.size());
+    }
+
+    private Event event(String id, String groupName) {
+        Event event = new Event(id);
+        event.setSourceGroup(new Group(groupName));
+        return event;
+    }
+
+    private static class CollectingProducer implements EventProducer<Event> {
+
+        private final List<Event> produced = new ArrayList<Event>();
+        private final Switch eventSwitch = new BasicSwitch("test");
+
+        @Override
+        public void produce(Event event) {
+            produced.add(event);
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return eventSwitch;
+        }
+
+    }
+
+}
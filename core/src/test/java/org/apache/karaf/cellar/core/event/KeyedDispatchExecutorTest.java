@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedDispatchExecutorTest {
+
+    KeyedDispatchExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOrderPerKey() throws Exception {
+        executor = new KeyedDispatchExecutor("test", 4, 100, OverflowPolicy.BLOCK);
+        final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(200);
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            executor.execute(1, new Runnable() {
+                @Override
+                public void run() {
+                    first.add(index);
+                    latch.countDown();
+                }
+            });
+            executor.execute(2, new Runnable() {
+                @Override
+                public void run() {
+                    second.add(index);
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), first.get(i));
+            assertEquals(Integer.valueOf(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        executor = new KeyedDispatchExecutor("test", 1, 2, OverflowPolicy.DROP_OLDEST);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(0, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+                // nothing to do
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            executor.execute(0, noop);
+        }
+        assertEquals(2, executor.getQueueSize());
+        assertEquals(3, executor.getRejectedCount());
+        assertEquals(3, executor.getDroppedCount());
+        blocker.countDown();
+    }
+
+    @Test
+    public void testGrow() throws Exception {
+        executor = new KeyedDispatchExecutor("test", 1, 2, OverflowPolicy.GROW);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(0, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final CountDownLatch done = new CountDownLatch(5);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            executor.execute(0, task);
+        }
+        // nothing is lost, the tasks above the capacity are counted
+        assertEquals(5, executor.getQueueSize());
+        assertEquals(3, executor.getRejectedCount());
+        assertEquals(0, executor.getDroppedCount());
+        assertEquals(5, executor.getPeakQueueSize());
+        blocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        executor = new KeyedDispatchExecutor("test", 1, 1, OverflowPolicy.CALLER_RUNS);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(0, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final List<Thread> threads = new ArrayList<Thread>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        };
+        executor.execute(0, task);
+        executor.execute(0, task);
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(Thread.currentThread(), threads.get(0));
+        blocker.countDown();
+    }
+
+}
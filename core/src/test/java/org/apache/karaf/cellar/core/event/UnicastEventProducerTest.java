@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UnicastEventProducerTest {
+
+    private CollectingProducer delegate;
+    private Map<String, CollectingProducer> channels;
+    private UnicastEventProducer<Event> producer;
+
+    @Before
+    public void setUp() {
+        delegate = new CollectingProducer();
+        channels = new HashMap<String, CollectingProducer>();
+        producer = new UnicastEventProducer<Event>();
+        producer.setDelegate(delegate);
+        producer.setEventTransportFactory(new EventTransportFactory() {
+            @Override
+            public EventProducer getEventProducer(String name, Boolean pubsub) {
+                CollectingProducer channel = new CollectingProducer();
+                channels.put(name, channel);
+                return channel;
+            }
+
+            @Override
+            public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testDestinationEventsUseInboxes() {
+        Node node1 = new TestNode("node1");
+        Node node2 = new TestNode("node2");
+
+        Command<Result> command = new Command<Result>("1");
+        command.setDestination(new HashSet<Node>(Arrays.asList(node1, node2)));
+        producer.produce(command);
+
+        Result result = new Result("2");
+        result.setDestination(new HashSet<Node>(Arrays.asList(node1)));
+        producer.produce(result);
+
+        assertEquals(0, delegate.produced.size());
+        assertEquals(2, channels.size());
+        assertEquals(2, channels.get(UnicastEventProducer.getInboxName(node1)).produced.size());
+        assertEquals(1, channels.get(UnicastEventProducer.getInboxName(node2)).produced.size());
+        assertTrue(channels.get(UnicastEventProducer.getInboxName(node2)).produced.contains(command));
+    }
+
+    @Test
+    public void testBroadcastEventsUseDelegate() {
+        producer.produce(new Event("1"));
+        producer.produce(new Command<Result>("2"));
+        assertEquals(2, delegate.produced.size());
+        assertEquals(0, channels.size());
+    }
+
+    private static class CollectingProducer implements EventProducer<Event> {
+
+        private final List<Event> produced = new ArrayList<Event>();
+        private final Switch eventSwitch = new BasicSwitch("test");
+
+        @Override
+        public void produce(Event event) {
+            produced.add(event);
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return eventSwitch;
+        }
+
+    }
+
+    private static class TestNode implements Node {
+
+        private final String id;
+
+        TestNode(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getHost() {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return 5701;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestNode && id.equals(((TestNode) o).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+    }
+
+}
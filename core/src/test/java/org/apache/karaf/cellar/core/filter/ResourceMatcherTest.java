@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceMatcherTest {
+
+    private static final String[] ENTRIES = {
+            "*", "cellar", "org.apache.karaf.shell", "org.apache.karaf.cellar*", "org.ops4j.pax.*", "mvn:org.apache*",
+            "a*b", "foo[0-9]", "bar?", "baz+", "(x|y)", "org.apache.karaf.cellar.node", "", "none"
+    };
+
+    private static final String[] RESOURCES = {
+            "", "cellar", "cellar-bundle", "org.apache.karaf.shell", "orgXapacheXkarafXshell", "org.apache.karaf.shellX",
+            "org.apache.karaf.cellar", "org.apache.karaf.cellar.node", "org.apache.karaf.cellarXnode",
+            "org.ops4j.pax.logging", "org.ops4j.pax", "orgXops4j.pax.", "mvn:org.apache.karaf/cellar/4.0.0",
+            "ab", "axxb", "foo1", "foo", "bar", "ba", "bazz", "x", "y", "none", "org.apache.karaf.cellar\nnode",
+            "org.apache.karaf\nshell"
+    };
+
+    @Test
+    public void testSameResultsAsRegex() {
+        for (String entry : ENTRIES) {
+            ResourceMatcher matcher = ResourceMatcher.compile(Collections.singleton(entry));
+            for (String resource : RESOURCES) {
+                boolean expected = Pattern.compile(entry.replace("*", ".*")).matcher(resource).matches();
+                assertEquals(entry + " / " + resource, expected, matcher.matches(resource));
+            }
+        }
+    }
+
+    @Test
+    public void testAnyEntryMatches() {
+        ResourceMatcher matcher = ResourceMatcher.compile(Arrays.asList(ENTRIES).subList(1, ENTRIES.length));
+        for (String resource : RESOURCES) {
+            boolean expected = false;
+            for (String entry : ENTRIES) {
+                if (!entry.equals("*") && Pattern.matches(entry.replace("*", ".*"), resource)) {
+                    expected = true;
+                }
+            }
+            assertEquals(resource, expected, matcher.matches(resource));
+        }
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertTrue(ResourceMatcher.compile(null).isEmpty());
+        assertFalse(ResourceMatcher.compile(null).matches("cellar"));
+        ResourceFilter filter = new ResourceFilter(null, Collections.singleton("cellar"), ResourceFilter.currentGeneration());
+        assertTrue(filter.isAllowed("shell"));
+        assertFalse(filter.isAllowed("cellar"));
+        assertTrue(filter.isCurrent());
+        ResourceFilter.invalidateAll();
+        assertFalse(filter.isCurrent());
+    }
+
+}
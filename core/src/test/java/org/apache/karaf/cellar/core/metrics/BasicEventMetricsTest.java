@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.metrics;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BasicEventMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean());
+        assertEquals(1000000, histogram.getMax());
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 500000 && median <= 500000 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        long previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testStatisticsPerTypeAndGroup() {
+        BasicEventMetrics metrics = new BasicEventMetrics();
+        metrics.record(PipelineStage.HANDLE, event("1", "group1"), 1000);
+        metrics.record(PipelineStage.HANDLE, event("2", "group1"), 3000);
+        metrics.record(PipelineStage.HANDLE, event("3", "group2"), 2000);
+        metrics.error(PipelineStage.HANDLE, event("4", "group2"));
+        metrics.record(PipelineStage.PRODUCE, new Event("5"), 500);
+
+        List<EventStatistics> statistics = metrics.getStatistics();
+        assertEquals(3, statistics.size());
+        assertEquals(PipelineStage.PRODUCE, statistics.get(0).getStage());
+        assertEquals("", statistics.get(0).getGroup());
+        assertEquals("group1", statistics.get(1).getGroup());
+        assertEquals(2, statistics.get(1).getCount());
+        assertEquals(2000, statistics.get(1).getLatency().getMean());
+        assertEquals("group2", statistics.get(2).getGroup());
+        assertEquals(1, statistics.get(2).getCount());
+        assertEquals(1, statistics.get(2).getErrors());
+
+        metrics.reset();
+        assertEquals(0, metrics.getStatistics().size());
+    }
+
+    @Test
+    public void testBatchCountsBatchedEvents() {
+        BasicEventMetrics metrics = new BasicEventMetrics();
+        List<Event> events = new ArrayList<Event>();
+        events.add(event("1", "group1"));
+        events.add(event("2", "group1"));
+        EventBatch batch = new EventBatch("batch");
+        batch.setEvents(events);
+        metrics.record(PipelineStage.PRODUCE, batch, 1000);
+
+        List<EventStatistics> statistics = metrics.getStatistics();
+        assertEquals(2, statistics.size());
+        for (EventStatistics statistic : statistics) {
+            if (statistic.getEventType().equals(Event.class.getName())) {
+                assertEquals(2, statistic.getCount());
+                assertEquals(0, statistic.getLatency().getCount());
+            } else {
+                assertEquals(1, statistic.getCount());
+                assertEquals(1, statistic.getLatency().getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        BasicEventMetrics metrics = new BasicEventMetrics();
+        metrics.setEnabled(false);
+        metrics.record(PipelineStage.HANDLE, event("1", "group1"), 1000);
+        assertEquals(0, metrics.getStatistics().size());
+    }
+
+    @Test
+    public void testGauges() {
+        BasicEventMetrics metrics = new BasicEventMetrics();
+        metrics.registerGauge("queue", new Gauge() {
+            @Override
+            public long getValue() {
+                return 42;
+            }
+        });
+        assertEquals(Long.valueOf(42), metrics.getGauges().get("queue"));
+        metrics.unregisterGauge("queue");
+        assertTrue(metrics.getGauges().isEmpty());
+    }
+
+    private Event event(String id, String groupName) {
+        Event event = new Event(id);
+        event.setSourceGroup(new Group(groupName));
+        return event;
+    }
+
+}
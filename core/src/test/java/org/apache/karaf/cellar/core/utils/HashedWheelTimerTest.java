@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("test timer", 10, TimeUnit.MILLISECONDS, 16);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testTimeoutsFireInOrder() throws Exception {
+        final List<Integer> fired = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(3);
+        for (final int delay : new int[]{ 300, 20, 100 }) {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    fired.add(delay);
+                    latch.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(20, (int) fired.get(0));
+        assertEquals(100, (int) fired.get(1));
+        assertEquals(300, (int) fired.get(2));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger fired = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                fired.incrementAndGet();
+            }
+        };
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<HashedWheelTimer.Timeout>();
+        for (int i = 0; i < 1000; i++) {
+            timeouts.add(timer.schedule(task, 50, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        Thread.sleep(300);
+        assertEquals(500, fired.get());
+        assertFalse(timeouts.get(0).cancel());
+        assertTrue(timeouts.get(1).isExpired());
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of the providers of an imported endpoint.
+ * <p/>
+ * A provider failing (usually timing out) the given number of consecutive calls is not called anymore during the
+ * open time. Then a single call probes the provider: if it succeeds, the provider is called again, else it stays
+ * unavailable for another open time.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_TIME = 10000;
+
+    /**
+     * Permission to send a call to a provider, passed back to {@link #onCancel(String, Permit)}.
+     */
+    public enum Permit {
+
+        /**
+         * The provider can't be called.
+         */
+        DENIED,
+
+        /**
+         * The circuit of the provider is closed.
+         */
+        CALL,
+
+        /**
+         * The call probes a provider with an open circuit.
+         */
+        PROBE;
+
+        public boolean isGranted() {
+            return this != DENIED;
+        }
+
+    }
+
+    private final int failureThreshold;
+    private final long openTime;
+    private final ConcurrentMap<String, State> states = new ConcurrentHashMap<String, State>();
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_TIME);
+    }
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param failureThreshold the number of consecutive failures opening the circuit, 0 to disable the circuit breaker.
+     * @param openTime the time (in milliseconds) before probing a provider with an open circuit.
+     */
+    public CircuitBreaker(int failureThreshold, long openTime) {
+        this.failureThreshold = failureThreshold;
+        this.openTime = TimeUnit.MILLISECONDS.toNanos(openTime);
+    }
+
+    /**
+     * Check if a provider can be called: its circuit is closed, or open for the open time without probe call.
+     *
+     * @param id the provider ID.
+     * @return true if the provider can be called, false else.
+     */
+    public boolean isCallable(String id) {
+        State state = states.get(id);
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            return !state.open || (!state.probing && System.nanoTime() - state.openedAt >= openTime);
+        }
+    }
+
+    /**
+     * Check if the circuit of a provider is open.
+     *
+     * @param id the provider ID.
+     * @return true if the provider is considered unavailable, false else.
+     */
+    public boolean isOpen(String id) {
+        State state = states.get(id);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.open;
+        }
+    }
+
+    /**
+     * Acquire the permission to send a call to a provider. The first call after the open time is the probe call:
+     * the concurrent calls are not permitted until the probe call completes.
+     *
+     * @param id the provider ID.
+     * @return {@link Permit#CALL} or {@link Permit#PROBE} if the call can be sent, {@link Permit#DENIED} if the
+     *         provider can't be called.
+     */
+    public Permit tryAcquire(String id) {
+        State state = states.get(id);
+        if (state == null) {
+            return Permit.CALL;
+        }
+        synchronized (state) {
+            if (!state.open) {
+                return Permit.CALL;
+            }
+            if (!state.probing && System.nanoTime() - state.openedAt >= openTime) {
+                state.probing = true;
+                return Permit.PROBE;
+            }
+            return Permit.DENIED;
+        }
+    }
+
+    /**
+     * Notify a successful call, closing the circuit of the provider.
+     *
+     * @param id the provider ID.
+     */
+    public void onSuccess(String id) {
+        State state = states.get(id);
+        if (state != null) {
+            synchronized (state) {
+                state.failures = 0;
+                state.open = false;
+                state.probing = false;
+            }
+        }
+    }
+
+    /**
+     * Notify a failed call, opening the circuit of the provider after the failure threshold or a failed probe call.
+     *
+     * @param id the provider ID.
+     */
+    public void onFailure(String id) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        State state = states.get(id);
+        if (state == null) {
+            state = new State();
+            State existing = states.putIfAbsent(id, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        synchronized (state) {
+            state.failures++;
+            if (state.probing || state.failures >= failureThreshold) {
+                state.open = true;
+                state.probing = false;
+                state.openedAt = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Notify a cancelled call, neither a success nor a failure. A cancelled probe call lets the next call probe the
+     * provider, the cancellation of another call doesn't change the circuit.
+     *
+     * @param id the provider ID.
+     * @param permit the permit acquired to send the call.
+     */
+    public void onCancel(String id, Permit permit) {
+        if (permit != Permit.PROBE) {
+            return;
+        }
+        State state = states.get(id);
+        if (state != null) {
+            synchronized (state) {
+                state.probing = false;
+            }
+        }
+    }
+
+    /**
+     * Forget a provider which doesn't provide the endpoint anymore.
+     *
+     * @param id the provider ID.
+     */
+    public void remove(String id) {
+        states.remove(id);
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenTime() {
+        return TimeUnit.NANOSECONDS.toMillis(openTime);
+    }
+
+    private static class State {
+
+        private int failures;
+        private boolean open;
+        private boolean probing;
+        private long openedAt;
+
+    }
+
+}
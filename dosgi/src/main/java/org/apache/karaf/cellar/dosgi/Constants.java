@@ -24,8 +24,10 @@ public abstract class Constants {
     public static final String INTERFACE_PREFIX = "org.apache.karaf.cellar.dosgi";
     public static final String REQUEST_PREFIX = "org.apache.karaf.cellar.dosgi.request";
     public static final String RESULT_PREFIX = "org.apache.karaf.cellar.dosgi.result";
+    public static final String STREAM_PREFIX = "org.apache.karaf.cellar.dosgi.stream";
     public static final String REMOTE_ENDPOINTS = "org.apache.karaf.cellar.dosgi.endpoints";
     public static final String EXPORTED_INTERFACES = "service.exported.interfaces";
     public static final String ENDPOINT_FRAMEWORK_UUID = "frameworkUUID";
+    public static final String TIMEOUT = "cellar.dosgi.timeout";
 
 }
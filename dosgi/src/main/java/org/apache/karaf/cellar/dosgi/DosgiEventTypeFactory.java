@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventTypeFactory;
+
+/**
+ * Factory of the cluster remote service calls, results and streams.
+ */
+public class DosgiEventTypeFactory implements EventTypeFactory {
+
+    public static final int FACTORY_ID = 7;
+
+    public static final int REMOTE_SERVICE_CALL = 1;
+    public static final int REMOTE_SERVICE_RESULT = 2;
+    public static final int REMOTE_STREAM_REQUEST = 3;
+    public static final int REMOTE_STREAM_CHUNK = 4;
+
+    @Override
+    public int getFactoryId() {
+        return FACTORY_ID;
+    }
+
+    @Override
+    public CellarSerializable create(int typeId) {
+        switch (typeId) {
+            case REMOTE_SERVICE_CALL:
+                return new RemoteServiceCall(null);
+            case REMOTE_SERVICE_RESULT:
+                return new RemoteServiceResult(null);
+            case REMOTE_STREAM_REQUEST:
+                return new RemoteStreamRequest(null);
+            case REMOTE_STREAM_CHUNK:
+                return new RemoteStreamChunk(null);
+            default:
+                return null;
+        }
+    }
+
+}
@@ -19,11 +19,9 @@ import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 
-import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 
 /**
@@ -34,6 +32,8 @@ public class EndpointDescription implements MultiNode {
     private final String id;
     private final Set<Node> nodes = new LinkedHashSet<Node>();
     private final Map<String, Object> properties = new HashMap<String, Object>();
+    // ids of the provider nodes consuming their own queue of the endpoint (null if deserialized from an older node)
+    private Set<String> providerQueueNodes = new LinkedHashSet<String>();
 
     /**
      * Constructor
@@ -68,18 +68,20 @@ public class EndpointDescription implements MultiNode {
             iae.initCause(e);
             throw iae;
         }
+        return matches(f);
+    }
 
-        Dictionary dictionary = new Properties();
-        for (Map.Entry<String, Object> entry : properties.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            dictionary.put(key, value);
-        }
-        /*
-           * we can use matchCase here since properties already supports case
-           * insensitive key lookup.
-           */
-        return f.matchCase(dictionary);
+    /**
+     * Tests the properties of this <code>EndpointDescription</code> against
+     * the given filter, without copying the properties.
+     *
+     * @param filter The compiled filter to test.
+     * @return <code>true</code> If the properties of this
+     *         <code>EndpointDescription</code> match the filter,
+     *         <code>false</code> otherwise.
+     */
+    public boolean matches(Filter filter) {
+        return filter.matches(properties);
     }
 
     public String getId() {
@@ -98,6 +100,19 @@ public class EndpointDescription implements MultiNode {
          }
      }
 
+    /**
+     * Get the ids of the provider nodes consuming their own queue of the endpoint, in addition to the shared queue.
+     * The callers send the calls to the other providers to the shared queue.
+     *
+     * @return the provider queue node ids.
+     */
+    public Set<String> getProviderQueueNodes() {
+        if (providerQueueNodes == null) {
+            providerQueueNodes = new LinkedHashSet<String>();
+        }
+        return providerQueueNodes;
+    }
+
     public Map<String, Object> getProperties() {
         return properties;
     }
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.osgi.framework.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local copy of the cluster endpoints, indexed by service class.
+ */
+public class EndpointRegistry {
+
+    private static final Pattern OBJECTCLASS_PATTERN = Pattern.compile("\\(\\s*" + org.osgi.framework.Constants.OBJECTCLASS + "\\s*=([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, EndpointDescription> endpoints = new LinkedHashMap<String, EndpointDescription>();
+    private final Map<String, Map<String, EndpointDescription>> index = new HashMap<String, Map<String, EndpointDescription>>();
+
+    /**
+     * Add or replace an endpoint.
+     *
+     * @param endpoint the endpoint.
+     * @return the previous endpoint with the same id, or null.
+     */
+    public synchronized EndpointDescription put(EndpointDescription endpoint) {
+        EndpointDescription previous = endpoints.put(endpoint.getId(), endpoint);
+        String serviceClass = endpoint.getServiceClass();
+        Map<String, EndpointDescription> byClass = index.get(serviceClass);
+        if (byClass == null) {
+            byClass = new LinkedHashMap<String, EndpointDescription>();
+            index.put(serviceClass, byClass);
+        }
+        byClass.put(endpoint.getId(), endpoint);
+        return previous;
+    }
+
+    /**
+     * Remove an endpoint.
+     *
+     * @param id the endpoint id.
+     * @return the removed endpoint, or null.
+     */
+    public synchronized EndpointDescription remove(String id) {
+        EndpointDescription endpoint = endpoints.remove(id);
+        if (endpoint != null) {
+            Map<String, EndpointDescription> byClass = index.get(endpoint.getServiceClass());
+            if (byClass != null) {
+                byClass.remove(id);
+                if (byClass.isEmpty()) {
+                    index.remove(endpoint.getServiceClass());
+                }
+            }
+        }
+        return endpoint;
+    }
+
+    public synchronized EndpointDescription get(String id) {
+        return endpoints.get(id);
+    }
+
+    public synchronized Collection<EndpointDescription> getEndpoints() {
+        return new ArrayList<EndpointDescription>(endpoints.values());
+    }
+
+    /**
+     * Get the endpoints matching a filter.
+     *
+     * @param filter the filter.
+     * @param objectClass the service class required by the filter, or null to check all the endpoints.
+     * @return the matching endpoints.
+     */
+    public synchronized Set<EndpointDescription> match(Filter filter, String objectClass) {
+        Collection<EndpointDescription> candidates;
+        if (objectClass != null) {
+            Map<String, EndpointDescription> byClass = index.get(objectClass);
+            if (byClass == null) {
+                return new LinkedHashSet<EndpointDescription>();
+            }
+            candidates = byClass.values();
+        } else {
+            candidates = endpoints.values();
+        }
+        Set<EndpointDescription> matches = new LinkedHashSet<EndpointDescription>();
+        for (EndpointDescription endpoint : candidates) {
+            if (endpoint.matches(filter)) {
+                matches.add(endpoint);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized void clear() {
+        endpoints.clear();
+        index.clear();
+    }
+
+    /**
+     * Get the service class that a service matching the filter must have, if any.
+     * Only filters without OR and NOT operations are considered, where all the terms are required.
+     *
+     * @param filter the filter.
+     * @return the service class required by the filter, or null if the filter doesn't require one.
+     */
+    public static String getObjectClass(String filter) {
+        if (filter == null || filter.contains("(|") || filter.contains("(!")) {
+            return null;
+        }
+        Matcher matcher = OBJECTCLASS_PATTERN.matcher(filter);
+        while (matcher.find()) {
+            String value = matcher.group(1);
+            if (value.indexOf('*') < 0 && value.indexOf('\\') < 0) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+}
@@ -15,6 +15,7 @@ package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeListener;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
 import org.osgi.framework.BundleContext;
@@ -30,11 +31,21 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Listener called when a new service is exported.
+ * Except with the shared load balancing policy, the node also consumes the calls sent to its own provider queue, and
+ * when another provider leaves the cluster, the calls left in the queue of this provider are consumed during the
+ * drain time.
  */
-public class ExportServiceListener implements ServiceListener {
+public class ExportServiceListener implements ServiceListener, NodeListener {
+
+    public static final long DEFAULT_DRAIN_TIME = 30000;
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(ExportServiceListener.class);
 
@@ -45,11 +56,27 @@ public class ExportServiceListener implements ServiceListener {
     private Map<String, EndpointDescription> remoteEndpoints;
 
     private final Map<String, EventConsumer> consumers = new HashMap<String, EventConsumer>();
+    // consumers of the calls sent to this node only by the load balancing callers
+    private final Map<String, EventConsumer> providerConsumers = new ConcurrentHashMap<String, EventConsumer>();
+    // consumers of the provider queues of the nodes which left the cluster
+    private final Map<String, EventConsumer> drainConsumers = new ConcurrentHashMap<String, EventConsumer>();
+
+    private String loadBalancing = LoadBalancer.ROUND_ROBIN;
+    private long drainTime = DEFAULT_DRAIN_TIME;
 
     private Node node;
+    private ScheduledExecutorService scheduler;
 
     public void init() {
         node = clusterManager.getNode();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Cellar DOSGi export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
         remoteEndpoints = clusterManager.getMap(Constants.REMOTE_ENDPOINTS);
         bundleContext.addServiceListener(this);
 
@@ -76,6 +103,17 @@ public class ExportServiceListener implements ServiceListener {
             consumer.stop();
         }
         consumers.clear();
+        for (EventConsumer consumer : providerConsumers.values()) {
+            consumer.stop();
+        }
+        providerConsumers.clear();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (EventConsumer consumer : drainConsumers.values()) {
+            consumer.stop();
+        }
+        drainConsumers.clear();
     }
 
     /**
@@ -132,6 +170,13 @@ public class ExportServiceListener implements ServiceListener {
                     } else {
                         endpoint = new EndpointDescription(endpointId, node);
                     }
+                    copyTimeouts(serviceReference, endpoint);
+                    // advertise the provider queue to the callers
+                    if (isShared()) {
+                        endpoint.getProviderQueueNodes().remove(node.getId());
+                    } else {
+                        endpoint.getProviderQueueNodes().add(node.getId());
+                    }
 
                     remoteEndpoints.put(endpointId, endpoint);
 
@@ -143,6 +188,18 @@ public class ExportServiceListener implements ServiceListener {
                     } else if (!consumer.isConsuming()) {
                         consumer.start();
                     }
+
+                    if (isShared()) {
+                        // the callers only use the shared queue
+                        continue;
+                    }
+                    EventConsumer providerConsumer = providerConsumers.get(endpointId);
+                    if (providerConsumer == null) {
+                        providerConsumer = eventTransportFactory.getEventConsumer(LoadBalancingProducer.getProviderQueue(endpointId, node), false);
+                        providerConsumers.put(endpointId, providerConsumer);
+                    } else if (!providerConsumer.isConsuming()) {
+                        providerConsumer.start();
+                    }
                 }
             }
         } finally {
@@ -150,6 +207,59 @@ public class ExportServiceListener implements ServiceListener {
         }
     }
 
+    /**
+     * Consume the calls left in the provider queues of a node leaving the cluster, for the endpoints exported by this
+     * node, so they are handled by this node instead of timing out. The queues are consumed during the drain time.
+     *
+     * @param removed the node which left the cluster.
+     */
+    @Override
+    public void nodeRemoved(Node removed) {
+        if (isShared() || removed == null || removed.equals(node)) {
+            return;
+        }
+        for (String endpointId : providerConsumers.keySet()) {
+            final String queue = LoadBalancingProducer.getProviderQueue(endpointId, removed);
+            if (drainConsumers.containsKey(queue)) {
+                continue;
+            }
+            LOGGER.debug("CELLAR DOSGI: draining the calls sent to {}", queue);
+            drainConsumers.put(queue, eventTransportFactory.getEventConsumer(queue, false));
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    EventConsumer consumer = drainConsumers.remove(queue);
+                    if (consumer != null) {
+                        consumer.stop();
+                    }
+                }
+            }, drainTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean isShared() {
+        return loadBalancing != null && LoadBalancer.SHARED.equalsIgnoreCase(loadBalancing.trim());
+    }
+
+    /**
+     * Copy the timeouts of the remote service calls, defined by the {@link Constants#TIMEOUT} property (for all the
+     * methods) and the {@link Constants#TIMEOUT}.method or {@link Constants#TIMEOUT}.signature properties of the
+     * service, to the endpoint.
+     *
+     * @param serviceReference the exported service.
+     * @param endpoint the endpoint description.
+     */
+    private void copyTimeouts(ServiceReference serviceReference, EndpointDescription endpoint) {
+        String[] keys = serviceReference.getPropertyKeys();
+        if (keys != null) {
+            for (String key : keys) {
+                if (key.equals(Constants.TIMEOUT) || key.startsWith(Constants.TIMEOUT + ".")) {
+                    endpoint.getProperties().put(key, serviceReference.getProperty(key));
+                }
+            }
+        }
+    }
+
     /**
      * Remove the cluster event consumer, and stop to consume remote service calls.
      *
@@ -174,6 +284,7 @@ public class ExportServiceListener implements ServiceListener {
 
                     EndpointDescription endpointDescription = remoteEndpoints.remove(endpointId);
                     endpointDescription.getNodes().remove(node);
+                    endpointDescription.getProviderQueueNodes().remove(node.getId());
                     // if the endpoint is used for export from other nodes too, then put it back.
                     if (endpointDescription.getNodes().size() > 0) {
                         remoteEndpoints.put(endpointId, endpointDescription);
@@ -181,6 +292,10 @@ public class ExportServiceListener implements ServiceListener {
 
                     EventConsumer eventConsumer = consumers.remove(endpointId);
                     eventConsumer.stop();
+                    EventConsumer providerConsumer = providerConsumers.remove(endpointId);
+                    if (providerConsumer != null) {
+                        providerConsumer.stop();
+                    }
                 }
             }
         } finally {
@@ -243,6 +358,22 @@ public class ExportServiceListener implements ServiceListener {
         this.eventTransportFactory = eventTransportFactory;
     }
 
+    public String getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    public long getDrainTime() {
+        return drainTime;
+    }
+
+    public void setDrainTime(long drainTime) {
+        this.drainTime = drainTime;
+    }
+
     public BundleContext getBundleContext() {
         return bundleContext;
     }
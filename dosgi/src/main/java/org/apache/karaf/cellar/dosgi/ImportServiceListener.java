@@ -14,6 +14,9 @@
 package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.MapListener;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeListener;
 import org.apache.karaf.cellar.core.command.ClusteredExecutionContext;
 import org.apache.karaf.cellar.core.command.CommandStore;
 import org.apache.karaf.cellar.core.command.ExecutionContext;
@@ -21,25 +24,34 @@ import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.hooks.service.ListenerHook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Listener for the service import.
+ * The cluster endpoints are tracked with a map listener, and imported as soon as they are exported. If the cluster
+ * map can't be listened, the endpoints are polled every 5 seconds.
  */
-public class ImportServiceListener implements ListenerHook, Runnable {
+public class ImportServiceListener implements ListenerHook, MapListener<String, EndpointDescription>, NodeListener, Runnable {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(ImportServiceListener.class);
 
@@ -47,45 +59,213 @@ public class ImportServiceListener implements ListenerHook, Runnable {
     private ClusterManager clusterManager;
     private CommandStore commandStore;
     private EventTransportFactory eventTransportFactory;
+    private RemoteStreamManager streamManager;
+    private ServiceMetrics serviceMetrics;
     private Map<String, EndpointDescription> remoteEndpoints;
+    private String entryListenerId;
 
-    private Set<ListenerInfo> pendingListeners = new LinkedHashSet<ListenerInfo>();
+    private final EndpointRegistry endpointRegistry = new EndpointRegistry();
+
+    private final Map<ListenerInfo, PendingListener> pendingListeners = new LinkedHashMap<ListenerInfo, PendingListener>();
 
     private final Map<EndpointDescription, ServiceRegistration> registrations = new HashMap<EndpointDescription, ServiceRegistration>();
 
-    private final Map<String, EventProducer> producers = new HashMap<String, EventProducer>();
-    private final Map<String, EventConsumer> consumers = new HashMap<String, EventConsumer>();
+    // listeners of the imported endpoints, pending again if the endpoint is removed
+    private final Map<EndpointDescription, PendingListener> importers = new HashMap<EndpointDescription, PendingListener>();
+
+    private final Map<String, LoadBalancingProducer> producers = new ConcurrentHashMap<String, LoadBalancingProducer>();
+
+    private String loadBalancing = LoadBalancer.ROUND_ROBIN;
+    private int batchMaxEvents = RemoteServiceBatchingProducer.DEFAULT_MAX_EVENTS;
+    private int circuitFailureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    private long circuitOpenTime = CircuitBreaker.DEFAULT_OPEN_TIME;
+
+    // results of the calls to all the imported endpoints, correlated by command id
+    private EventConsumer resultConsumer;
 
     private final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
 
     public void init() {
         remoteEndpoints = clusterManager.getMap(Constants.REMOTE_ENDPOINTS);
-        service.scheduleAtFixedRate(this, 0, 5, TimeUnit.SECONDS);
+        resultConsumer = eventTransportFactory.getEventConsumer(Constants.RESULT_PREFIX + Constants.SEPARATOR + clusterManager.getNode().getId(), Boolean.FALSE);
+        // listen before loading the current endpoints, to not miss an export
+        entryListenerId = clusterManager.addMapListener(Constants.REMOTE_ENDPOINTS, this);
+        for (EndpointDescription endpoint : remoteEndpoints.values()) {
+            endpointRegistry.put(endpoint);
+        }
+        service.scheduleAtFixedRate(this, 5, 5, TimeUnit.SECONDS);
     }
 
     public void destroy() {
+        if (entryListenerId != null) {
+            clusterManager.removeMapListener(Constants.REMOTE_ENDPOINTS, entryListenerId);
+        }
         service.shutdown();
         for (Map.Entry<EndpointDescription, ServiceRegistration> entry : registrations.entrySet()) {
             ServiceRegistration registration = entry.getValue();
             registration.unregister();
         }
-        for (Map.Entry<String, EventConsumer> consumerEntry : consumers.entrySet()) {
-            EventConsumer consumer = consumerEntry.getValue();
-            consumer.stop();
+        if (resultConsumer != null) {
+            resultConsumer.stop();
         }
-        consumers.clear();
         producers.clear();
+        endpointRegistry.clear();
     }
 
     @Override
     public void run() {
-        for (ListenerInfo listener : pendingListeners) {
+        if (entryListenerId == null) {
+            pollEndpoints();
+        }
+        // refresh the providers of the imported endpoints, ignoring the nodes which left the cluster
+        for (Map.Entry<String, LoadBalancingProducer> entry : producers.entrySet()) {
+            EndpointDescription endpoint = endpointRegistry.get(entry.getKey());
+            if (endpoint != null) {
+                entry.getValue().setProviders(getProviders(endpoint), endpoint.getProviderQueueNodes());
+            }
+        }
+        checkPendingListeners();
+    }
+
+    /**
+     * Synchronize the endpoints with the cluster map, when the changes of the map are not notified.
+     */
+    private void pollEndpoints() {
+        Set<String> removed = new HashSet<String>();
+        for (EndpointDescription endpoint : endpointRegistry.getEndpoints()) {
+            removed.add(endpoint.getId());
+        }
+        for (EndpointDescription endpoint : remoteEndpoints.values()) {
+            endpointRegistry.put(endpoint);
+            removed.remove(endpoint.getId());
+        }
+        for (String id : removed) {
+            EndpointDescription endpoint = endpointRegistry.remove(id);
+            if (endpoint != null) {
+                endpointRemoved(endpoint);
+            }
+        }
+    }
+
+    /**
+     * Check again the pending listeners, in case an endpoint export has been missed.
+     */
+    private synchronized void checkPendingListeners() {
+        for (PendingListener listener : new ArrayList<PendingListener>(pendingListeners.values())) {
             checkListener(listener);
         }
     }
 
+    /**
+     * Stop sending calls to the provider queues of a node leaving the cluster.
+     *
+     * @param node the node which left the cluster.
+     */
+    @Override
+    public void nodeRemoved(Node node) {
+        service.execute(this);
+    }
+
+    @Override
+    public void entryUpdated(String key, EndpointDescription endpoint) {
+        endpointUpdated(endpoint);
+    }
+
+    @Override
+    public void entryRemoved(String key) {
+        final EndpointDescription endpoint = endpointRegistry.remove(key);
+        if (endpoint == null) {
+            return;
+        }
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                endpointRemoved(endpoint);
+            }
+        });
+    }
+
+    @Override
+    public void mapCleared() {
+        for (EndpointDescription endpoint : endpointRegistry.getEndpoints()) {
+            entryRemoved(endpoint.getId());
+        }
+    }
+
+    /**
+     * Index an exported (or updated) endpoint, and import it out of the cluster event thread
+     * if a pending listener is waiting for it.
+     *
+     * @param endpoint the endpoint.
+     */
+    private void endpointUpdated(final EndpointDescription endpoint) {
+        if (endpoint == null) {
+            return;
+        }
+        endpointRegistry.put(endpoint);
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                checkEndpoint(endpoint);
+            }
+        });
+    }
+
+    /**
+     * Un-import an endpoint which is not exported anymore, the calls to its providers can't be consumed.
+     * The listeners of the endpoint wait for it again.
+     *
+     * @param endpoint the removed endpoint.
+     */
+    private synchronized void endpointRemoved(EndpointDescription endpoint) {
+        PendingListener listener = importers.get(endpoint);
+        unImportService(endpoint);
+        if (listener != null) {
+            pendingListeners.put(listener.listenerInfo, listener);
+        }
+    }
+
+    /**
+     * Check if pending listeners are waiting for an endpoint.
+     *
+     * @param endpoint the endpoint.
+     */
+    private synchronized void checkEndpoint(EndpointDescription endpoint) {
+        LoadBalancingProducer producer = producers.get(endpoint.getId());
+        if (producer != null) {
+            producer.setProviders(getProviders(endpoint), endpoint.getProviderQueueNodes());
+        }
+        if (endpoint.getNodes().contains(clusterManager.getNode().getId())) {
+            return;
+        }
+        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+            for (PendingListener listener : new ArrayList<PendingListener>(pendingListeners.values())) {
+                if ((listener.objectClass == null || listener.objectClass.equals(endpoint.getServiceClass()))
+                        && endpoint.matches(listener.filter)) {
+                    importService(endpoint, listener);
+                }
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+        }
+    }
+
+    /**
+     * Get the provider nodes of an endpoint, ignoring the nodes which left the cluster.
+     *
+     * @param endpoint the endpoint.
+     * @return the provider nodes.
+     */
+    private Set<Node> getProviders(EndpointDescription endpoint) {
+        Set<Node> providers = new LinkedHashSet<Node>(endpoint.getNodes());
+        providers.retainAll(clusterManager.listNodes());
+        return providers;
+    }
+
     @Override
-    public void added(Collection listeners) {
+    public synchronized void added(Collection listeners) {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
@@ -95,9 +275,13 @@ public class ImportServiceListener implements ListenerHook, Runnable {
                     continue;
                 }
 
-                pendingListeners.add(listenerInfo);
+                PendingListener listener = createPendingListener(listenerInfo);
+                if (listener == null) {
+                    continue;
+                }
+                pendingListeners.put(listenerInfo, listener);
                 // make sure we only import remote services
-                checkListener(listenerInfo);
+                checkListener(listener);
             }
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
@@ -105,7 +289,7 @@ public class ImportServiceListener implements ListenerHook, Runnable {
     }
 
     @Override
-    public void removed(Collection listeners) {
+    public synchronized void removed(Collection listeners) {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
@@ -116,19 +300,13 @@ public class ImportServiceListener implements ListenerHook, Runnable {
 
                 // make sure we only import remote services
                 String filter = "(&" + listenerInfo.getFilter() + "(!(" + Constants.ENDPOINT_FRAMEWORK_UUID + "=" + clusterManager.getNode().getId() + ")))";
-                // iterate through known services and import them if needed
-                Set<EndpointDescription> matches = new LinkedHashSet<EndpointDescription>();
-                for (Map.Entry<String, EndpointDescription> entry : remoteEndpoints.entrySet()) {
-                    EndpointDescription endpointDescription = entry.getValue();
-                    if (endpointDescription.matches(filter)) {
-                        matches.add(endpointDescription);
+                PendingListener listener = createPendingListener(listenerInfo, filter);
+                if (listener != null) {
+                    for (EndpointDescription endpoint : endpointRegistry.match(listener.filter, listener.objectClass)) {
+                        unImportService(endpoint);
                     }
                 }
 
-                for (EndpointDescription endpoint : matches) {
-                    unImportService(endpoint);
-                }
-
                 pendingListeners.remove(listenerInfo);
             }
         } finally {
@@ -136,26 +314,46 @@ public class ImportServiceListener implements ListenerHook, Runnable {
         }
     }
 
+    private PendingListener createPendingListener(ListenerInfo listenerInfo) {
+        return createPendingListener(listenerInfo, listenerInfo.getFilter());
+    }
+
     /**
-     * Check if there is a match for the current {@link ListenerInfo}.
+     * Compile the filter of a service listener.
      *
      * @param listenerInfo the listener info.
+     * @param filter the filter to compile.
+     * @return the pending listener, or null if the filter is not valid.
      */
-    private void checkListener(ListenerInfo listenerInfo) {
+    private PendingListener createPendingListener(ListenerInfo listenerInfo, String filter) {
+        try {
+            // the service class is required by the listener filter, even when it's combined with other terms
+            return new PendingListener(listenerInfo, FrameworkUtil.createFilter(filter), EndpointRegistry.getObjectClass(listenerInfo.getFilter()));
+        } catch (InvalidSyntaxException e) {
+            LOGGER.warn("CELLAR DOSGI: invalid service listener filter {}", filter, e);
+            return null;
+        }
+    }
+
+    /**
+     * Check if there is a match for the current {@link ListenerInfo}.
+     *
+     * @param listener the pending listener.
+     */
+    private void checkListener(PendingListener listener) {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-            // iterate through known services and import them if needed
+            // look up the known endpoints of the service class and import them if needed
             Set<EndpointDescription> matches = new LinkedHashSet<EndpointDescription>();
-            for (Map.Entry<String, EndpointDescription> entry : remoteEndpoints.entrySet()) {
-                EndpointDescription endpointDescription = entry.getValue();
-                if (endpointDescription.matches(listenerInfo.getFilter()) && !endpointDescription.getNodes().contains(clusterManager.getNode().getId())) {
+            for (EndpointDescription endpointDescription : endpointRegistry.match(listener.filter, listener.objectClass)) {
+                if (!endpointDescription.getNodes().contains(clusterManager.getNode().getId())) {
                     matches.add(endpointDescription);
                 }
             }
 
             for (EndpointDescription endpoint : matches) {
-                importService(endpoint, listenerInfo);
+                importService(endpoint, listener);
             }
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
@@ -168,34 +366,34 @@ public class ImportServiceListener implements ListenerHook, Runnable {
      * @param endpoint the endpoint to import.
      * @param listenerInfo the associated listener info.
      */
-    private void importService(EndpointDescription endpoint, ListenerInfo listenerInfo) {
+    private void importService(EndpointDescription endpoint, PendingListener listener) {
         LOGGER.debug("CELLAR DOSGI: importing remote service");
 
-        EventProducer requestProducer = producers.get(endpoint.getId());
+        LoadBalancingProducer requestProducer = producers.get(endpoint.getId());
         if (requestProducer == null) {
-            requestProducer = eventTransportFactory.getEventProducer(Constants.INTERFACE_PREFIX + Constants.SEPARATOR + endpoint.getId(), Boolean.FALSE);
+            EventProducer sharedProducer = new RemoteServiceBatchingProducer(eventTransportFactory.getEventProducer(Constants.INTERFACE_PREFIX + Constants.SEPARATOR + endpoint.getId(), Boolean.FALSE),
+                    batchMaxEvents, RemoteServiceBatchingProducer.DEFAULT_MAX_BYTES);
+            requestProducer = new LoadBalancingProducer(endpoint.getId(), sharedProducer, eventTransportFactory, LoadBalancer.forName(loadBalancing));
+            requestProducer.setBatchMaxEvents(batchMaxEvents);
+            requestProducer.setCircuitBreaker(new CircuitBreaker(circuitFailureThreshold, circuitOpenTime));
             producers.put(endpoint.getId(), requestProducer);
         }
+        requestProducer.setProviders(getProviders(endpoint), endpoint.getProviderQueueNodes());
 
-        EventConsumer resultConsumer = consumers.get(endpoint.getId());
-        if (resultConsumer == null) {
-            resultConsumer = eventTransportFactory.getEventConsumer(Constants.RESULT_PREFIX + Constants.SEPARATOR + clusterManager.getNode().getId() + endpoint.getId(), Boolean.FALSE);
-            consumers.put(endpoint.getId(), resultConsumer);
-        } else if (!resultConsumer.isConsuming()) {
+        if (!resultConsumer.isConsuming()) {
             resultConsumer.start();
         }
 
-        producers.put(endpoint.getId(), requestProducer);
-        consumers.put(endpoint.getId(), resultConsumer);
-
         ExecutionContext executionContext = new ClusteredExecutionContext(requestProducer, commandStore);
 
-        RemoteServiceFactory remoteServiceFactory = new RemoteServiceFactory(endpoint, clusterManager, executionContext);
-        ServiceRegistration registration = listenerInfo.getBundleContext().registerService(endpoint.getServiceClass(),
+        RemoteServiceFactory remoteServiceFactory = new RemoteServiceFactory(endpoint, clusterManager, executionContext, streamManager);
+        remoteServiceFactory.setServiceMetrics(serviceMetrics);
+        ServiceRegistration registration = listener.listenerInfo.getBundleContext().registerService(endpoint.getServiceClass(),
                 remoteServiceFactory,
                 new Hashtable<String, Object>(endpoint.getProperties()));
         registrations.put(endpoint, registration);
-        pendingListeners.remove(listenerInfo);
+        importers.put(endpoint, listener);
+        pendingListeners.remove(listener.listenerInfo);
     }
 
     /**
@@ -204,16 +402,36 @@ public class ImportServiceListener implements ListenerHook, Runnable {
      * @param endpoint the endpoint to un-register.
      */
     private void unImportService(EndpointDescription endpoint) {
-        ServiceRegistration registration = registrations.get(endpoint);
-        registration.unregister();
+        ServiceRegistration registration = registrations.remove(endpoint);
+        if (registration != null) {
+            registration.unregister();
+        }
+        importers.remove(endpoint);
 
-        producers.remove(endpoint.getId());
-        EventConsumer consumer = consumers.remove(endpoint.getId());
-        if (consumer != null) {
-            consumer.stop();
+        LoadBalancingProducer producer = producers.remove(endpoint.getId());
+        if (producer != null) {
+            producer.setProviders(new HashSet<Node>());
         }
     }
 
+    /**
+     * A service listener waiting for a remote service, with its compiled filter.
+     */
+    private static class PendingListener {
+
+        private final ListenerInfo listenerInfo;
+        private final Filter filter;
+        // the service class required by the filter, null if any service class can match
+        private final String objectClass;
+
+        PendingListener(ListenerInfo listenerInfo, Filter filter, String objectClass) {
+            this.listenerInfo = listenerInfo;
+            this.filter = filter;
+            this.objectClass = objectClass;
+        }
+
+    }
+
     public BundleContext getBundleContext() {
         return bundleContext;
     }
@@ -238,6 +456,54 @@ public class ImportServiceListener implements ListenerHook, Runnable {
         this.commandStore = commandStore;
     }
 
+    public String getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(String loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    public int getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public void setBatchMaxEvents(int batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
+    public RemoteStreamManager getStreamManager() {
+        return streamManager;
+    }
+
+    public void setStreamManager(RemoteStreamManager streamManager) {
+        this.streamManager = streamManager;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+        this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public long getCircuitOpenTime() {
+        return circuitOpenTime;
+    }
+
+    public void setCircuitOpenTime(long circuitOpenTime) {
+        this.circuitOpenTime = circuitOpenTime;
+    }
+
     public EventTransportFactory getEventTransportFactory() {
         return eventTransportFactory;
     }
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Strategy selecting the provider node of a remote service call, among the nodes exporting the endpoint.
+ * A load balancer instance is used for a single imported endpoint.
+ */
+public abstract class LoadBalancer {
+
+    public static final String SHARED = "shared";
+    public static final String ROUND_ROBIN = "round-robin";
+    public static final String LEAST_OUTSTANDING = "least-outstanding";
+    public static final String LATENCY_WEIGHTED = "latency-weighted";
+    public static final String STICKY = "sticky";
+
+    /**
+     * Select the provider of a remote service call.
+     *
+     * @param providers the provider nodes of the endpoint, never empty.
+     * @param statistics the statistics of the calls to the providers.
+     * @param call the remote service call.
+     * @return the selected provider, or null to send the call to the queue shared by all the providers.
+     */
+    public abstract Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call);
+
+    /**
+     * The calls go to the queue shared by all the providers, the first provider polling the queue handles the call.
+     *
+     * @return the load balancer.
+     */
+    public static LoadBalancer shared() {
+        return new LoadBalancer() {
+            @Override
+            public Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * The calls go to the providers in turn.
+     *
+     * @return the load balancer.
+     */
+    public static LoadBalancer roundRobin() {
+        return new RoundRobin();
+    }
+
+    /**
+     * The calls go to the provider with the least calls in progress, the ties are broken in turn.
+     *
+     * @return the load balancer.
+     */
+    public static LoadBalancer leastOutstanding() {
+        return new LeastOutstanding();
+    }
+
+    /**
+     * The calls go to the best of two providers picked at random, the provider score being its average round-trip
+     * time multiplied by its number of calls in progress. The providers without completed call are tried first.
+     *
+     * @return the load balancer.
+     */
+    public static LoadBalancer latencyWeighted() {
+        return new LatencyWeighted();
+    }
+
+    /**
+     * The calls with the same first argument go to the same provider, as long as it provides the endpoint.
+     * The provider is selected by rendezvous hashing, so a provider leaving only moves its own keys.
+     * The key is hashed with its hashCode method, or with its content for an array, so a key class without hashCode
+     * (using the identity hash code) is not sticky. The calls without argument go to the providers in turn.
+     *
+     * @return the load balancer.
+     */
+    public static LoadBalancer stickyByKey() {
+        return new StickyByKey();
+    }
+
+    /**
+     * Get a load balancer by name.
+     *
+     * @param name the load balancer name (shared, round-robin, least-outstanding, latency-weighted, sticky).
+     * @return the load balancer.
+     */
+    public static LoadBalancer forName(String name) {
+        String trimmed = (name != null) ? name.trim() : ROUND_ROBIN;
+        if (SHARED.equalsIgnoreCase(trimmed)) {
+            return shared();
+        } else if (ROUND_ROBIN.equalsIgnoreCase(trimmed)) {
+            return roundRobin();
+        } else if (LEAST_OUTSTANDING.equalsIgnoreCase(trimmed)) {
+            return leastOutstanding();
+        } else if (LATENCY_WEIGHTED.equalsIgnoreCase(trimmed)) {
+            return latencyWeighted();
+        } else if (STICKY.equalsIgnoreCase(trimmed)) {
+            return stickyByKey();
+        }
+        throw new IllegalArgumentException("Unknown load balancer " + name);
+    }
+
+    private static class RoundRobin extends LoadBalancer {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        int nextIndex(int size) {
+            return (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        }
+
+        @Override
+        public Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call) {
+            return providers.get(nextIndex(providers.size()));
+        }
+
+    }
+
+    private static class LeastOutstanding extends RoundRobin {
+
+        @Override
+        public Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call) {
+            int size = providers.size();
+            int start = nextIndex(size);
+            Node selected = null;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Node node = providers.get((start + i) % size);
+                int outstanding = statistics.getOutstanding(node);
+                if (outstanding < min) {
+                    min = outstanding;
+                    selected = node;
+                }
+            }
+            return selected;
+        }
+
+    }
+
+    private static class LatencyWeighted extends LoadBalancer {
+
+        private final Random random = new Random();
+
+        @Override
+        public Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call) {
+            int size = providers.size();
+            if (size == 1) {
+                return providers.get(0);
+            }
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            Node node1 = providers.get(first);
+            Node node2 = providers.get(second);
+            return score(node1, statistics) <= score(node2, statistics) ? node1 : node2;
+        }
+
+        private static double score(Node node, ProviderStatistics statistics) {
+            long latency = statistics.getLatency(node);
+            int outstanding = statistics.getOutstanding(node);
+            if (latency < 0) {
+                // not measured yet: preferred, the less loaded first
+                return -1.0 / (outstanding + 1);
+            }
+            return (double) latency * (outstanding + 1);
+        }
+
+    }
+
+    private static class StickyByKey extends RoundRobin {
+
+        @Override
+        public Node select(List<Node> providers, ProviderStatistics statistics, RemoteServiceCall call) {
+            List<Object> arguments = call.getArguments();
+            if (arguments == null || arguments.isEmpty() || arguments.get(0) == null) {
+                return super.select(providers, statistics, call);
+            }
+            int key = hash(arguments.get(0));
+            Node selected = null;
+            long max = Long.MIN_VALUE;
+            for (Node node : providers) {
+                long weight = mix(key, node.getId().hashCode());
+                if (selected == null || weight > max) {
+                    max = weight;
+                    selected = node;
+                }
+            }
+            return selected;
+        }
+
+        private static int hash(Object key) {
+            if (key instanceof Object[]) {
+                return Arrays.deepHashCode((Object[]) key);
+            } else if (key instanceof byte[]) {
+                return Arrays.hashCode((byte[]) key);
+            } else if (key instanceof char[]) {
+                return Arrays.hashCode((char[]) key);
+            } else if (key instanceof short[]) {
+                return Arrays.hashCode((short[]) key);
+            } else if (key instanceof int[]) {
+                return Arrays.hashCode((int[]) key);
+            } else if (key instanceof long[]) {
+                return Arrays.hashCode((long[]) key);
+            } else if (key instanceof float[]) {
+                return Arrays.hashCode((float[]) key);
+            } else if (key instanceof double[]) {
+                return Arrays.hashCode((double[]) key);
+            } else if (key instanceof boolean[]) {
+                return Arrays.hashCode((boolean[]) key);
+            }
+            return key.hashCode();
+        }
+
+        private static long mix(int key, int node) {
+            // 64 bits finalizer of MurmurHash3
+            long h = ((long) key << 32) ^ (node & 0xffffffffL);
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+    }
+
+}
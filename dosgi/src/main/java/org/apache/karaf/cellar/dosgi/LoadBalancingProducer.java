@@ -0,0 +1,283 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandCallback;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.EventTransportFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Event producer sending the remote service calls of an imported endpoint to the queue of the provider
+ * selected by a {@link LoadBalancer}. Each provider node consumes its own queue of the endpoint in addition
+ * to the queue shared by all the providers; the calls to the providers which don't advertise their own queue in the
+ * {@link EndpointDescription} are sent to the shared queue.
+ * The providers failing repeatedly are skipped by a {@link CircuitBreaker}, and a call fails fast with a
+ * {@link RemoteServiceUnavailableException} if no provider is available.
+ */
+public class LoadBalancingProducer implements EventProducer<Event> {
+
+    private final String endpointId;
+    private final EventProducer<Event> delegate;
+    private final EventTransportFactory eventTransportFactory;
+    private final LoadBalancer loadBalancer;
+
+    private final ProviderStatistics statistics = new ProviderStatistics();
+    private volatile CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final ConcurrentMap<String, EventProducer<Event>> providerProducers = new ConcurrentHashMap<String, EventProducer<Event>>();
+    private volatile List<Node> providers = Collections.emptyList();
+    // ids of the providers consuming their own queue, null if all the providers do
+    private volatile Set<String> providerQueueNodes;
+    private int batchMaxEvents = RemoteServiceBatchingProducer.DEFAULT_MAX_EVENTS;
+
+    /**
+     * Get the name of the queue of an endpoint consumed by a single provider node.
+     *
+     * @param endpointId the endpoint ID.
+     * @param node the provider node.
+     * @return the provider queue name.
+     */
+    public static String getProviderQueue(String endpointId, Node node) {
+        return Constants.INTERFACE_PREFIX + Constants.SEPARATOR + endpointId + Constants.SEPARATOR + node.getId();
+    }
+
+    /**
+     * Create a load balancing producer.
+     *
+     * @param endpointId the imported endpoint ID.
+     * @param delegate the producer of the queue shared by all the providers of the endpoint.
+     * @param eventTransportFactory the factory of the provider queue producers.
+     * @param loadBalancer the load balancer selecting the provider of each call.
+     */
+    public LoadBalancingProducer(String endpointId, EventProducer<Event> delegate, EventTransportFactory eventTransportFactory, LoadBalancer loadBalancer) {
+        this.endpointId = endpointId;
+        this.delegate = delegate;
+        this.eventTransportFactory = eventTransportFactory;
+        this.loadBalancer = loadBalancer;
+    }
+
+    @Override
+    public void produce(Event event) {
+        if (!(event instanceof RemoteServiceCall)) {
+            delegate.produce(event);
+            return;
+        }
+        RemoteServiceCall call = (RemoteServiceCall) event;
+        final CircuitBreaker breaker = circuitBreaker;
+        List<Node> nodes = getCallableProviders(breaker);
+        Node provider = nodes.isEmpty() ? null : loadBalancer.select(nodes, statistics, call);
+        CircuitBreaker.Permit permit = CircuitBreaker.Permit.DENIED;
+        while (provider != null && consumesProviderQueue(provider)) {
+            permit = breaker.tryAcquire(provider.getId());
+            if (permit.isGranted()) {
+                break;
+            }
+            // a concurrent call is probing the provider
+            nodes = new ArrayList<Node>(nodes);
+            nodes.remove(provider);
+            provider = nodes.isEmpty() ? null : loadBalancer.select(nodes, statistics, call);
+            if (provider == null) {
+                throw new RemoteServiceUnavailableException("All the providers of remote service " + endpointId + " are unavailable");
+            }
+        }
+        if (provider == null || !consumesProviderQueue(provider)) {
+            // the circuit of the shared queue is handled as the one of a single provider
+            permit = breaker.tryAcquire(endpointId);
+            if (!permit.isGranted()) {
+                throw new RemoteServiceUnavailableException("Remote service " + endpointId + " is unavailable");
+            }
+            if (provider != null) {
+                // the selected provider only consumes the shared queue, keep its statistics approximately
+                statistics.onSend(provider);
+            }
+            addCallback(call, breaker, endpointId, permit, provider, System.nanoTime());
+            delegate.produce(event);
+            return;
+        }
+
+        statistics.onSend(provider);
+        addCallback(call, breaker, provider.getId(), permit, provider, System.nanoTime());
+        getProviderProducer(provider).produce(event);
+    }
+
+    /**
+     * Check if a provider consumes its own queue of the endpoint. The providers using the shared load balancing
+     * policy, or predating the provider queues, don't advertise it and only consume the shared queue.
+     *
+     * @param provider the provider node.
+     * @return true if the calls can be sent to the provider queue.
+     */
+    private boolean consumesProviderQueue(Node provider) {
+        Set<String> nodes = providerQueueNodes;
+        return nodes == null || nodes.contains(provider.getId());
+    }
+
+    /**
+     * Get the providers which can be called according to the circuit breaker.
+     *
+     * @param breaker the circuit breaker.
+     * @return the callable providers.
+     * @throws RemoteServiceUnavailableException if no provider can be called.
+     */
+    private List<Node> getCallableProviders(CircuitBreaker breaker) {
+        List<Node> nodes = providers;
+        List<Node> callable = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (!breaker.isCallable(node.getId())) {
+                if (callable == null) {
+                    callable = new ArrayList<Node>(nodes.subList(0, i));
+                }
+            } else if (callable != null) {
+                callable.add(node);
+            }
+        }
+        if (callable == null) {
+            return nodes;
+        }
+        if (callable.isEmpty()) {
+            throw new RemoteServiceUnavailableException("All the providers of remote service " + endpointId + " are unavailable");
+        }
+        return callable;
+    }
+
+    /**
+     * Update the provider statistics and circuit breaker when the call completes.
+     * A call timing out (without result) is a failure, a cancelled call (including a call failing to be sent)
+     * doesn't change the circuit. A call failing with an exception thrown by the remote service is a success, as the
+     * provider handled it.
+     */
+    private void addCallback(RemoteServiceCall call, final CircuitBreaker breaker, final String id, final CircuitBreaker.Permit permit,
+                             final Node provider, final long start) {
+        call.getFuture().addCallback(new CommandCallback<RemoteServiceResult>() {
+            @Override
+            public void onComplete(Map<Node, RemoteServiceResult> results) {
+                if (provider != null) {
+                    // a call timing out counts with its timeout as round-trip time
+                    statistics.onComplete(provider, System.nanoTime() - start);
+                }
+                if (results == null || results.isEmpty()) {
+                    breaker.onFailure(id);
+                } else {
+                    breaker.onSuccess(id);
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                if (provider != null) {
+                    statistics.onComplete(provider, -1);
+                }
+                breaker.onCancel(id, permit);
+            }
+        });
+    }
+
+    private EventProducer<Event> getProviderProducer(Node node) {
+        EventProducer<Event> producer = providerProducers.get(node.getId());
+        if (producer == null) {
+            producer = new RemoteServiceBatchingProducer(eventTransportFactory.getEventProducer(getProviderQueue(endpointId, node), Boolean.FALSE),
+                    batchMaxEvents, RemoteServiceBatchingProducer.DEFAULT_MAX_BYTES);
+            EventProducer<Event> existing = providerProducers.putIfAbsent(node.getId(), producer);
+            if (existing != null) {
+                producer = existing;
+            }
+        }
+        return producer;
+    }
+
+    /**
+     * Update the provider nodes of the endpoint, all consuming their own queue.
+     *
+     * @param nodes the nodes currently providing the endpoint.
+     */
+    public void setProviders(Collection<Node> nodes) {
+        setProviders(nodes, null);
+    }
+
+    /**
+     * Update the provider nodes of the endpoint.
+     *
+     * @param nodes the nodes currently providing the endpoint.
+     * @param queueNodes the ids of the nodes consuming their own queue, null if all the providers do. The calls
+     *                   load balanced to the other providers are sent to the shared queue.
+     */
+    public void setProviders(Collection<Node> nodes, Set<String> queueNodes) {
+        providerQueueNodes = queueNodes == null ? null : Collections.unmodifiableSet(new HashSet<String>(queueNodes));
+        List<Node> updated = new ArrayList<Node>(nodes);
+        Set<String> ids = new HashSet<String>();
+        for (Node node : updated) {
+            ids.add(node.getId());
+        }
+        for (Node node : providers) {
+            if (!ids.contains(node.getId())) {
+                providerProducers.remove(node.getId());
+                statistics.remove(node);
+                circuitBreaker.remove(node.getId());
+            }
+        }
+        providers = Collections.unmodifiableList(updated);
+    }
+
+    public int getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    /**
+     * Set the max number of concurrent calls sent together to a provider, 1 to disable the batching.
+     *
+     * @param batchMaxEvents the max number of calls in a batch.
+     */
+    public void setBatchMaxEvents(int batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public List<Node> getProviders() {
+        return providers;
+    }
+
+    public ProviderStatistics getStatistics() {
+        return statistics;
+    }
+
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return delegate.getSwitch();
+    }
+
+}
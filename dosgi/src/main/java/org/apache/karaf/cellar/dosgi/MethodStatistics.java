@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the calls to a method of a remote service endpoint, on the caller or provider side.
+ * The latency of a call is split in the wait time (in the cluster queues and dispatcher) and the execution time
+ * (in the service).
+ */
+public class MethodStatistics {
+
+    private final String side;
+    private final String endpointId;
+    private final String method;
+    private final long since = System.currentTimeMillis();
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LatencyHistogram wait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    public MethodStatistics(String side, String endpointId, String method) {
+        this.side = side;
+        this.endpointId = endpointId;
+        this.method = method;
+    }
+
+    /**
+     * Count a call in progress.
+     */
+    public void onStart() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Count a successful call and record its latency.
+     *
+     * @param waitTime the wait time in nanoseconds, negative if unknown.
+     * @param executionTime the execution time in nanoseconds, negative if unknown.
+     */
+    public void onComplete(long waitTime, long executionTime) {
+        inFlight.decrementAndGet();
+        count.incrementAndGet();
+        if (waitTime >= 0) {
+            wait.record(waitTime);
+        }
+        if (executionTime >= 0) {
+            execution.record(executionTime);
+        }
+    }
+
+    /**
+     * Count a failed call.
+     */
+    public void onError() {
+        inFlight.decrementAndGet();
+        count.incrementAndGet();
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Get the side of the calls.
+     *
+     * @return {@link ServiceMetrics#CALLER} or {@link ServiceMetrics#PROVIDER}.
+     */
+    public String getSide() {
+        return side;
+    }
+
+    public String getEndpointId() {
+        return endpointId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getSince() {
+        return since;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public LatencyHistogram getWait() {
+        return wait;
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+}
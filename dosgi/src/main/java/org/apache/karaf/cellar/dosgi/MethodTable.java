@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the methods of a remote service interface.
+ * The methods are sorted by signature, so the client and the server nodes compute the same table
+ * for the same interface and a remote call only has to carry the index of the method.
+ */
+public class MethodTable {
+
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    private final Class<?> type;
+    private final Method[] methods;
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+    public MethodTable(Class<?> type) {
+        this.type = type;
+        this.methods = type.getMethods();
+        Arrays.sort(methods, new Comparator<Method>() {
+            @Override
+            public int compare(Method m1, Method m2) {
+                return getSignature(m1).compareTo(getSignature(m2));
+            }
+        });
+        for (int i = 0; i < methods.length; i++) {
+            // a method inherited from several interfaces keeps its first index
+            String signature = getSignature(methods[i]);
+            if (!indexes.containsKey(signature)) {
+                indexes.put(signature, i);
+            }
+            try {
+                methods[i].setAccessible(true);
+            } catch (SecurityException e) {
+                // the method is invoked with the default access checks
+            }
+        }
+    }
+
+    /**
+     * Get the signature of a method: the method name followed by the parameter types.
+     *
+     * @param method the method.
+     * @return the method signature.
+     */
+    public static String getSignature(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Get the interface described by this table.
+     *
+     * @return the interface class.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Get the index of a method.
+     *
+     * @param method the method.
+     * @return the index of the method, -1 if the method is not part of the interface.
+     */
+    public int indexOf(Method method) {
+        Integer index = indexes.get(getSignature(method));
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get a method by index.
+     *
+     * @param index the index of the method.
+     * @return the method or null if the index is out of the table.
+     */
+    public Method getMethod(int index) {
+        if (index < 0 || index >= methods.length) {
+            return null;
+        }
+        return methods[index];
+    }
+
+    /**
+     * Get a method by signature.
+     *
+     * @param signature the method signature.
+     * @return the method or null if the interface doesn't define the signature.
+     */
+    public Method getMethod(String signature) {
+        Integer index = indexes.get(signature);
+        return index != null ? methods[index] : null;
+    }
+
+    /**
+     * Find a method by name compatible with the given arguments.
+     *
+     * @param name the method name.
+     * @param arguments the arguments of the call.
+     * @return the method or null if no method matches.
+     */
+    public Method findMethod(String name, List<Object> arguments) {
+        return findMethod(methods, name, arguments);
+    }
+
+    /**
+     * Find a method by name compatible with the given arguments.
+     * A null argument matches any non primitive parameter and a primitive parameter matches its wrapper type.
+     *
+     * @param methods the candidate methods.
+     * @param name the method name.
+     * @param arguments the arguments of the call.
+     * @return the method or null if no method matches.
+     */
+    public static Method findMethod(Method[] methods, String name, List<Object> arguments) {
+        for (Method method : methods) {
+            if (matches(method, name, arguments)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a method has the given name and is compatible with the given arguments.
+     *
+     * @param method the method.
+     * @param name the method name.
+     * @param arguments the arguments of the call.
+     * @return true if the method can be invoked with the arguments, false else.
+     */
+    public static boolean matches(Method method, String name, List<Object> arguments) {
+        if (!method.getName().equals(name)) {
+            return false;
+        }
+        int size = (arguments != null) ? arguments.size() : 0;
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!isAssignable(parameterTypes[i], arguments.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAssignable(Class<?> parameterType, Object argument) {
+        if (argument == null) {
+            return !parameterType.isPrimitive();
+        }
+        if (argument instanceof RemoteStream) {
+            // a streamed argument is received as its own type
+            return parameterType.isAssignableFrom(((RemoteStream) argument).getType());
+        }
+        Class<?> wrapper = WRAPPERS.get(parameterType);
+        return (wrapper != null ? wrapper : parameterType).isInstance(argument);
+    }
+
+}
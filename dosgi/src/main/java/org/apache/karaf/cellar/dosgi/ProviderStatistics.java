@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statistics of the calls sent to the providers of an imported endpoint, used by the {@link LoadBalancer}.
+ */
+public class ProviderStatistics {
+
+    private final ConcurrentMap<String, Provider> providers = new ConcurrentHashMap<String, Provider>();
+
+    /**
+     * Get the number of calls sent to a provider and not completed yet.
+     *
+     * @param node the provider node.
+     * @return the number of outstanding calls.
+     */
+    public int getOutstanding(Node node) {
+        Provider provider = providers.get(node.getId());
+        return (provider != null) ? provider.outstanding.get() : 0;
+    }
+
+    /**
+     * Get the moving average of the round-trip times of the calls to a provider.
+     *
+     * @param node the provider node.
+     * @return the average round-trip time in nanoseconds, -1 if no call completed yet.
+     */
+    public long getLatency(Node node) {
+        Provider provider = providers.get(node.getId());
+        return (provider != null) ? provider.getLatency() : -1;
+    }
+
+    /**
+     * Record a call sent to a provider.
+     *
+     * @param node the provider node.
+     */
+    public void onSend(Node node) {
+        getProvider(node).outstanding.incrementAndGet();
+    }
+
+    /**
+     * Record the completion of a call.
+     *
+     * @param node the provider node.
+     * @param latency the round-trip time of the call in nanoseconds, or -1 if the call has been cancelled.
+     */
+    public void onComplete(Node node, long latency) {
+        Provider provider = getProvider(node);
+        provider.outstanding.decrementAndGet();
+        if (latency >= 0) {
+            provider.addSample(latency);
+        }
+    }
+
+    /**
+     * Forget a provider which doesn't provide the endpoint anymore.
+     *
+     * @param node the provider node.
+     */
+    public void remove(Node node) {
+        providers.remove(node.getId());
+    }
+
+    private Provider getProvider(Node node) {
+        Provider provider = providers.get(node.getId());
+        if (provider == null) {
+            provider = new Provider();
+            Provider existing = providers.putIfAbsent(node.getId(), provider);
+            if (existing != null) {
+                provider = existing;
+            }
+        }
+        return provider;
+    }
+
+    private static class Provider {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private long latency = -1;
+
+        synchronized long getLatency() {
+            return latency;
+        }
+
+        synchronized void addSample(long sample) {
+            // exponentially weighted moving average, the last samples weight 1/4
+            latency = (latency < 0) ? sample : latency + (sample - latency) / 4;
+        }
+
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.serialization.SizeEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event producer coalescing the remote service calls (or results) sent concurrently to the same queue.
+ * The first thread sends its event right away. The events produced by the other threads while a send is in
+ * progress are queued and sent together in an {@link EventBatch} as soon as the send completes, so a single caller
+ * doesn't wait for a linger time and concurrent callers share the queue round-trips.
+ * The sending thread sends at most {@link #SEND_ROUNDS} batches, then one of the threads waiting for their queued
+ * event to be sent takes over, so a caller doesn't keep sending the events of the others.
+ */
+public class RemoteServiceBatchingProducer implements EventProducer<Event> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(RemoteServiceBatchingProducer.class);
+
+    public static final int DEFAULT_MAX_EVENTS = 100;
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024;
+    // the batch with the event of the sending thread, and one more batch of the events queued meanwhile
+    public static final int SEND_ROUNDS = 2;
+
+    private final EventProducer<Event> delegate;
+    private final int maxEvents;
+    private final long maxBytes;
+
+    private final Object lock = new Object();
+    private List<Event> pending = new ArrayList<Event>();
+    private boolean sending = false;
+    // number of events queued, and number of events taken by a sending thread
+    private long queued = 0;
+    private long taken = 0;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedEventCount = new AtomicLong();
+
+    public RemoteServiceBatchingProducer(EventProducer<Event> delegate) {
+        this(delegate, DEFAULT_MAX_EVENTS, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Create a batching producer.
+     *
+     * @param delegate the producer of the queue.
+     * @param maxEvents the max number of events in a batch.
+     * @param maxBytes the max estimated size (in bytes) of a batch.
+     */
+    public RemoteServiceBatchingProducer(EventProducer<Event> delegate, int maxEvents, long maxBytes) {
+        this.delegate = delegate;
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void produce(Event event) {
+        if (maxEvents <= 1) {
+            delegate.produce(event);
+            return;
+        }
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                pending.add(event);
+                long ticket = ++queued;
+                while (sending) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    if (ticket <= taken) {
+                        // sent by the thread currently sending
+                        return;
+                    }
+                }
+                sending = true;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            for (int round = 0; round < SEND_ROUNDS; round++) {
+                List<Event> events;
+                synchronized (lock) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    events = pending;
+                    pending = new ArrayList<Event>();
+                    taken = queued;
+                    // release the threads whose events are taken
+                    lock.notifyAll();
+                }
+                send(events, event);
+            }
+        } finally {
+            synchronized (lock) {
+                sending = false;
+                // a thread waiting with a queued event sends it
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Send the events, in chunks limited by the max number of events and the max size.
+     * If a chunk can't be sent, the events not sent yet are failed, and the exception is only propagated to the
+     * caller if its own event is one of them (otherwise its event has been delivered).
+     *
+     * @param events the events to send.
+     * @param own the event produced by the calling thread.
+     */
+    private void send(List<Event> events, Event own) {
+        int start = 0;
+        while (start < events.size()) {
+            int end = start + 1;
+            long bytes = SizeEstimator.estimate(events.get(start));
+            while (end < events.size() && end - start < maxEvents) {
+                bytes += SizeEstimator.estimate(events.get(end));
+                if (bytes > maxBytes) {
+                    break;
+                }
+                end++;
+            }
+            List<Event> chunk = events.subList(start, end);
+            try {
+                if (chunk.size() == 1) {
+                    delegate.produce(chunk.get(0));
+                } else {
+                    EventBatch batch = new EventBatch(chunk.get(0).getId());
+                    batch.setEvents(new ArrayList<Event>(chunk));
+                    delegate.produce(batch);
+                    batchCount.incrementAndGet();
+                    batchedEventCount.addAndGet(chunk.size());
+                }
+            } catch (RuntimeException e) {
+                // the events of the other threads can't be sent either
+                boolean ownFailed = false;
+                for (Event event : events.subList(start, events.size())) {
+                    if (event != own) {
+                        fail(event, e);
+                    } else {
+                        ownFailed = true;
+                        if (own instanceof Command) {
+                            ((Command) own).getFuture().cancel(false);
+                        }
+                    }
+                }
+                if (ownFailed) {
+                    throw e;
+                }
+                LOGGER.warn("CELLAR DOSGI: failed to send the queued events", e);
+                return;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Fail an event of another thread which can't be sent: the caller waiting for a call is released by cancelling
+     * the call future, a result is lost (the caller will time out).
+     *
+     * @param event the event not sent.
+     * @param cause the send failure, or null if the event has not been sent because of a previous failure.
+     */
+    private void fail(Event event, Exception cause) {
+        if (event instanceof Command) {
+            ((Command) event).getFuture().cancel(false);
+        } else {
+            LOGGER.warn("CELLAR DOSGI: event {} not sent, the queue is not available", event.getId(), cause);
+        }
+    }
+
+    /**
+     * Get the number of batches sent.
+     *
+     * @return the number of batches.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Get the number of events sent in batches.
+     *
+     * @return the number of batched events.
+     */
+    public long getBatchedEventCount() {
+        return batchedEventCount.get();
+    }
+
+    public EventProducer<Event> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return delegate.getSwitch();
+    }
+
+}
@@ -14,18 +14,25 @@
 package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Cluster remote service call event.
  */
-public class RemoteServiceCall extends Command<RemoteServiceResult> {
+public class RemoteServiceCall extends Command<RemoteServiceResult> implements CellarSerializable {
 
     private String endpointId;
     private String method;
+    private int methodIndex = -1;
     private String serviceClass;
     private List<Object> arguments;
+    private long timestamp;
 
     public RemoteServiceCall(String id) {
         super(id);
@@ -47,6 +54,19 @@ public class RemoteServiceCall extends Command<RemoteServiceResult> {
         this.method = method;
     }
 
+    /**
+     * Get the index of the method in the {@link MethodTable} of the service interface.
+     *
+     * @return the method index, -1 if unknown.
+     */
+    public int getMethodIndex() {
+        return methodIndex;
+    }
+
+    public void setMethodIndex(int methodIndex) {
+        this.methodIndex = methodIndex;
+    }
+
     public String getServiceClass() {
         return serviceClass;
     }
@@ -55,6 +75,19 @@ public class RemoteServiceCall extends Command<RemoteServiceResult> {
         this.serviceClass = serviceClass;
     }
 
+    /**
+     * Get the time when the call has been sent by the caller node.
+     *
+     * @return the time in milliseconds since the epoch, 0 if unknown.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     public String getEndpointId() {
         return endpointId;
     }
@@ -63,4 +96,49 @@ public class RemoteServiceCall extends Command<RemoteServiceResult> {
         this.endpointId = endpointId;
     }
 
+    @Override
+    public int getFactoryId() {
+        return DosgiEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return DosgiEventTypeFactory.REMOTE_SERVICE_CALL;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(endpointId);
+        out.writeString(method);
+        out.writeInt(methodIndex);
+        out.writeString(serviceClass);
+        out.writeLong(timestamp);
+        out.writeInt(arguments == null ? -1 : arguments.size());
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                out.writeObject(argument);
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        endpointId = in.readString();
+        method = in.readString();
+        methodIndex = in.readInt();
+        serviceClass = in.readString();
+        timestamp = in.readLong();
+        int size = in.readInt();
+        if (size < 0) {
+            arguments = null;
+        } else {
+            arguments = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                arguments.add(in.readObject());
+            }
+        }
+    }
+
 }
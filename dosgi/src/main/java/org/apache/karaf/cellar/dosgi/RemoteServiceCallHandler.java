@@ -14,7 +14,8 @@
 package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.CellarSupport;
-import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeListener;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
@@ -22,19 +23,26 @@ import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
-import org.osgi.service.cm.Configuration;
+import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Handler for cluster remote service call event.
+ * The result producer of a caller node is released when the node leaves the cluster.
  */
-public class RemoteServiceCallHandler extends CellarSupport implements EventHandler<RemoteServiceCall> {
+public class RemoteServiceCallHandler extends CellarSupport implements EventHandler<RemoteServiceCall>, NodeListener {
 
     public static final String SWITCH_ID = "org.apache.karaf.cellar.dosgi.switch";
 
@@ -44,7 +52,15 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
 
     private BundleContext bundleContext;
 
+    private final ConcurrentMap<String, ServiceTracker> trackers = new ConcurrentHashMap<String, ServiceTracker>();
+    private final ConcurrentMap<String, MethodTable> methodTables = new ConcurrentHashMap<String, MethodTable>();
+    private final ConcurrentMap<String, EventProducer> resultProducers = new ConcurrentHashMap<String, EventProducer>();
+
+    private int batchMaxEvents = RemoteServiceBatchingProducer.DEFAULT_MAX_EVENTS;
+
     private EventTransportFactory eventTransportFactory;
+    private RemoteStreamManager streamManager;
+    private ServiceMetrics serviceMetrics;
 
     /**
      * Handle a cluster remote service call event.
@@ -52,7 +68,7 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
      * @param event the cluster event to handle.
      */
     @Override
-    public void handle(RemoteServiceCall event) {
+    public void handle(final RemoteServiceCall event) {
 
         // check if the handler switch is ON
         if (this.getSwitch().getStatus().equals(SwitchStatus.OFF)) {
@@ -60,54 +76,287 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
             return;
         }
 
-        Object targetService = null;
-
         if (event != null) {
-            ServiceReference[] serviceReferences = null;
-            try {
-                serviceReferences = bundleContext.getServiceReferences(event.getServiceClass(), null);
-                if (serviceReferences != null && serviceReferences.length > 0) {
-                    targetService = bundleContext.getService(serviceReferences[0]);
-                    bundleContext.ungetService(serviceReferences[0]);
-                }
-            } catch (InvalidSyntaxException e) {
-                LOGGER.error("CELLAR DOSGI: failed to lookup service", e);
-            }
+            final Object targetService = getTracker(event.getServiceClass()).getService();
 
             if (targetService != null) {
-                Class[] classes = new Class[0];
-                if (event.getArguments() != null && event.getArguments().size() > 0) {
-                    classes = new Class[event.getArguments().size()];
-                    int i = 0;
-                    for (Object obj : event.getArguments()) {
-                        classes[i++] = obj.getClass();
-                    }
+                final Method method = getMethod(event, targetService);
+                if (method == null) {
+                    LOGGER.error("CELLAR DOSGI: unable to find remote method {} for service {}", event.getMethod(), event.getServiceClass());
+                    return;
                 }
 
-                try {
-                    Method method;
-                    if (classes.length > 0) {
-                        method = targetService.getClass().getMethod(event.getMethod(), classes);
+                if (streamManager != null) {
+                    // the service is invoked out of the dispatcher threads, so a slow service doesn't delay the
+                    // other cluster events, and the streamed arguments can be read while the dispatcher threads
+                    // deliver the chunks
+                    streamManager.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            invoke(event, targetService, method);
+                        }
+                    });
+                } else {
+                    invoke(event, targetService, method);
+                }
+            }
+        }
+    }
+
+    /**
+     * Invoke the remote method on the target service and send the result to the caller node.
+     * The result of an asynchronous method is sent when its future completes, without blocking the calling thread.
+     * An exception thrown by the service is sent to the caller node instead of the result.
+     *
+     * @param event the remote service call.
+     * @param targetService the target service.
+     * @param method the method to invoke.
+     */
+    private void invoke(final RemoteServiceCall event, Object targetService, Method method) {
+        MethodStatistics statistics = null;
+        if (serviceMetrics != null) {
+            statistics = serviceMetrics.getStatistics(ServiceMetrics.PROVIDER,
+                    (event.getEndpointId() != null) ? event.getEndpointId() : event.getServiceClass(), MethodTable.getSignature(method));
+            statistics.onStart();
+        }
+        boolean completed = false;
+        try {
+            Object[] arguments = getArguments(event);
+            final long start = System.nanoTime();
+            // the wait time relies on the clocks of the caller and provider nodes
+            final long waitTime = (event.getTimestamp() > 0) ? TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - event.getTimestamp())) : -1;
+            Object obj = method.invoke(targetService, arguments);
+            if (obj instanceof Future && RemoteServiceFuture.isAsync(method.getReturnType())) {
+                // asynchronous service: the caller expects the value of the future
+                final Future future = (Future) obj;
+                final MethodStatistics futureStatistics = statistics;
+                Runnable completion = new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(event, future, start, waitTime, futureStatistics);
+                    }
+                };
+                if (future.isDone()) {
+                    completion.run();
+                } else if (!RemoteServiceFuture.whenComplete(future, completion)) {
+                    // a plain future can only be waited for, out of the dispatcher threads
+                    if (streamManager != null) {
+                        streamManager.execute(completion);
                     } else {
-                        method = targetService.getClass().getMethod(event.getMethod());
+                        completion.run();
                     }
+                }
+                completed = true;
+                return;
+            }
+            sendResult(event, (streamManager != null) ? streamManager.export(obj, method.getReturnType()) : obj, start, waitTime, statistics);
+            completed = true;
+
+        } catch (IOException e) {
+            LOGGER.error("CELLAR DOSGI: unable to read streamed arguments for remote method", e);
+        } catch (InvocationTargetException e) {
+            LOGGER.debug("CELLAR DOSGI: remote method {} of service {} failed", event.getMethod(), event.getServiceClass(), e.getCause());
+            sendError(event, e.getCause());
+        } catch (IllegalAccessException e) {
+            LOGGER.error("CELLAR DOSGI: unable to access remote method for service", e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("CELLAR DOSGI: invalid arguments for remote method", e);
+        } finally {
+            if (statistics != null && !completed) {
+                statistics.onError();
+            }
+        }
+    }
+
+    /**
+     * Send the value of the future returned by an asynchronous remote method.
+     *
+     * @param event the remote service call.
+     * @param future the future returned by the method.
+     * @param start the time when the method has been invoked.
+     * @param waitTime the time between the call sent by the caller and its execution.
+     * @param statistics the method statistics, possibly null.
+     */
+    private void complete(RemoteServiceCall event, Future future, long start, long waitTime, MethodStatistics statistics) {
+        boolean completed = false;
+        try {
+            Object obj = future.get(event.getTimeout(), TimeUnit.MILLISECONDS);
+            sendResult(event, (streamManager != null) ? streamManager.export(obj, Object.class) : obj, start, waitTime, statistics);
+            completed = true;
+        } catch (ExecutionException e) {
+            LOGGER.debug("CELLAR DOSGI: asynchronous remote method {} of service {} failed", event.getMethod(), event.getServiceClass(), e.getCause());
+            sendError(event, e.getCause());
+        } catch (CancellationException e) {
+            sendError(event, e);
+        } catch (TimeoutException e) {
+            LOGGER.error("CELLAR DOSGI: asynchronous remote method for service timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (statistics != null && !completed) {
+                statistics.onError();
+            }
+        }
+    }
+
+    private void sendResult(RemoteServiceCall event, Object value, long start, long waitTime, MethodStatistics statistics) {
+        long executionTime = System.nanoTime() - start;
+        RemoteServiceResult result = new RemoteServiceResult(event.getId());
+        result.setResult(value);
+        result.setExecutionTime(executionTime);
+
+        try {
+            getResultProducer(event.getSourceNode().getId()).produce(result);
+        } catch (RuntimeException e) {
+            // the caller will never read a streamed result
+            if (streamManager != null) {
+                streamManager.release(value);
+            }
+            throw e;
+        }
+        if (statistics != null) {
+            statistics.onComplete(waitTime, executionTime);
+        }
+    }
+
+    /**
+     * Send the exception thrown by the remote method to the caller node. The call is a failure for the method
+     * statistics, but the provider has handled it.
+     *
+     * @param event the remote service call.
+     * @param error the exception thrown by the remote method.
+     */
+    private void sendError(RemoteServiceCall event, Throwable error) {
+        RemoteServiceResult result = new RemoteServiceResult(event.getId());
+        result.setError(error);
+        getResultProducer(event.getSourceNode().getId()).produce(result);
+    }
+
+    private Object[] getArguments(RemoteServiceCall event) throws IOException {
+        if (event.getArguments() == null) {
+            return new Object[0];
+        }
+        Object[] arguments = event.getArguments().toArray();
+        if (streamManager != null) {
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = streamManager.resolve(arguments[i]);
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Get the tracker of the services implementing an exported interface.
+     * The tracker is opened on the first call to the interface and closed when the handler is destroyed.
+     *
+     * @param serviceClass the exported interface.
+     * @return the service tracker.
+     */
+    private ServiceTracker getTracker(String serviceClass) {
+        ServiceTracker tracker = trackers.get(serviceClass);
+        if (tracker == null) {
+            synchronized (trackers) {
+                tracker = trackers.get(serviceClass);
+                if (tracker == null) {
+                    tracker = new ServiceTracker(bundleContext, serviceClass, null);
+                    tracker.open();
+                    trackers.put(serviceClass, tracker);
+                }
+            }
+        }
+        return tracker;
+    }
 
-                    Object obj = method.invoke(targetService, event.getArguments().toArray());
-                    RemoteServiceResult result = new RemoteServiceResult(event.getId());
-                    result.setResult(obj);
+    /**
+     * Get the producer of the results sent to a caller node.
+     * A caller node consumes the results of the calls to all the endpoints it imports from a single queue.
+     * The results of the calls handled concurrently are sent together.
+     *
+     * @param nodeId the caller node ID.
+     * @return the result producer.
+     */
+    private EventProducer getResultProducer(String nodeId) {
+        EventProducer producer = resultProducers.get(nodeId);
+        if (producer == null) {
+            synchronized (resultProducers) {
+                producer = resultProducers.get(nodeId);
+                if (producer == null) {
+                    producer = new RemoteServiceBatchingProducer(eventTransportFactory.getEventProducer(Constants.RESULT_PREFIX + Constants.SEPARATOR + nodeId, false),
+                            batchMaxEvents, RemoteServiceBatchingProducer.DEFAULT_MAX_BYTES);
+                    resultProducers.put(nodeId, producer);
+                }
+            }
+        }
+        return producer;
+    }
+
+    /**
+     * Resolve the method of a remote service call.
+     * The method index is looked up in the method table of the endpoint, and used only if the method matches the name
+     * and arguments of the call, as the caller may use another version of the interface. Else the method is resolved
+     * by name and arguments.
+     *
+     * @param event the remote service call.
+     * @param targetService the target service.
+     * @return the method to invoke or null if not found.
+     */
+    private Method getMethod(RemoteServiceCall event, Object targetService) {
+        String key = (event.getEndpointId() != null) ? event.getEndpointId() : event.getServiceClass();
+        MethodTable methodTable = methodTables.get(key);
+        if (methodTable == null || !methodTable.getType().isInstance(targetService)) {
+            // first call on the endpoint or the service has been replaced by a new class
+            Class<?> type = getInterface(targetService.getClass(), event.getServiceClass());
+            methodTable = new MethodTable(type != null ? type : targetService.getClass());
+            methodTables.put(key, methodTable);
+        }
 
-                    EventProducer producer = eventTransportFactory.getEventProducer(Constants.RESULT_PREFIX + Constants.SEPARATOR + event.getSourceNode().getId() + event.getEndpointId(), false);
-                    producer.produce(result);
+        Method method = methodTable.getMethod(event.getMethodIndex());
+        if (method == null || !MethodTable.matches(method, event.getMethod(), event.getArguments())) {
+            method = methodTable.findMethod(event.getMethod(), event.getArguments());
+            if (method == null) {
+                method = MethodTable.findMethod(targetService.getClass().getMethods(), event.getMethod(), event.getArguments());
+            }
+        }
+        return method;
+    }
+
+    /**
+     * Release the result producer of a caller node leaving the cluster.
+     *
+     * @param node the node which left the cluster.
+     */
+    @Override
+    public void nodeRemoved(Node node) {
+        resultProducers.remove(node.getId());
+    }
 
-                } catch (NoSuchMethodException e) {
-                    LOGGER.error("CELLAR DOSGI: unable to find remote method for service", e);
-                } catch (InvocationTargetException e) {
-                    LOGGER.error("CELLAR DOSGI: unable to invoke remote method for service", e);
-                } catch (IllegalAccessException e) {
-                    LOGGER.error("CELLAR DOSGI: unable to access remote method for service", e);
+    private static Class<?> getInterface(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            if (c.getName().equals(name)) {
+                return c;
+            }
+            for (Class<?> i : c.getInterfaces()) {
+                Class<?> found = getInterface(i, name);
+                if (found != null) {
+                    return found;
                 }
             }
         }
+        return null;
+    }
+
+    /**
+     * Close the service trackers and release the result producers.
+     */
+    public void destroy() {
+        synchronized (trackers) {
+            for (ServiceTracker tracker : trackers.values()) {
+                tracker.close();
+            }
+            trackers.clear();
+        }
+        methodTables.clear();
+        resultProducers.clear();
     }
 
     /**
@@ -127,19 +376,13 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    dosgiSwitch.turnOn();
-                } else {
-                    dosgiSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getHandlerStatus(this.getClass().getName()).equals(SwitchStatus.ON)) {
+                dosgiSwitch.turnOn();
+            } else {
+                dosgiSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // ignore
         }
         return dosgiSwitch;
     }
@@ -152,6 +395,30 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
         this.bundleContext = bundleContext;
     }
 
+    public int getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public void setBatchMaxEvents(int batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
+    public RemoteStreamManager getStreamManager() {
+        return streamManager;
+    }
+
+    public void setStreamManager(RemoteStreamManager streamManager) {
+        this.streamManager = streamManager;
+    }
+
     public EventTransportFactory getEventTransportFactory() {
         return eventTransportFactory;
     }
@@ -31,11 +31,18 @@ public class RemoteServiceFactory implements ServiceFactory {
     private EndpointDescription description;
     private ClusterManager clusterManager;
     private ExecutionContext executionContext;
+    private RemoteStreamManager streamManager;
+    private ServiceMetrics serviceMetrics;
 
     public RemoteServiceFactory(EndpointDescription description, ClusterManager clusterManager, ExecutionContext executionContext) {
+        this(description, clusterManager, executionContext, null);
+    }
+
+    public RemoteServiceFactory(EndpointDescription description, ClusterManager clusterManager, ExecutionContext executionContext, RemoteStreamManager streamManager) {
         this.description = description;
         this.clusterManager = clusterManager;
         this.executionContext = executionContext;
+        this.streamManager = streamManager;
     }
 
     @Override
@@ -49,9 +56,20 @@ public class RemoteServiceFactory implements ServiceFactory {
                 // Ignore
             }
         RemoteServiceInvocationHandler handler = new RemoteServiceInvocationHandler(description.getId(), interfaceName,clusterManager,executionContext);
+        handler.setStreamManager(streamManager);
+        handler.setServiceMetrics(serviceMetrics);
+        handler.setProperties(description.getProperties());
         return Proxy.newProxyInstance(classLoader, interfaces.toArray(new Class[interfaces.size()]), handler);
     }
 
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
     @Override
     public void ungetService(Bundle bundle, ServiceRegistration registration, Object service) {
         // nothing to do
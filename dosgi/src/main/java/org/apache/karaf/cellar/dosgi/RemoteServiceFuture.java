@@ -0,0 +1,284 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandCallback;
+import org.apache.karaf.cellar.core.command.CommandFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future of the value returned by an asynchronous remote service call.
+ * A remote method declared to return a {@link Future} gets this future, a remote method declared to return a
+ * CompletableFuture or a CompletionStage gets a CompletableFuture completed when the remote service result arrives.
+ * The CompletableFuture is handled by reflection as it's not available on all the supported Java versions.
+ * The CompletableFuture is completed out of the dispatcher and timer threads, so the dependent stages of the caller
+ * don't run on the Cellar internal threads. A value sent in chunks is read once.
+ */
+public class RemoteServiceFuture implements Future<Object>, CommandCallback<RemoteServiceResult> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(RemoteServiceFuture.class);
+
+    private static final String COMPLETABLE_FUTURE = "java.util.concurrent.CompletableFuture";
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+    private static final String BI_CONSUMER = "java.util.function.BiConsumer";
+
+    private static final Class<?> COMPLETABLE_FUTURE_CLASS;
+    private static final Method COMPLETE;
+    private static final Method COMPLETE_EXCEPTIONALLY;
+    private static final Method CANCEL;
+    private static final Class<?> BI_CONSUMER_CLASS;
+    private static final Method WHEN_COMPLETE;
+
+    static {
+        Class<?> type = null;
+        Method complete = null;
+        Method completeExceptionally = null;
+        Method cancel = null;
+        Class<?> biConsumer = null;
+        Method whenComplete = null;
+        try {
+            type = Class.forName(COMPLETABLE_FUTURE);
+            complete = type.getMethod("complete", Object.class);
+            completeExceptionally = type.getMethod("completeExceptionally", Throwable.class);
+            cancel = type.getMethod("cancel", boolean.class);
+            biConsumer = Class.forName(BI_CONSUMER);
+            whenComplete = type.getMethod("whenComplete", biConsumer);
+        } catch (Exception e) {
+            // Java runtime without CompletableFuture
+            type = null;
+        }
+        COMPLETABLE_FUTURE_CLASS = type;
+        COMPLETE = complete;
+        COMPLETE_EXCEPTIONALLY = completeExceptionally;
+        CANCEL = cancel;
+        BI_CONSUMER_CLASS = biConsumer;
+        WHEN_COMPLETE = whenComplete;
+    }
+
+    private final String id;
+    private final CommandFuture<RemoteServiceResult> future;
+    private final Object completableFuture;
+    private final RemoteStreamManager streamManager;
+    private Object value;
+    private boolean resolved;
+
+    /**
+     * Check if a remote method is called asynchronously.
+     *
+     * @param returnType the return type of the remote method.
+     * @return true if the method returns a future, false else.
+     */
+    public static boolean isAsync(Class<?> returnType) {
+        return returnType == Future.class
+                || returnType.getName().equals(COMPLETABLE_FUTURE)
+                || returnType.getName().equals(COMPLETION_STAGE);
+    }
+
+    /**
+     * Run a task when a future completes, without waiting for it.
+     * Only a CompletableFuture notifies its completion, the task is run by the thread completing the future.
+     *
+     * @param future the future.
+     * @param task the task to run when the future completes.
+     * @return true if the task will be run, false if the future doesn't notify its completion.
+     */
+    public static boolean whenComplete(Object future, final Runnable task) {
+        if (COMPLETABLE_FUTURE_CLASS == null || !COMPLETABLE_FUTURE_CLASS.isInstance(future)) {
+            return false;
+        }
+        Object action = Proxy.newProxyInstance(RemoteServiceFuture.class.getClassLoader(), new Class[]{ BI_CONSUMER_CLASS }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("accept")) {
+                    task.run();
+                    return null;
+                } else if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                return task.toString();
+            }
+        });
+        try {
+            WHEN_COMPLETE.invoke(future, action);
+            return true;
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR DOSGI: failed to register the completion of a future", e);
+            return false;
+        }
+    }
+
+    /**
+     * Create the future of a remote service call.
+     *
+     * @param id the remote service call ID.
+     * @param future the future of the remote service call results.
+     * @param returnType the return type of the remote method.
+     */
+    public RemoteServiceFuture(String id, CommandFuture<RemoteServiceResult> future, Class<?> returnType) {
+        this(id, future, returnType, null);
+    }
+
+    /**
+     * Create the future of a remote service call, with a value possibly sent in chunks.
+     *
+     * @param id the remote service call ID.
+     * @param future the future of the remote service call results.
+     * @param returnType the return type of the remote method.
+     * @param streamManager the manager of the remote streams, possibly null.
+     */
+    public RemoteServiceFuture(String id, CommandFuture<RemoteServiceResult> future, Class<?> returnType, RemoteStreamManager streamManager) {
+        this.id = id;
+        this.future = future;
+        this.streamManager = streamManager;
+        this.completableFuture = (returnType == Future.class) ? null : newCompletableFuture();
+        future.addCallback(this);
+    }
+
+    /**
+     * Get the object returned to the caller of the remote method.
+     *
+     * @return this future, or the CompletableFuture.
+     */
+    public Object getReturnValue() {
+        return (completableFuture != null) ? completableFuture : this;
+    }
+
+    @Override
+    public void onComplete(final Map<Node, RemoteServiceResult> results) {
+        if (completableFuture == null) {
+            return;
+        }
+        if (streamManager != null) {
+            streamManager.execute(new Runnable() {
+                @Override
+                public void run() {
+                    complete(results);
+                }
+            });
+        } else {
+            complete(results);
+        }
+    }
+
+    private void complete(Map<Node, RemoteServiceResult> results) {
+        try {
+            invoke(COMPLETE, getValue(results));
+        } catch (ExecutionException e) {
+            invoke(COMPLETE_EXCEPTIONALLY, e.getCause());
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        if (completableFuture == null) {
+            return;
+        }
+        if (streamManager != null) {
+            streamManager.execute(new Runnable() {
+                @Override
+                public void run() {
+                    invoke(CANCEL, false);
+                }
+            });
+        } else {
+            invoke(CANCEL, false);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return future.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+        return getValue(future.get());
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return getValue(future.get(timeout, unit));
+    }
+
+    private synchronized Object getValue(Map<Node, RemoteServiceResult> results) throws ExecutionException {
+        if (resolved) {
+            return value;
+        }
+        if (results != null) {
+            for (RemoteServiceResult result : results.values()) {
+                if (result.getError() != null) {
+                    // the exception thrown by the remote service
+                    throw new ExecutionException(result.getError());
+                }
+                value = result.getResult();
+                if (streamManager != null) {
+                    try {
+                        value = streamManager.resolve(value);
+                    } catch (IOException e) {
+                        throw new ExecutionException(e);
+                    }
+                }
+                resolved = true;
+                return value;
+            }
+        }
+        // the command timed out without result
+        throw new ExecutionException(new TimeoutException("Remote service call " + id + " timed out"));
+    }
+
+    private static Object newCompletableFuture() {
+        if (COMPLETABLE_FUTURE_CLASS == null) {
+            throw new UnsupportedOperationException(COMPLETABLE_FUTURE + " is not available");
+        }
+        try {
+            return COMPLETABLE_FUTURE_CLASS.newInstance();
+        } catch (Exception e) {
+            throw new UnsupportedOperationException(COMPLETABLE_FUTURE + " is not available", e);
+        }
+    }
+
+    private void invoke(Method method, Object argument) {
+        try {
+            method.invoke(completableFuture, argument);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR DOSGI: failed to complete the future of remote service call {}", id, e);
+        }
+    }
+
+}
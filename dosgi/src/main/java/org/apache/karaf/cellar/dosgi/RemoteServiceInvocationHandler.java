@@ -15,23 +15,37 @@ package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandCallback;
+import org.apache.karaf.cellar.core.command.CompletionPolicy;
 import org.apache.karaf.cellar.core.command.ExecutionContext;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Handler for cluster remote service invocation event.
  */
 public class RemoteServiceInvocationHandler implements InvocationHandler {
 
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(RemoteServiceInvocationHandler.class);
+
     private String endpointId;
     private String serviceClass;
     private ClusterManager clusterManager;
     private ExecutionContext executionContext;
+    private RemoteStreamManager streamManager;
+    private ServiceMetrics serviceMetrics;
+    private Map<String, Object> properties;
+    private final ConcurrentMap<Method, Long> timeouts = new ConcurrentHashMap<Method, Long>();
+    private volatile MethodTable methodTable;
 
     public RemoteServiceInvocationHandler(String endpointId,String serviceClass, ClusterManager clusterManager, ExecutionContext executionContext) {
         this.endpointId = endpointId;
@@ -45,25 +59,195 @@ public class RemoteServiceInvocationHandler implements InvocationHandler {
         RemoteServiceCall remoteServiceCall = new RemoteServiceCall(clusterManager.generateId());
         remoteServiceCall.setEndpointId(endpointId);
         remoteServiceCall.setMethod(method.getName());
+        remoteServiceCall.setMethodIndex(getMethodTable(o, method).indexOf(method));
         remoteServiceCall.setServiceClass(serviceClass);
+        // the call is consumed by a single node of the endpoint queue
+        remoteServiceCall.setCompletionPolicy(CompletionPolicy.any());
         List argumentList = new LinkedList();
 
         if(arguments != null && arguments.length > 0) {
-            for(Object arg:arguments) {
-                argumentList.add(arg);
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < arguments.length; i++) {
+                // large arguments are pulled in chunks by the provider
+                argumentList.add(streamManager != null ? streamManager.export(arguments[i], parameterTypes[i]) : arguments[i]);
             }
         }
 
         remoteServiceCall.setArguments(argumentList);
+        if (RemoteStreamManager.containsStream(argumentList)) {
+            release(remoteServiceCall, streamManager);
+        }
+        remoteServiceCall.setTimestamp(System.currentTimeMillis());
+        long timeout = getTimeout(method);
+        if (timeout > 0) {
+            remoteServiceCall.setTimeout(timeout);
+        }
+        if (serviceMetrics != null) {
+            record(remoteServiceCall, serviceMetrics.getStatistics(ServiceMetrics.CALLER, endpointId, MethodTable.getSignature(method)));
+        }
+
+        if (RemoteServiceFuture.isAsync(method.getReturnType())) {
+            // the caller gets a future completed by the remote service result, without waiting for it
+            RemoteServiceFuture future = new RemoteServiceFuture(remoteServiceCall.getId(), executionContext.executeAsync(remoteServiceCall), method.getReturnType(), streamManager);
+            return future.getReturnValue();
+        }
+
         Map<Node,RemoteServiceResult> results =  executionContext.execute(remoteServiceCall);
 
         if(results != null) {
             for(Map.Entry<Node,RemoteServiceResult> entry:results.entrySet()) {
                 RemoteServiceResult result = entry.getValue();
-                return result.getResult();
+                if (result.getError() != null) {
+                    // the exception thrown by the remote service
+                    throw result.getError();
+                }
+                return streamManager != null ? streamManager.resolve(result.getResult()) : result.getResult();
+            }
+        }
+        // a null result would be returned as a valid value, or fail to be unboxed to a primitive return type
+        throw new RemoteServiceTimeoutException("Remote service " + endpointId + " call " + remoteServiceCall.getId()
+                + " to method " + method.getName() + " timed out");
+    }
+
+    /**
+     * Get the timeout of the calls to a method, defined by the endpoint properties: the {@link Constants#TIMEOUT}
+     * property suffixed by the method signature (to distinguish the overloaded methods), by the method name, or the
+     * {@link Constants#TIMEOUT} property of all the methods.
+     *
+     * @param method the invoked method.
+     * @return the timeout in milliseconds, -1 to use the default timeout.
+     */
+    private long getTimeout(Method method) {
+        Long timeout = timeouts.get(method);
+        if (timeout == null) {
+            timeout = -1L;
+            if (properties != null) {
+                Object value = properties.get(Constants.TIMEOUT + "." + MethodTable.getSignature(method));
+                if (value == null) {
+                    value = properties.get(Constants.TIMEOUT + "." + method.getName());
+                }
+                if (value == null) {
+                    value = properties.get(Constants.TIMEOUT);
+                }
+                if (value != null) {
+                    try {
+                        timeout = (value instanceof Number) ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+                    } catch (NumberFormatException e) {
+                        LOGGER.warn("CELLAR DOSGI: invalid timeout {} for remote service {}", value, endpointId);
+                    }
+                }
+            }
+            timeouts.put(method, timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Release the streamed arguments of a call if it's not sent (the call is then cancelled) or cancelled.
+     *
+     * @param call the remote service call.
+     * @param streamManager the manager of the streamed arguments.
+     */
+    private static void release(final RemoteServiceCall call, final RemoteStreamManager streamManager) {
+        call.getFuture().addCallback(new CommandCallback<RemoteServiceResult>() {
+            @Override
+            public void onComplete(Map<Node, RemoteServiceResult> results) {
+                // the provider reads the arguments, or they expire
+            }
+
+            @Override
+            public void onCancel() {
+                streamManager.releaseAll(call.getArguments());
+            }
+        });
+    }
+
+    /**
+     * Record the statistics of a call when its result is received.
+     * The wait time is the round-trip time minus the execution time on the provider node.
+     *
+     * @param call the remote service call.
+     * @param statistics the statistics of the called method.
+     */
+    private static void record(RemoteServiceCall call, final MethodStatistics statistics) {
+        final long start = System.nanoTime();
+        statistics.onStart();
+        call.getFuture().addCallback(new CommandCallback<RemoteServiceResult>() {
+            @Override
+            public void onComplete(Map<Node, RemoteServiceResult> results) {
+                if (results == null || results.isEmpty()) {
+                    // timeout
+                    statistics.onError();
+                    return;
+                }
+                RemoteServiceResult result = results.values().iterator().next();
+                if (result.getError() != null) {
+                    statistics.onError();
+                    return;
+                }
+                long executionTime = result.getExecutionTime();
+                long roundTrip = System.nanoTime() - start;
+                statistics.onComplete(executionTime >= 0 ? Math.max(0, roundTrip - executionTime) : roundTrip, executionTime);
+            }
+
+            @Override
+            public void onCancel() {
+                statistics.onError();
+            }
+        });
+    }
+
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Set the properties of the endpoint, defining the timeouts of the calls.
+     *
+     * @param properties the endpoint properties.
+     */
+    public void setProperties(Map<String, Object> properties) {
+        this.properties = properties;
+        timeouts.clear();
+    }
+
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
+    public RemoteStreamManager getStreamManager() {
+        return streamManager;
+    }
+
+    public void setStreamManager(RemoteStreamManager streamManager) {
+        this.streamManager = streamManager;
+    }
+
+    /**
+     * Get the method table of the remote service interface implemented by the proxy.
+     *
+     * @param proxy the proxy.
+     * @param method the invoked method.
+     * @return the method table.
+     */
+    private MethodTable getMethodTable(Object proxy, Method method) {
+        MethodTable table = methodTable;
+        if (table == null) {
+            Class<?> type = method.getDeclaringClass();
+            for (Class<?> i : proxy.getClass().getInterfaces()) {
+                if (i.getName().equals(serviceClass)) {
+                    type = i;
+                    break;
+                }
             }
+            table = new MethodTable(type);
+            methodTable = table;
         }
-        return null;
+        return table;
     }
 
 }
@@ -14,13 +14,20 @@
 package org.apache.karaf.cellar.dosgi;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Cluster remote service result event.
  */
-public class RemoteServiceResult extends Result {
+public class RemoteServiceResult extends Result implements CellarSerializable {
 
     private Object result;
+    private Throwable error;
+    private long executionTime = -1;
 
     public RemoteServiceResult(String id) {
         super(id);
@@ -34,4 +41,56 @@ public class RemoteServiceResult extends Result {
         this.result = result;
     }
 
+    /**
+     * Get the exception thrown by the remote service.
+     *
+     * @return the exception, or null if the remote service returned a result.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public void setError(Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * Get the time spent by the provider node to execute the call.
+     *
+     * @return the execution time in nanoseconds, -1 if unknown.
+     */
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    public void setExecutionTime(long executionTime) {
+        this.executionTime = executionTime;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return DosgiEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return DosgiEventTypeFactory.REMOTE_SERVICE_RESULT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeObject(result);
+        out.writeObject(error);
+        out.writeLong(executionTime);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        result = in.readObject();
+        error = (Throwable) in.readObject();
+        executionTime = in.readLong();
+    }
+
 }
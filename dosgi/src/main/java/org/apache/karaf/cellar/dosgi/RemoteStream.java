@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Placeholder of a remote service argument or result sent in chunks.
+ * The receiver pulls the chunks from the node holding the value, using the stream ID.
+ */
+public class RemoteStream implements Serializable {
+
+    /**
+     * A byte array, received as a byte array.
+     */
+    public static final int BYTES = 0;
+
+    /**
+     * An input stream, received as an input stream reading the chunks on demand.
+     */
+    public static final int INPUT_STREAM = 1;
+
+    /**
+     * A list, received as a list.
+     */
+    public static final int LIST = 2;
+
+    /**
+     * An iterable, received as an iterable reading the chunks on demand.
+     */
+    public static final int ITERABLE = 3;
+
+    private final String id;
+    private final String nodeId;
+    private final int kind;
+    private final long length;
+
+    public RemoteStream(String id, String nodeId, int kind, long length) {
+        this.id = id;
+        this.nodeId = nodeId;
+        this.kind = kind;
+        this.length = length;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the ID of the node holding the value.
+     *
+     * @return the node ID.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the type of the value received in place of this stream.
+     *
+     * @return the received type.
+     */
+    public Class<?> getType() {
+        switch (kind) {
+            case BYTES:
+                return byte[].class;
+            case INPUT_STREAM:
+                return InputStream.class;
+            case LIST:
+                return ArrayList.class;
+            case ITERABLE:
+                return Iterable.class;
+            default:
+                return Object.class;
+        }
+    }
+
+    /**
+     * Get the number of bytes or elements of the value.
+     *
+     * @return the length, -1 if unknown.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteStream[" + id + "@" + nodeId + "]";
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunk of a {@link RemoteStream}, sent by the node holding the value to the receiver.
+ * The ID of the event is the stream ID, the data is either bytes or a list of elements.
+ */
+public class RemoteStreamChunk extends Event implements CellarSerializable {
+
+    private long sequence;
+    private byte[] bytes;
+    private List<Object> elements;
+    private boolean last;
+    private String error;
+
+    public RemoteStreamChunk(String id) {
+        super(id);
+        this.force = true;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public List<Object> getElements() {
+        return elements;
+    }
+
+    public void setElements(List<Object> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Check if this chunk is the last one of the stream.
+     *
+     * @return true if the stream ends with this chunk, false else.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    public void setLast(boolean last) {
+        this.last = last;
+    }
+
+    /**
+     * Get the error which occurred reading the value, ending the stream.
+     *
+     * @return the error message, null if the value has been read successfully.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return DosgiEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return DosgiEventTypeFactory.REMOTE_STREAM_CHUNK;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeLong(sequence);
+        out.writeBoolean(last);
+        out.writeString(error);
+        out.writeInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            out.write(bytes);
+        }
+        out.writeInt(elements == null ? -1 : elements.size());
+        if (elements != null) {
+            for (Object element : elements) {
+                out.writeObject(element);
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        sequence = in.readLong();
+        last = in.readBoolean();
+        error = in.readString();
+        int length = in.readInt();
+        if (length < 0) {
+            bytes = null;
+        } else {
+            bytes = new byte[length];
+            in.readFully(bytes);
+        }
+        int size = in.readInt();
+        if (size < 0) {
+            elements = null;
+        } else {
+            elements = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++) {
+                elements.add(in.readObject());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.EventHandler;
+
+/**
+ * Handler for cluster remote stream chunk event, delivering the chunk to the stream reader.
+ */
+public class RemoteStreamChunkHandler implements EventHandler<RemoteStreamChunk> {
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.dosgi.stream.chunk.handler";
+
+    private final Switch handlerSwitch = new BasicSwitch(SWITCH_ID);
+
+    private RemoteStreamManager streamManager;
+
+    @Override
+    public void handle(RemoteStreamChunk event) {
+        if (event != null && event.getSourceNode() != null) {
+            streamManager.receive(event);
+        }
+    }
+
+    /**
+     * Get the event type that this handler is able to handle.
+     *
+     * @return the cluster remote stream chunk event type.
+     */
+    @Override
+    public Class<RemoteStreamChunk> getType() {
+        return RemoteStreamChunk.class;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return handlerSwitch;
+    }
+
+    public RemoteStreamManager getStreamManager() {
+        return streamManager;
+    }
+
+    public void setStreamManager(RemoteStreamManager streamManager) {
+        this.streamManager = streamManager;
+    }
+
+}
@@ -0,0 +1,728 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.event.EventConsumer;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.EventTransportFactory;
+import org.apache.karaf.cellar.core.serialization.SizeEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manager of the remote service arguments and results sent in chunks.
+ * <p/>
+ * A large value is replaced by a {@link RemoteStream} in the remote service call or result. The receiver pulls the
+ * chunks from the node holding the value: it requests a window of chunks, then one more chunk each time it consumes
+ * one, so the memory used by a stream is bounded on both nodes whatever the size of the value.
+ * Each node consumes the stream requests and chunks sent to it from its own stream queue.
+ */
+public class RemoteStreamManager {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CHUNK_ELEMENTS = 256;
+    public static final int DEFAULT_WINDOW = 4;
+    public static final long DEFAULT_TIMEOUT = 60000;
+    public static final int DEFAULT_WORKERS = 16;
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(RemoteStreamManager.class);
+
+    private ClusterManager clusterManager;
+    private EventTransportFactory eventTransportFactory;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int chunkElements = DEFAULT_CHUNK_ELEMENTS;
+    private int window = DEFAULT_WINDOW;
+    private long timeout = DEFAULT_TIMEOUT;
+    private int workers = DEFAULT_WORKERS;
+
+    private EventConsumer consumer;
+    private final ConcurrentMap<String, EventProducer> producers = new ConcurrentHashMap<String, EventProducer>();
+    private final ConcurrentMap<String, OutgoingStream> outgoing = new ConcurrentHashMap<String, OutgoingStream>();
+    private final ConcurrentMap<String, IncomingStream> incoming = new ConcurrentHashMap<String, IncomingStream>();
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    public void init() {
+        consumer = eventTransportFactory.getEventConsumer(Constants.STREAM_PREFIX + Constants.SEPARATOR + clusterManager.getNode().getId(), Boolean.FALSE);
+        consumer.start();
+        // the tasks waiting for chunks or futures are bounded by the pool size, the others are queued
+        ThreadPoolExecutor workerExecutor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Cellar DOSGi worker " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        workerExecutor.allowCoreThreadTimeOut(true);
+        executor = workerExecutor;
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, timeout, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    public void destroy() {
+        if (consumer != null) {
+            consumer.stop();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (OutgoingStream stream : outgoing.values()) {
+            stream.close();
+        }
+        outgoing.clear();
+        incoming.clear();
+        producers.clear();
+    }
+
+    /**
+     * Check if a value is sent in chunks.
+     *
+     * @param value the argument or result of a remote service call.
+     * @return true if the value is a {@link RemoteStream}, false else.
+     */
+    public static boolean isStream(Object value) {
+        return value instanceof RemoteStream;
+    }
+
+    /**
+     * Check if some arguments are sent in chunks.
+     *
+     * @param arguments the arguments of a remote service call.
+     * @return true if one of the arguments is a {@link RemoteStream}, false else.
+     */
+    public static boolean containsStream(List<Object> arguments) {
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (isStream(argument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace a value by a {@link RemoteStream} if it has to be sent in chunks.
+     * Input streams are always sent in chunks, byte arrays and lists only above the chunk size (estimated for a list),
+     * and other iterables only if the declared type is {@link Iterable}.
+     *
+     * @param value the argument or result of a remote service call.
+     * @param type the declared type of the value.
+     * @return the remote stream, or the value itself if it's sent as is.
+     */
+    public Object export(Object value, Class<?> type) {
+        OutgoingStream stream;
+        int kind;
+        long length = -1;
+        if (value instanceof InputStream && type.isAssignableFrom(InputStream.class)) {
+            stream = new InputStreamSource((InputStream) value);
+            kind = RemoteStream.INPUT_STREAM;
+        } else if (value instanceof byte[] && ((byte[]) value).length > chunkSize && type.isAssignableFrom(byte[].class)) {
+            stream = new BytesSource((byte[]) value);
+            kind = RemoteStream.BYTES;
+            length = ((byte[]) value).length;
+        } else if (value instanceof List && type.isAssignableFrom(ArrayList.class) && exceedsChunkSize((List) value)) {
+            stream = new IteratorSource(((List) value).iterator());
+            kind = RemoteStream.LIST;
+            length = ((List) value).size();
+        } else if (value instanceof Iterable && !(value instanceof Collection) && type == Iterable.class) {
+            stream = new IteratorSource(((Iterable) value).iterator());
+            kind = RemoteStream.ITERABLE;
+        } else {
+            return value;
+        }
+        String id = clusterManager.generateId();
+        outgoing.put(id, stream);
+        return new RemoteStream(id, clusterManager.getNode().getId(), kind, length);
+    }
+
+    /**
+     * Check if the estimated size of a list is larger than the chunk size, without estimating more elements than needed.
+     *
+     * @param list the list.
+     * @return true if the list has to be sent in chunks, false else.
+     */
+    private boolean exceedsChunkSize(List<?> list) {
+        SizeEstimator estimator = new SizeEstimator();
+        try {
+            for (Object element : list) {
+                estimator.writeObject(element);
+                if (estimator.getSize() > chunkSize) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            // not possible, nothing is written
+        }
+        return false;
+    }
+
+    /**
+     * Release a value exported by this node, when the call or result holding it has not been sent (or has been
+     * cancelled), as the receiver will never read it.
+     *
+     * @param value the value returned by {@link #export(Object, Class)}.
+     */
+    public void release(Object value) {
+        if (!isStream(value)) {
+            return;
+        }
+        RemoteStream stream = (RemoteStream) value;
+        OutgoingStream outgoingStream = outgoing.remove(stream.getId());
+        if (outgoingStream != null) {
+            LOGGER.debug("CELLAR DOSGI: remote stream {} released", stream.getId());
+            outgoingStream.close();
+        }
+    }
+
+    /**
+     * Release the values exported by this node in the arguments of a call not sent (or cancelled).
+     *
+     * @param arguments the arguments of the remote service call.
+     */
+    public void releaseAll(List<Object> arguments) {
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                release(argument);
+            }
+        }
+    }
+
+    /**
+     * Get the value of a {@link RemoteStream}.
+     * Byte arrays and lists are read completely, input streams and iterables read the chunks on demand.
+     *
+     * @param value the argument or result of a remote service call.
+     * @return the value read from the remote stream, or the value itself if it's not a remote stream.
+     * @throws IOException if the chunks can't be read.
+     */
+    public Object resolve(Object value) throws IOException {
+        if (!isStream(value)) {
+            return value;
+        }
+        RemoteStream stream = (RemoteStream) value;
+        IncomingStream in = new IncomingStream(stream);
+        incoming.put(stream.getId(), in);
+        switch (stream.getKind()) {
+            case RemoteStream.BYTES:
+                byte[] bytes = new byte[(int) stream.getLength()];
+                int offset = 0;
+                for (RemoteStreamChunk chunk = in.next(); chunk != null; chunk = in.next()) {
+                    System.arraycopy(chunk.getBytes(), 0, bytes, offset, chunk.getBytes().length);
+                    offset += chunk.getBytes().length;
+                }
+                return bytes;
+            case RemoteStream.LIST:
+                List<Object> list = new ArrayList<Object>((int) stream.getLength());
+                for (RemoteStreamChunk chunk = in.next(); chunk != null; chunk = in.next()) {
+                    list.addAll(chunk.getElements());
+                }
+                return list;
+            case RemoteStream.INPUT_STREAM:
+                return new RemoteInputStream(in);
+            case RemoteStream.ITERABLE:
+                return new RemoteIterable(in);
+            default:
+                in.cancel();
+                throw new IOException("Unknown kind of remote stream " + stream.getKind());
+        }
+    }
+
+    /**
+     * Execute a task out of the cluster event dispatcher threads: a task reading remote streams, as the dispatcher
+     * threads deliver the chunks, a task serving the chunks of an exported stream, or completing the future of a
+     * remote service call.
+     * The tasks are executed by a bounded pool of workers, and queued when all the workers are busy.
+     *
+     * @param task the task.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Send the chunks requested by the receiver of a stream.
+     *
+     * @param request the stream request.
+     */
+    public void serve(RemoteStreamRequest request) {
+        String nodeId = request.getSourceNode().getId();
+        OutgoingStream stream = outgoing.get(request.getId());
+        if (stream == null) {
+            if (request.getCredit() != RemoteStreamRequest.CANCEL) {
+                RemoteStreamChunk chunk = new RemoteStreamChunk(request.getId());
+                chunk.setLast(true);
+                chunk.setError("Remote stream " + request.getId() + " is not available");
+                getProducer(nodeId).produce(chunk);
+            }
+            return;
+        }
+        if (request.getCredit() == RemoteStreamRequest.CANCEL) {
+            LOGGER.debug("CELLAR DOSGI: remote stream {} cancelled by node {}", request.getId(), nodeId);
+            outgoing.remove(request.getId());
+            stream.close();
+            return;
+        }
+        synchronized (stream) {
+            stream.lastAccess = System.currentTimeMillis();
+            for (int i = 0; i < request.getCredit() && !stream.done; i++) {
+                RemoteStreamChunk chunk = new RemoteStreamChunk(request.getId());
+                chunk.setSequence(stream.sequence++);
+                try {
+                    stream.fill(chunk);
+                } catch (Exception e) {
+                    LOGGER.warn("CELLAR DOSGI: failed to read remote stream {}", request.getId(), e);
+                    chunk.setBytes(null);
+                    chunk.setElements(null);
+                    chunk.setLast(true);
+                    chunk.setError(e.toString());
+                }
+                if (chunk.isLast()) {
+                    stream.done = true;
+                    outgoing.remove(request.getId());
+                    stream.close();
+                }
+                getProducer(nodeId).produce(chunk);
+            }
+        }
+    }
+
+    /**
+     * Deliver a chunk to the reader of the stream.
+     *
+     * @param chunk the stream chunk.
+     */
+    public void receive(RemoteStreamChunk chunk) {
+        IncomingStream stream = incoming.get(chunk.getId());
+        if (stream != null) {
+            stream.chunks.offer(chunk);
+        } else {
+            LOGGER.debug("CELLAR DOSGI: ignoring chunk of unknown remote stream {}", chunk.getId());
+        }
+    }
+
+    /**
+     * Release the streams not read since the timeout.
+     */
+    void expire() {
+        long limit = System.currentTimeMillis() - timeout;
+        for (Map.Entry<String, OutgoingStream> entry : outgoing.entrySet()) {
+            if (entry.getValue().lastAccess < limit && outgoing.remove(entry.getKey(), entry.getValue())) {
+                LOGGER.debug("CELLAR DOSGI: remote stream {} expired", entry.getKey());
+                entry.getValue().close();
+            }
+        }
+        for (Map.Entry<String, IncomingStream> entry : incoming.entrySet()) {
+            if (entry.getValue().lastAccess < limit) {
+                incoming.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the producer of the stream events sent to a node.
+     *
+     * @param nodeId the node ID.
+     * @return the stream event producer.
+     */
+    private EventProducer getProducer(String nodeId) {
+        EventProducer producer = producers.get(nodeId);
+        if (producer == null) {
+            producer = eventTransportFactory.getEventProducer(Constants.STREAM_PREFIX + Constants.SEPARATOR + nodeId, Boolean.FALSE);
+            EventProducer existing = producers.putIfAbsent(nodeId, producer);
+            if (existing != null) {
+                producer = existing;
+            }
+        }
+        return producer;
+    }
+
+    private void request(RemoteStream stream, int credit) {
+        RemoteStreamRequest request = new RemoteStreamRequest(stream.getId());
+        request.setCredit(credit);
+        getProducer(stream.getNodeId()).produce(request);
+    }
+
+    /**
+     * Value sent in chunks, held by the sender until the last chunk is sent.
+     */
+    private abstract static class OutgoingStream {
+
+        private long sequence;
+        private boolean done;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        abstract void fill(RemoteStreamChunk chunk) throws IOException;
+
+        void close() {
+        }
+
+    }
+
+    private class BytesSource extends OutgoingStream {
+
+        private final byte[] bytes;
+        private int offset;
+
+        BytesSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        void fill(RemoteStreamChunk chunk) {
+            int end = Math.min(bytes.length, offset + chunkSize);
+            chunk.setBytes(Arrays.copyOfRange(bytes, offset, end));
+            offset = end;
+            chunk.setLast(offset >= bytes.length);
+        }
+
+    }
+
+    private class InputStreamSource extends OutgoingStream {
+
+        private final InputStream in;
+
+        InputStreamSource(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        void fill(RemoteStreamChunk chunk) throws IOException {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            int read = 0;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) >= 0) {
+                length += read;
+            }
+            chunk.setBytes(length < buffer.length ? Arrays.copyOf(buffer, length) : buffer);
+            chunk.setLast(read < 0);
+        }
+
+        @Override
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOGGER.debug("CELLAR DOSGI: failed to close streamed input stream", e);
+            }
+        }
+
+    }
+
+    private class IteratorSource extends OutgoingStream {
+
+        private final Iterator<?> iterator;
+
+        IteratorSource(Iterator<?> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        void fill(RemoteStreamChunk chunk) {
+            List<Object> elements = new ArrayList<Object>();
+            SizeEstimator estimator = new SizeEstimator();
+            while (elements.size() < chunkElements && estimator.getSize() < chunkSize && iterator.hasNext()) {
+                Object element = iterator.next();
+                elements.add(element);
+                try {
+                    estimator.writeObject(element);
+                } catch (IOException e) {
+                    // not possible, nothing is written
+                }
+            }
+            chunk.setElements(elements);
+            chunk.setLast(!iterator.hasNext());
+        }
+
+    }
+
+    /**
+     * Value received in chunks, with a window of chunks requested in advance.
+     */
+    private class IncomingStream {
+
+        private final RemoteStream stream;
+        private final BlockingQueue<RemoteStreamChunk> chunks = new LinkedBlockingQueue<RemoteStreamChunk>();
+        private long sequence;
+        private boolean requested;
+        private boolean ended;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        IncomingStream(RemoteStream stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Get the next chunk, waiting for it if needed.
+         *
+         * @return the next chunk, or null if the stream has ended.
+         * @throws IOException if the chunk can't be read.
+         */
+        synchronized RemoteStreamChunk next() throws IOException {
+            if (ended) {
+                return null;
+            }
+            if (!requested) {
+                requested = true;
+                request(stream, window);
+            }
+            RemoteStreamChunk chunk;
+            try {
+                chunk = chunks.poll(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new InterruptedIOException("Interrupted while reading remote stream " + stream.getId());
+            }
+            lastAccess = System.currentTimeMillis();
+            if (chunk == null) {
+                cancel();
+                throw new IOException("Remote stream " + stream.getId() + " timed out");
+            }
+            if (chunk.getError() != null || chunk.getSequence() != sequence++) {
+                end();
+                throw new IOException("Remote stream " + stream.getId() + " failed: "
+                        + (chunk.getError() != null ? chunk.getError() : "unexpected chunk " + chunk.getSequence()));
+            }
+            if (chunk.isLast()) {
+                end();
+            } else {
+                request(stream, 1);
+            }
+            return chunk;
+        }
+
+        synchronized void cancel() {
+            if (!ended) {
+                end();
+                request(stream, RemoteStreamRequest.CANCEL);
+            }
+        }
+
+        private void end() {
+            ended = true;
+            incoming.remove(stream.getId(), this);
+        }
+
+    }
+
+    /**
+     * Input stream reading the chunks of a remote stream on demand.
+     */
+    private static class RemoteInputStream extends InputStream {
+
+        private final IncomingStream stream;
+        private byte[] buffer = new byte[0];
+        private int position;
+
+        RemoteInputStream(IncomingStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int length = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.length - position;
+        }
+
+        @Override
+        public void close() {
+            stream.cancel();
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= buffer.length) {
+                RemoteStreamChunk chunk = stream.next();
+                if (chunk == null) {
+                    return false;
+                }
+                buffer = chunk.getBytes();
+                position = 0;
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Iterable reading the chunks of a remote stream on demand. It can be iterated only once.
+     */
+    private static class RemoteIterable implements Iterable<Object> {
+
+        private final IncomingStream stream;
+        private boolean iterated;
+
+        RemoteIterable(IncomingStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public synchronized Iterator<Object> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Remote iterable can be iterated only once");
+            }
+            iterated = true;
+            return new Iterator<Object>() {
+
+                private Iterator<Object> elements = new ArrayList<Object>().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!elements.hasNext()) {
+                        RemoteStreamChunk chunk;
+                        try {
+                            chunk = stream.next();
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e.getMessage(), e);
+                        }
+                        if (chunk == null) {
+                            return false;
+                        }
+                        elements = chunk.getElements().iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public Object next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elements.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+        }
+
+    }
+
+    public ClusterManager getClusterManager() {
+        return clusterManager;
+    }
+
+    public void setClusterManager(ClusterManager clusterManager) {
+        this.clusterManager = clusterManager;
+    }
+
+    public EventTransportFactory getEventTransportFactory() {
+        return eventTransportFactory;
+    }
+
+    public void setEventTransportFactory(EventTransportFactory eventTransportFactory) {
+        this.eventTransportFactory = eventTransportFactory;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkElements() {
+        return chunkElements;
+    }
+
+    public void setChunkElements(int chunkElements) {
+        this.chunkElements = chunkElements;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+}
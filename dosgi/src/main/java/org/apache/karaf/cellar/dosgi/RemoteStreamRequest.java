@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+
+/**
+ * Request of the next chunks of a {@link RemoteStream}, sent by the receiver to the node holding the value.
+ * The ID of the event is the stream ID.
+ */
+public class RemoteStreamRequest extends Event implements CellarSerializable {
+
+    /**
+     * Credit of a request cancelling the stream.
+     */
+    public static final int CANCEL = -1;
+
+    private int credit;
+
+    public RemoteStreamRequest(String id) {
+        super(id);
+        this.force = true;
+    }
+
+    /**
+     * Get the number of chunks the receiver is ready to get.
+     *
+     * @return the number of chunks, {@link #CANCEL} if the receiver doesn't need the next chunks.
+     */
+    public int getCredit() {
+        return credit;
+    }
+
+    public void setCredit(int credit) {
+        this.credit = credit;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return DosgiEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return DosgiEventTypeFactory.REMOTE_STREAM_REQUEST;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeInt(credit);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        credit = in.readInt();
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handler for cluster remote stream request event, sending the requested chunks.
+ */
+public class RemoteStreamRequestHandler implements EventHandler<RemoteStreamRequest> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(RemoteStreamRequestHandler.class);
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.dosgi.stream.request.handler";
+
+    private final Switch handlerSwitch = new BasicSwitch(SWITCH_ID);
+
+    private RemoteStreamManager streamManager;
+
+    @Override
+    public void handle(final RemoteStreamRequest event) {
+        if (event != null && event.getSourceNode() != null) {
+            // the chunks are read from the exported stream out of the dispatcher threads, a slow stream doesn't
+            // delay the other cluster events
+            streamManager.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        streamManager.serve(event);
+                    } catch (Exception e) {
+                        LOGGER.warn("CELLAR DOSGI: failed to serve remote stream {}", event.getId(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the event type that this handler is able to handle.
+     *
+     * @return the cluster remote stream request event type.
+     */
+    @Override
+    public Class<RemoteStreamRequest> getType() {
+        return RemoteStreamRequest.class;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return handlerSwitch;
+    }
+
+    public RemoteStreamManager getStreamManager() {
+        return streamManager;
+    }
+
+    public void setStreamManager(RemoteStreamManager streamManager) {
+        this.streamManager = streamManager;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics of the remote service calls on the local node, per endpoint and method, on the caller and provider sides.
+ */
+public class ServiceMetrics {
+
+    public static final String CALLER = "caller";
+    public static final String PROVIDER = "provider";
+
+    private final ConcurrentMap<String, MethodStatistics> statistics = new ConcurrentHashMap<String, MethodStatistics>();
+
+    /**
+     * Get the statistics of a method, created on the first call.
+     *
+     * @param side {@link #CALLER} or {@link #PROVIDER}.
+     * @param endpointId the endpoint ID.
+     * @param method the method signature.
+     * @return the method statistics.
+     */
+    public MethodStatistics getStatistics(String side, String endpointId, String method) {
+        String key = side + Constants.SEPARATOR + endpointId + Constants.SEPARATOR + method;
+        MethodStatistics methodStatistics = statistics.get(key);
+        if (methodStatistics == null) {
+            methodStatistics = new MethodStatistics(side, endpointId, method);
+            MethodStatistics existing = statistics.putIfAbsent(key, methodStatistics);
+            if (existing != null) {
+                methodStatistics = existing;
+            }
+        }
+        return methodStatistics;
+    }
+
+    /**
+     * Get the statistics of all the called methods, sorted by side, endpoint and method.
+     *
+     * @return the method statistics.
+     */
+    public List<MethodStatistics> getStatistics() {
+        List<MethodStatistics> result = new ArrayList<MethodStatistics>(statistics.values());
+        Collections.sort(result, new Comparator<MethodStatistics>() {
+            @Override
+            public int compare(MethodStatistics s1, MethodStatistics s2) {
+                int c = s1.getSide().compareTo(s2.getSide());
+                if (c == 0) {
+                    c = s1.getEndpointId().compareTo(s2.getEndpointId());
+                }
+                if (c == 0) {
+                    c = s1.getMethod().compareTo(s2.getMethod());
+                }
+                return c;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Clear the statistics. The calls in progress are not counted anymore.
+     */
+    public void reset() {
+        statistics.clear();
+    }
+
+}
@@ -13,6 +13,7 @@
  */
 package org.apache.karaf.cellar.dosgi.management;
 
+import javax.management.openmbean.TabularData;
 import java.util.List;
 import java.util.Map;
 
@@ -23,4 +24,20 @@ public interface ServiceMBean {
 
     public Map<String, List<String>> getServices();
 
+    /**
+     * Get the statistics of the remote service calls on the local node, per side (caller or provider), endpoint and
+     * method. The wait and execution times are in microseconds.
+     *
+     * @return the statistics of the remote service calls.
+     * @throws Exception in case of retrieval failure.
+     */
+    public TabularData getStatistics() throws Exception;
+
+    /**
+     * Clear the statistics of the remote service calls on the local node.
+     *
+     * @throws Exception in case of reset failure.
+     */
+    public void resetStatistics() throws Exception;
+
 }
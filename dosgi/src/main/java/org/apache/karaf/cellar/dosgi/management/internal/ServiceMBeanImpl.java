@@ -15,17 +15,26 @@ package org.apache.karaf.cellar.dosgi.management.internal;
 
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.metrics.LatencyHistogram;
 import org.apache.karaf.cellar.dosgi.Constants;
 import org.apache.karaf.cellar.dosgi.EndpointDescription;
+import org.apache.karaf.cellar.dosgi.MethodStatistics;
+import org.apache.karaf.cellar.dosgi.ServiceMetrics;
 import org.apache.karaf.cellar.dosgi.management.ServiceMBean;
 
 import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
+import javax.management.openmbean.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class ServiceMBeanImpl extends StandardMBean implements ServiceMBean {
 
+    private static final String[] STATISTICS_ITEMS = new String[]{"side", "endpoint", "method", "count", "errors", "inFlight",
+            "waitMean", "waitP50", "waitP99", "waitMax", "executionMean", "executionP50", "executionP99", "executionMax"};
+
     private ClusterManager clusterManager;
+    private ServiceMetrics serviceMetrics;
 
     public ServiceMBeanImpl() throws NotCompliantMBeanException {
         super(ServiceMBean.class);
@@ -55,6 +64,50 @@ public class ServiceMBeanImpl extends StandardMBean implements ServiceMBean {
         return services;
     }
 
+    public TabularData getStatistics() throws Exception {
+        CompositeType compositeType = new CompositeType("Service Statistics", "Karaf Cellar remote service call statistics",
+                STATISTICS_ITEMS,
+                new String[]{"Side of the calls (caller or provider)", "Endpoint of the remote service", "Method of the remote service",
+                        "Number of calls", "Number of failed calls", "Number of calls in progress",
+                        "Mean wait time", "Median wait time", "99th percentile wait time", "Maximum wait time",
+                        "Mean execution time", "Median execution time", "99th percentile execution time", "Maximum execution time"},
+                new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+                        SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+                        SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+        TabularType tableType = new TabularType("Service Statistics", "Table of Karaf Cellar remote service call statistics",
+                compositeType, new String[]{"side", "endpoint", "method"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+
+        for (MethodStatistics statistics : serviceMetrics.getStatistics()) {
+            LatencyHistogram wait = statistics.getWait();
+            LatencyHistogram execution = statistics.getExecution();
+            CompositeDataSupport data = new CompositeDataSupport(compositeType, STATISTICS_ITEMS,
+                    new Object[]{statistics.getSide(), statistics.getEndpointId(), statistics.getMethod(),
+                            statistics.getCount(), statistics.getErrors(), statistics.getInFlight(),
+                            toMicros(wait.getMean()), toMicros(wait.getPercentile(50)), toMicros(wait.getPercentile(99)), toMicros(wait.getMax()),
+                            toMicros(execution.getMean()), toMicros(execution.getPercentile(50)), toMicros(execution.getPercentile(99)), toMicros(execution.getMax())});
+            table.put(data);
+        }
+
+        return table;
+    }
+
+    public void resetStatistics() throws Exception {
+        serviceMetrics.reset();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
     public ClusterManager getClusterManager() {
         return this.clusterManager;
     }
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi.shell;
+
+import org.apache.karaf.cellar.core.metrics.LatencyHistogram;
+import org.apache.karaf.cellar.core.shell.CellarCommandSupport;
+import org.apache.karaf.cellar.dosgi.MethodStatistics;
+import org.apache.karaf.cellar.dosgi.ServiceMetrics;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.apache.karaf.shell.table.ShellTable;
+
+@Command(scope = "cluster", name = "service-stats", description = "Display the statistics of the remote service calls on the local node")
+public class ServiceStatsCommand extends CellarCommandSupport {
+
+    @Option(name = "-s", aliases = { "--side" }, description = "Display only the calls on the given side (caller, provider)", required = false, multiValued = false)
+    private String side;
+
+    @Option(name = "--reset", description = "Clear the statistics", required = false, multiValued = false)
+    private boolean reset = false;
+
+    private ServiceMetrics serviceMetrics;
+
+    @Override
+    protected Object doExecute() throws Exception {
+        if (reset) {
+            serviceMetrics.reset();
+            return null;
+        }
+
+        ShellTable table = new ShellTable();
+        table.column("Side");
+        table.column("Endpoint");
+        table.column("Method");
+        table.column("Calls").alignRight();
+        table.column("Errors").alignRight();
+        table.column("In-flight").alignRight();
+        table.column("Wait P50 (ms)").alignRight();
+        table.column("Wait P99 (ms)").alignRight();
+        table.column("Exec P50 (ms)").alignRight();
+        table.column("Exec P99 (ms)").alignRight();
+        for (MethodStatistics statistics : serviceMetrics.getStatistics()) {
+            if (side != null && !side.equalsIgnoreCase(statistics.getSide())) {
+                continue;
+            }
+            LatencyHistogram wait = statistics.getWait();
+            LatencyHistogram execution = statistics.getExecution();
+            table.addRow().addContent(statistics.getSide(), statistics.getEndpointId(), statistics.getMethod(),
+                    statistics.getCount(), statistics.getErrors(), statistics.getInFlight(),
+                    toMillis(wait.getPercentile(50)), toMillis(wait.getPercentile(99)),
+                    toMillis(execution.getPercentile(50)), toMillis(execution.getPercentile(99)));
+        }
+        table.print(System.out);
+        return null;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+
+    public ServiceMetrics getServiceMetrics() {
+        return serviceMetrics;
+    }
+
+    public void setServiceMetrics(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
+}
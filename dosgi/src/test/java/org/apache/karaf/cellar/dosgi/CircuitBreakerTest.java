@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static final String NODE = "node1";
+
+    @Test
+    public void testOpenAfterThreshold() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(3, 3600000);
+        breaker.onFailure(NODE);
+        breaker.onFailure(NODE);
+        Assert.assertTrue(breaker.isCallable(NODE));
+        breaker.onSuccess(NODE);
+        breaker.onFailure(NODE);
+        breaker.onFailure(NODE);
+        Assert.assertTrue(breaker.isCallable(NODE));
+        breaker.onFailure(NODE);
+        Assert.assertTrue(breaker.isOpen(NODE));
+        Assert.assertFalse(breaker.isCallable(NODE));
+        Assert.assertTrue(breaker.isCallable("node2"));
+    }
+
+    @Test
+    public void testProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure(NODE);
+        Assert.assertTrue(breaker.isOpen(NODE));
+        Assert.assertTrue(breaker.isCallable(NODE));
+
+        // a single probe call at a time
+        Assert.assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire(NODE));
+        Assert.assertFalse(breaker.isCallable(NODE));
+        Assert.assertEquals(CircuitBreaker.Permit.DENIED, breaker.tryAcquire(NODE));
+        breaker.onSuccess(NODE);
+        Assert.assertFalse(breaker.isOpen(NODE));
+        Assert.assertTrue(breaker.isCallable(NODE));
+    }
+
+    @Test
+    public void testFailedProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 0);
+        breaker.onFailure(NODE);
+        breaker.onFailure(NODE);
+        Assert.assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire(NODE));
+        breaker.onFailure(NODE);
+        Assert.assertTrue(breaker.isOpen(NODE));
+
+        CircuitBreaker waiting = new CircuitBreaker(2, 3600000);
+        waiting.onFailure(NODE);
+        waiting.onFailure(NODE);
+        Assert.assertEquals(CircuitBreaker.Permit.DENIED, waiting.tryAcquire(NODE));
+        Assert.assertFalse(waiting.isCallable(NODE));
+    }
+
+    @Test
+    public void testCancelledProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure(NODE);
+        CircuitBreaker.Permit probe = breaker.tryAcquire(NODE);
+        Assert.assertEquals(CircuitBreaker.Permit.PROBE, probe);
+        Assert.assertFalse(breaker.isCallable(NODE));
+        breaker.onCancel(NODE, probe);
+        Assert.assertTrue(breaker.isOpen(NODE));
+        Assert.assertTrue(breaker.isCallable(NODE));
+    }
+
+    @Test
+    public void testCancelledCallDuringProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        // a call sent while the circuit was closed
+        CircuitBreaker.Permit call = breaker.tryAcquire(NODE);
+        Assert.assertEquals(CircuitBreaker.Permit.CALL, call);
+        breaker.onFailure(NODE);
+        Assert.assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire(NODE));
+        // the cancellation of the other call doesn't let a second call probe the provider
+        breaker.onCancel(NODE, call);
+        Assert.assertFalse(breaker.isCallable(NODE));
+        Assert.assertEquals(CircuitBreaker.Permit.DENIED, breaker.tryAcquire(NODE));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(0, 3600000);
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure(NODE);
+        }
+        Assert.assertFalse(breaker.isOpen(NODE));
+        Assert.assertTrue(breaker.isCallable(NODE));
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.FrameworkUtil;
+
+import java.util.Set;
+
+public class EndpointRegistryTest {
+
+    private static final Node NODE = new LoadBalancerTest.TestNode("node1");
+
+    @Test
+    public void testGetObjectClass() {
+        Assert.assertEquals("org.example.Foo", EndpointRegistry.getObjectClass("(objectClass=org.example.Foo)"));
+        Assert.assertEquals("org.example.Foo", EndpointRegistry.getObjectClass("(&(objectClass=org.example.Foo)(service.ranking=1))"));
+        Assert.assertEquals("org.example.Foo", EndpointRegistry.getObjectClass("(&(OBJECTCLASS=org.example.Foo)(service.ranking=1))"));
+        Assert.assertNull(EndpointRegistry.getObjectClass("(|(objectClass=org.example.Foo)(objectClass=org.example.Bar))"));
+        Assert.assertNull(EndpointRegistry.getObjectClass("(!(objectClass=org.example.Foo))"));
+        Assert.assertNull(EndpointRegistry.getObjectClass("(objectClass=org.example.*)"));
+        Assert.assertNull(EndpointRegistry.getObjectClass("(service.ranking=1)"));
+        Assert.assertNull(EndpointRegistry.getObjectClass(null));
+    }
+
+    @Test
+    public void testMatch() throws Exception {
+        EndpointRegistry registry = new EndpointRegistry();
+        EndpointDescription foo = new EndpointDescription("org.example.Foo" + Constants.SEPARATOR + "1.0.0", NODE);
+        EndpointDescription bar = new EndpointDescription("org.example.Bar" + Constants.SEPARATOR + "1.0.0", NODE);
+        registry.put(foo);
+        registry.put(bar);
+
+        String filter = "(objectClass=org.example.Foo)";
+        Set<EndpointDescription> matches = registry.match(FrameworkUtil.createFilter(filter), EndpointRegistry.getObjectClass(filter));
+        Assert.assertEquals(1, matches.size());
+        Assert.assertTrue(matches.contains(foo));
+
+        // without index, all the endpoints are checked
+        matches = registry.match(FrameworkUtil.createFilter(filter), null);
+        Assert.assertEquals(1, matches.size());
+        Assert.assertTrue(matches.contains(foo));
+
+        Assert.assertTrue(registry.match(FrameworkUtil.createFilter("(objectClass=org.example.Baz)"), "org.example.Baz").isEmpty());
+
+        registry.remove(foo.getId());
+        Assert.assertTrue(registry.match(FrameworkUtil.createFilter(filter), "org.example.Foo").isEmpty());
+        Assert.assertEquals(1, registry.getEndpoints().size());
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadBalancerTest {
+
+    private static final Node NODE1 = new TestNode("node1");
+    private static final Node NODE2 = new TestNode("node2");
+    private static final Node NODE3 = new TestNode("node3");
+    private static final List<Node> PROVIDERS = Arrays.asList(NODE1, NODE2, NODE3);
+
+    @Test
+    public void testShared() throws Exception {
+        Assert.assertNull(LoadBalancer.shared().select(PROVIDERS, new ProviderStatistics(), call()));
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        LoadBalancer loadBalancer = LoadBalancer.roundRobin();
+        Map<Node, Integer> counts = count(loadBalancer, new ProviderStatistics(), 300);
+        Assert.assertEquals(100, (int) counts.get(NODE1));
+        Assert.assertEquals(100, (int) counts.get(NODE2));
+        Assert.assertEquals(100, (int) counts.get(NODE3));
+    }
+
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        ProviderStatistics statistics = new ProviderStatistics();
+        statistics.onSend(NODE1);
+        statistics.onSend(NODE1);
+        statistics.onSend(NODE3);
+        LoadBalancer loadBalancer = LoadBalancer.leastOutstanding();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(NODE2, loadBalancer.select(PROVIDERS, statistics, call()));
+        }
+        statistics.onComplete(NODE1, 1000);
+        statistics.onComplete(NODE1, 1000);
+        Assert.assertEquals(0, statistics.getOutstanding(NODE1));
+        Assert.assertEquals(1000, statistics.getLatency(NODE1));
+    }
+
+    @Test
+    public void testLatencyWeighted() throws Exception {
+        ProviderStatistics statistics = new ProviderStatistics();
+        record(statistics, NODE1, 1000000);
+        record(statistics, NODE2, 1000000);
+        record(statistics, NODE3, 50000000);
+        Map<Node, Integer> counts = count(LoadBalancer.latencyWeighted(), statistics, 3000);
+        // the slow provider only wins when it's picked twice, which never happens
+        Assert.assertNull(counts.get(NODE3));
+        Assert.assertTrue(counts.get(NODE1) > 1000);
+        Assert.assertTrue(counts.get(NODE2) > 1000);
+
+        // a provider without completed call is tried first
+        statistics.remove(NODE3);
+        counts = count(LoadBalancer.latencyWeighted(), statistics, 3000);
+        Assert.assertTrue(counts.get(NODE3) > 1500);
+    }
+
+    @Test
+    public void testStickyByKey() throws Exception {
+        LoadBalancer loadBalancer = LoadBalancer.stickyByKey();
+        ProviderStatistics statistics = new ProviderStatistics();
+        Map<Node, Integer> counts = new HashMap<Node, Integer>();
+        for (int key = 0; key < 300; key++) {
+            Node node = loadBalancer.select(PROVIDERS, statistics, call(key));
+            Assert.assertEquals(node, loadBalancer.select(PROVIDERS, statistics, call(key)));
+            Integer count = counts.get(node);
+            counts.put(node, count == null ? 1 : count + 1);
+
+            // only the keys of a leaving provider move
+            List<Node> remaining = new ArrayList<Node>(PROVIDERS);
+            remaining.remove(NODE3);
+            Node moved = loadBalancer.select(remaining, statistics, call(key));
+            if (!node.equals(NODE3)) {
+                Assert.assertEquals(node, moved);
+            }
+        }
+        Assert.assertEquals(3, counts.size());
+        for (Integer count : counts.values()) {
+            Assert.assertTrue(count > 50);
+        }
+    }
+
+    @Test
+    public void testStickyByArrayKey() throws Exception {
+        LoadBalancer loadBalancer = LoadBalancer.stickyByKey();
+        ProviderStatistics statistics = new ProviderStatistics();
+        Node bytes = loadBalancer.select(PROVIDERS, statistics, call(new byte[]{ 1, 2, 3 }));
+        Node strings = loadBalancer.select(PROVIDERS, statistics, call((Object) new String[]{ "a", "b" }));
+        for (int i = 0; i < 30; i++) {
+            // equal arrays are different instances
+            Assert.assertEquals(bytes, loadBalancer.select(PROVIDERS, statistics, call(new byte[]{ 1, 2, 3 })));
+            Assert.assertEquals(strings, loadBalancer.select(PROVIDERS, statistics, call((Object) new String[]{ "a", "b" })));
+        }
+    }
+
+    @Test
+    public void testForName() throws Exception {
+        Assert.assertNull(LoadBalancer.forName("shared").select(PROVIDERS, new ProviderStatistics(), call()));
+        Assert.assertNotNull(LoadBalancer.forName(" Round-Robin ").select(PROVIDERS, new ProviderStatistics(), call()));
+        Assert.assertNotNull(LoadBalancer.forName("least-outstanding"));
+        Assert.assertNotNull(LoadBalancer.forName("latency-weighted"));
+        Assert.assertNotNull(LoadBalancer.forName("sticky"));
+        try {
+            LoadBalancer.forName("random");
+            Assert.fail("Unknown load balancer should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void record(ProviderStatistics statistics, Node node, long latency) {
+        statistics.onSend(node);
+        statistics.onComplete(node, latency);
+    }
+
+    private static Map<Node, Integer> count(LoadBalancer loadBalancer, ProviderStatistics statistics, int calls) {
+        Map<Node, Integer> counts = new HashMap<Node, Integer>();
+        for (int i = 0; i < calls; i++) {
+            Node node = loadBalancer.select(PROVIDERS, statistics, call());
+            Integer count = counts.get(node);
+            counts.put(node, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    private static RemoteServiceCall call(Object... arguments) {
+        RemoteServiceCall call = new RemoteServiceCall("id");
+        call.setArguments(new ArrayList<Object>(Arrays.asList(arguments)));
+        return call;
+    }
+
+    static class TestNode implements Node {
+
+        private final String id;
+
+        TestNode(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getHost() {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return 5701;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestNode && id.equals(((TestNode) o).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+    }
+
+}
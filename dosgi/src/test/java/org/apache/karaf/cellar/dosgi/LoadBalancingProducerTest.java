@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventConsumer;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.EventTransportFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadBalancingProducerTest {
+
+    private static final String ENDPOINT = "my.Service/1.0.0";
+    private static final Node NODE1 = new LoadBalancerTest.TestNode("node1");
+    private static final Node NODE2 = new LoadBalancerTest.TestNode("node2");
+
+    private Map<String, List<Event>> queues;
+    private LoadBalancingProducer producer;
+
+    @Before
+    public void setUp() {
+        queues = new HashMap<String, List<Event>>();
+        EventTransportFactory transportFactory = new EventTransportFactory() {
+            @Override
+            public EventProducer getEventProducer(String name, Boolean pubsub) {
+                return new QueueProducer(name);
+            }
+
+            @Override
+            public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+                return null;
+            }
+        };
+        producer = new LoadBalancingProducer(ENDPOINT, new QueueProducer("shared"), transportFactory, LoadBalancer.roundRobin());
+    }
+
+    @Test
+    public void testSharedWithoutProvider() throws Exception {
+        RemoteServiceCall call = new RemoteServiceCall("1");
+        producer.produce(call);
+        Assert.assertEquals(Collections.<Event>singletonList(call), queues.get("shared"));
+    }
+
+    @Test
+    public void testProviderQueues() throws Exception {
+        producer.setProviders(Arrays.asList(NODE1, NODE2));
+        RemoteServiceCall call1 = new RemoteServiceCall("1");
+        RemoteServiceCall call2 = new RemoteServiceCall("2");
+        producer.produce(call1);
+        producer.produce(call2);
+
+        Assert.assertNull(queues.get("shared"));
+        Assert.assertEquals(1, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)).size());
+        Assert.assertEquals(1, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE2)).size());
+        Assert.assertEquals(1, producer.getStatistics().getOutstanding(NODE1));
+        Assert.assertEquals(1, producer.getStatistics().getOutstanding(NODE2));
+
+        // the completion of the call is recorded in the provider statistics
+        RemoteServiceResult result = new RemoteServiceResult("1");
+        result.setSourceNode(NODE1);
+        call1.addResults(result);
+        Assert.assertEquals(0, producer.getStatistics().getOutstanding(NODE1));
+        Assert.assertTrue(producer.getStatistics().getLatency(NODE1) >= 0);
+
+        call2.getFuture().cancel(false);
+        Assert.assertEquals(0, producer.getStatistics().getOutstanding(NODE2));
+        Assert.assertEquals(-1, producer.getStatistics().getLatency(NODE2));
+    }
+
+    @Test
+    public void testProviderWithoutQueueUsesSharedQueue() throws Exception {
+        // NODE2 uses the shared policy (or predates the provider queues), it doesn't advertise its queue
+        producer.setProviders(Arrays.asList(NODE1, NODE2), Collections.singleton(NODE1.getId()));
+        for (int i = 0; i < 4; i++) {
+            producer.produce(new RemoteServiceCall(String.valueOf(i)));
+        }
+        Assert.assertEquals(2, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)).size());
+        Assert.assertNull(queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE2)));
+        Assert.assertEquals(2, queues.get("shared").size());
+
+        // no provider advertises its queue
+        queues.clear();
+        producer.setProviders(Arrays.asList(NODE1, NODE2), Collections.<String>emptySet());
+        producer.produce(new RemoteServiceCall("5"));
+        producer.produce(new RemoteServiceCall("6"));
+        Assert.assertEquals(2, queues.get("shared").size());
+        Assert.assertEquals(1, queues.size());
+    }
+
+    @Test
+    public void testRemovedProvider() throws Exception {
+        producer.setProviders(Arrays.asList(NODE1, NODE2));
+        producer.setProviders(Arrays.asList(NODE2));
+        for (int i = 0; i < 4; i++) {
+            producer.produce(new RemoteServiceCall(String.valueOf(i)));
+        }
+        Assert.assertNull(queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)));
+        Assert.assertEquals(4, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE2)).size());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        producer.setCircuitBreaker(new CircuitBreaker(1, 3600000));
+        producer.setProviders(Arrays.asList(NODE1, NODE2));
+        RemoteServiceCall call1 = new RemoteServiceCall("1");
+        RemoteServiceCall call2 = new RemoteServiceCall("2");
+        producer.produce(call1);
+        producer.produce(call2);
+
+        // the timed out provider is skipped
+        call1.onTimeout();
+        for (int i = 3; i < 7; i++) {
+            producer.produce(new RemoteServiceCall(String.valueOf(i)));
+        }
+        Assert.assertEquals(1, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)).size());
+        Assert.assertEquals(5, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE2)).size());
+
+        // the calls fail fast when no provider is available
+        call2.onTimeout();
+        try {
+            producer.produce(new RemoteServiceCall("7"));
+            Assert.fail("RemoteServiceUnavailableException expected");
+        } catch (RemoteServiceUnavailableException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testErrorResult() throws Exception {
+        producer.setCircuitBreaker(new CircuitBreaker(1, 3600000));
+        producer.setProviders(Arrays.asList(NODE1));
+        RemoteServiceCall call = new RemoteServiceCall("1");
+        producer.produce(call);
+
+        // an exception thrown by the remote service is not a provider failure
+        RemoteServiceResult result = new RemoteServiceResult("1");
+        result.setSourceNode(NODE1);
+        result.setError(new IllegalArgumentException("invalid"));
+        call.addResults(result);
+        Assert.assertFalse(producer.getCircuitBreaker().isOpen(NODE1.getId()));
+        producer.produce(new RemoteServiceCall("2"));
+        Assert.assertEquals(2, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)).size());
+    }
+
+    @Test
+    public void testSingleProbe() throws Exception {
+        producer.setCircuitBreaker(new CircuitBreaker(1, 0));
+        producer.setProviders(Arrays.asList(NODE1, NODE2));
+        producer.getCircuitBreaker().onFailure(NODE1.getId());
+        // a call probes the provider, the next calls go to the other provider until the probe completes
+        Assert.assertEquals(CircuitBreaker.Permit.PROBE, producer.getCircuitBreaker().tryAcquire(NODE1.getId()));
+        for (int i = 0; i < 4; i++) {
+            producer.produce(new RemoteServiceCall(String.valueOf(i)));
+        }
+        Assert.assertNull(queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE1)));
+        Assert.assertEquals(4, queues.get(LoadBalancingProducer.getProviderQueue(ENDPOINT, NODE2)).size());
+    }
+
+    private class QueueProducer implements EventProducer<Event> {
+
+        private final String name;
+        private final Switch producerSwitch = new BasicSwitch("test");
+
+        QueueProducer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void produce(Event event) {
+            List<Event> queue = queues.get(name);
+            if (queue == null) {
+                queue = new ArrayList<Event>();
+                queues.put(name, queue);
+            }
+            queue.add(event);
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return producerSwitch;
+        }
+
+    }
+
+}
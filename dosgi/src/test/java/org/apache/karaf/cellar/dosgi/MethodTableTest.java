@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class MethodTableTest {
+
+    public interface Parent {
+        String echo(String message);
+    }
+
+    public interface Service extends Parent {
+        int add(int a, int b);
+        int add(Collection<Integer> values);
+        String concat(String a, Object b);
+    }
+
+    @Test
+    public void testSameIndexes() throws Exception {
+        MethodTable table1 = new MethodTable(Service.class);
+        MethodTable table2 = new MethodTable(Service.class);
+        for (Method method : Service.class.getMethods()) {
+            int index = table1.indexOf(method);
+            Assert.assertTrue(index >= 0);
+            Assert.assertEquals(index, table2.indexOf(method));
+            Assert.assertEquals(MethodTable.getSignature(method), MethodTable.getSignature(table2.getMethod(index)));
+        }
+        Assert.assertEquals(-1, table1.indexOf(Object.class.getMethod("toString")));
+        Assert.assertNull(table1.getMethod(-1));
+        Assert.assertNull(table1.getMethod(Service.class.getMethods().length));
+    }
+
+    @Test
+    public void testGetMethodBySignature() throws Exception {
+        MethodTable table = new MethodTable(Service.class);
+        Assert.assertEquals(Service.class.getMethod("add", int.class, int.class), table.getMethod("add(int,int)"));
+        Assert.assertEquals(Parent.class.getMethod("echo", String.class), table.getMethod("echo(java.lang.String)"));
+        Assert.assertNull(table.getMethod("echo()"));
+    }
+
+    @Test
+    public void testFindMethod() throws Exception {
+        MethodTable table = new MethodTable(Service.class);
+        // primitive parameters match the wrapper types
+        Assert.assertEquals(Service.class.getMethod("add", int.class, int.class), table.findMethod("add", Arrays.<Object>asList(1, 2)));
+        // interface typed parameter
+        Assert.assertEquals(Service.class.getMethod("add", Collection.class), table.findMethod("add", Arrays.<Object>asList(new ArrayList<Integer>())));
+        // null arguments
+        Assert.assertEquals(Service.class.getMethod("concat", String.class, Object.class), table.findMethod("concat", Arrays.<Object>asList(null, null)));
+        Assert.assertNull(table.findMethod("add", Arrays.<Object>asList(null, 2)));
+        Assert.assertNull(table.findMethod("echo", new ArrayList<Object>()));
+        Assert.assertNull(table.findMethod("unknown", (List<Object>) null));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        Method addInts = Service.class.getMethod("add", int.class, int.class);
+        Method addCollection = Service.class.getMethod("add", Collection.class);
+        Assert.assertTrue(MethodTable.matches(addInts, "add", Arrays.<Object>asList(1, 2)));
+        // an index pointing to another overload of the same name
+        Assert.assertFalse(MethodTable.matches(addCollection, "add", Arrays.<Object>asList(1, 2)));
+        Assert.assertFalse(MethodTable.matches(addInts, "add", Arrays.<Object>asList(new ArrayList<Integer>())));
+        // a streamed argument matches the type it's received as
+        RemoteStream stream = new RemoteStream("1", "node1", RemoteStream.LIST, 1000);
+        Assert.assertTrue(MethodTable.matches(addCollection, "add", Arrays.<Object>asList(stream)));
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteServiceBatchingProducerTest {
+
+    @Test
+    public void testSingleCaller() throws Exception {
+        SlowProducer delegate = new SlowProducer(0);
+        RemoteServiceBatchingProducer producer = new RemoteServiceBatchingProducer(delegate);
+        for (int i = 0; i < 10; i++) {
+            producer.produce(new RemoteServiceCall(String.valueOf(i)));
+        }
+        // nothing to wait for, each call is sent right away
+        Assert.assertEquals(10, delegate.sent.size());
+        Assert.assertEquals(0, producer.getBatchCount());
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        final SlowProducer delegate = new SlowProducer(20);
+        final RemoteServiceBatchingProducer producer = new RemoteServiceBatchingProducer(delegate);
+        final int threads = 8;
+        final int calls = 20;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < calls; i++) {
+                        producer.produce(new RemoteServiceCall(thread + "-" + i));
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        Set<String> ids = new HashSet<String>();
+        for (Event event : delegate.events()) {
+            Assert.assertTrue(ids.add(event.getId()));
+        }
+        Assert.assertEquals(threads * calls, ids.size());
+        Assert.assertTrue(producer.getBatchCount() > 0);
+        Assert.assertTrue(delegate.sent.size() < threads * calls);
+    }
+
+    @Test
+    public void testMaxEvents() throws Exception {
+        final SlowProducer delegate = new SlowProducer(0);
+        final RemoteServiceBatchingProducer producer = new RemoteServiceBatchingProducer(delegate, 3, Long.MAX_VALUE);
+        // calls produced while the first one is sent
+        delegate.onProduce = new Runnable() {
+            @Override
+            public void run() {
+                delegate.onProduce = null;
+                for (int i = 1; i <= 7; i++) {
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            producer.produce(new RemoteServiceCall("other"));
+                        }
+                    }.start();
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        producer.produce(new RemoteServiceCall("first"));
+        Thread.sleep(100);
+        Assert.assertEquals(8, delegate.events().size());
+        for (Event event : delegate.sent) {
+            if (event instanceof EventBatch) {
+                Assert.assertTrue(((EventBatch) event).getEvents().size() <= 3);
+            }
+        }
+    }
+
+    @Test
+    public void testFailureCancelsCalls() throws Exception {
+        EventProducer<Event> failing = new SlowProducer(0) {
+            @Override
+            public void produce(Event event) {
+                throw new IllegalStateException("queue not available");
+            }
+        };
+        RemoteServiceBatchingProducer producer = new RemoteServiceBatchingProducer(failing);
+        RemoteServiceCall call = new RemoteServiceCall("1");
+        try {
+            producer.produce(call);
+            Assert.fail("The failure should be propagated");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertTrue(call.getFuture().isCancelled());
+    }
+
+    @Test
+    public void testFailureWhileQueued() throws Exception {
+        final AtomicInteger produced = new AtomicInteger();
+        final RemoteServiceCall other = new RemoteServiceCall("other");
+        final CountDownLatch queued = new CountDownLatch(1);
+        final RemoteServiceBatchingProducer[] producer = new RemoteServiceBatchingProducer[1];
+        EventProducer<Event> failing = new SlowProducer(0) {
+            @Override
+            public void produce(Event event) {
+                if (produced.incrementAndGet() == 1) {
+                    // another caller queues its call while the first one is sent
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            queued.countDown();
+                            producer[0].produce(other);
+                        }
+                    }.start();
+                    try {
+                        Assert.assertTrue(queued.await(10, TimeUnit.SECONDS));
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.produce(event);
+                } else {
+                    throw new IllegalStateException("queue not available");
+                }
+            }
+        };
+        producer[0] = new RemoteServiceBatchingProducer(failing);
+        RemoteServiceCall first = new RemoteServiceCall("first");
+        // the first call has been sent, the failure is not its own
+        producer[0].produce(first);
+        Assert.assertFalse(first.getFuture().isCancelled());
+        Assert.assertTrue(other.getFuture().isCancelled());
+
+        // the producer is not stuck in the sending state
+        RemoteServiceCall next = new RemoteServiceCall("next");
+        try {
+            producer[0].produce(next);
+            Assert.fail("The failure should be propagated");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertTrue(next.getFuture().isCancelled());
+        Assert.assertEquals(3, produced.get());
+    }
+
+    @Test
+    public void testSenderHandsOff() throws Exception {
+        final SlowProducer delegate = new SlowProducer(5);
+        final RemoteServiceBatchingProducer producer = new RemoteServiceBatchingProducer(delegate);
+        final int threads = 4;
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch stopped = new CountDownLatch(threads);
+        // the other callers keep producing while the first call is sent
+        delegate.onProduce = new Runnable() {
+            @Override
+            public void run() {
+                delegate.onProduce = null;
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; !stop.get(); i++) {
+                                producer.produce(new RemoteServiceCall(thread + "-" + i));
+                                calls.incrementAndGet();
+                            }
+                            stopped.countDown();
+                        }
+                    }.start();
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final CountDownLatch first = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                producer.produce(new RemoteServiceCall("first"));
+                first.countDown();
+            }
+        }.start();
+
+        // the first caller returns while the others are still producing
+        Assert.assertTrue(first.await(10, TimeUnit.SECONDS));
+        int produced = calls.get();
+        Thread.sleep(100);
+        Assert.assertTrue(calls.get() > produced);
+
+        stop.set(true);
+        Assert.assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        Set<String> ids = new HashSet<String>();
+        for (Event event : delegate.events()) {
+            Assert.assertTrue(ids.add(event.getId()));
+        }
+        Assert.assertEquals(calls.get() + 1, ids.size());
+    }
+
+    private static class SlowProducer implements EventProducer<Event> {
+
+        private final long delay;
+        private final Switch producerSwitch = new BasicSwitch("test");
+        final List<Event> sent = Collections.synchronizedList(new ArrayList<Event>());
+        volatile Runnable onProduce;
+
+        SlowProducer(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public void produce(Event event) {
+            Runnable runnable = onProduce;
+            if (runnable != null) {
+                runnable.run();
+            }
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(event);
+        }
+
+        List<Event> events() {
+            List<Event> events = new ArrayList<Event>();
+            synchronized (sent) {
+                for (Event event : sent) {
+                    if (event instanceof EventBatch) {
+                        events.addAll(((EventBatch) event).getEvents());
+                    } else {
+                        events.add(event);
+                    }
+                }
+            }
+            return events;
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return producerSwitch;
+        }
+
+    }
+
+}
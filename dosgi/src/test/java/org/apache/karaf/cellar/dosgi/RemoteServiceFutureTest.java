@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteServiceFutureTest {
+
+    @Test
+    public void testIsAsync() throws Exception {
+        Assert.assertTrue(RemoteServiceFuture.isAsync(Future.class));
+        Assert.assertFalse(RemoteServiceFuture.isAsync(String.class));
+        Assert.assertFalse(RemoteServiceFuture.isAsync(void.class));
+    }
+
+    @Test
+    public void testFuture() throws Exception {
+        CommandFuture<RemoteServiceResult> commandFuture = new CommandFuture<RemoteServiceResult>();
+        RemoteServiceFuture future = new RemoteServiceFuture("1", commandFuture, Future.class);
+        Assert.assertSame(future, future.getReturnValue());
+        Assert.assertFalse(future.isDone());
+
+        commandFuture.complete(result("1", "value"));
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals("value", future.get());
+        Assert.assertEquals("value", future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CommandFuture<RemoteServiceResult> commandFuture = new CommandFuture<RemoteServiceResult>();
+        RemoteServiceFuture future = new RemoteServiceFuture("1", commandFuture, Future.class);
+        commandFuture.complete(Collections.<Node, RemoteServiceResult>emptyMap());
+        try {
+            future.get();
+            Assert.fail("The remote call should time out");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        CommandFuture<RemoteServiceResult> commandFuture = new CommandFuture<RemoteServiceResult>();
+        RemoteServiceFuture future = new RemoteServiceFuture("1", commandFuture, Future.class);
+        Map<Node, RemoteServiceResult> results = result("1", null);
+        IllegalStateException error = new IllegalStateException("failed");
+        results.values().iterator().next().setError(error);
+        commandFuture.complete(results);
+        try {
+            future.get();
+            Assert.fail("The exception of the remote service should be thrown");
+        } catch (ExecutionException e) {
+            Assert.assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void testCompletableFuture() throws Exception {
+        Class<?> type;
+        try {
+            type = Class.forName("java.util.concurrent.CompletableFuture");
+        } catch (ClassNotFoundException e) {
+            // not available on this Java version
+            return;
+        }
+        CommandFuture<RemoteServiceResult> commandFuture = new CommandFuture<RemoteServiceResult>();
+        Object completableFuture = new RemoteServiceFuture("1", commandFuture, type).getReturnValue();
+        Assert.assertTrue(type.isInstance(completableFuture));
+        Assert.assertFalse(((Future) completableFuture).isDone());
+
+        commandFuture.complete(result("1", 42));
+        Assert.assertEquals(42, ((Future) completableFuture).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWhenComplete() throws Exception {
+        final AtomicInteger completed = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                completed.incrementAndGet();
+            }
+        };
+        Assert.assertFalse(RemoteServiceFuture.whenComplete(new FutureTask<Object>(task, null), task));
+
+        Class<?> type;
+        try {
+            type = Class.forName("java.util.concurrent.CompletableFuture");
+        } catch (ClassNotFoundException e) {
+            // not available on this Java version
+            return;
+        }
+        Object completableFuture = type.newInstance();
+        Assert.assertTrue(RemoteServiceFuture.whenComplete(completableFuture, task));
+        Assert.assertEquals(0, completed.get());
+        type.getMethod("complete", Object.class).invoke(completableFuture, "value");
+        Assert.assertEquals(1, completed.get());
+    }
+
+    private static Map<Node, RemoteServiceResult> result(String id, Object value) {
+        RemoteServiceResult result = new RemoteServiceResult(id);
+        result.setResult(value);
+        Map<Node, RemoteServiceResult> results = new HashMap<Node, RemoteServiceResult>();
+        results.put(null, result);
+        return results;
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventConsumer;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.EventTransportFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteStreamManagerTest {
+
+    private static final Node NODE1 = new LoadBalancerTest.TestNode("node1");
+    private static final Node NODE2 = new LoadBalancerTest.TestNode("node2");
+
+    private final Map<String, RemoteStreamManager> managers = new HashMap<String, RemoteStreamManager>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private ExecutorService dispatcher;
+    private RemoteStreamManager sender;
+    private RemoteStreamManager receiver;
+
+    @Before
+    public void setUp() {
+        dispatcher = Executors.newSingleThreadExecutor();
+        sender = createManager(NODE1);
+        receiver = createManager(NODE2);
+    }
+
+    @After
+    public void tearDown() {
+        sender.destroy();
+        receiver.destroy();
+        dispatcher.shutdownNow();
+    }
+
+    @Test
+    public void testSmallValues() throws Exception {
+        byte[] bytes = new byte[16];
+        Assert.assertSame(bytes, sender.export(bytes, byte[].class));
+        List<String> list = Arrays.asList("a", "b");
+        Assert.assertSame(list, sender.export(list, List.class));
+        Assert.assertEquals("a", sender.export("a", String.class));
+        Assert.assertNull(sender.export(null, Object.class));
+    }
+
+    @Test
+    public void testBytes() throws Exception {
+        byte[] bytes = new byte[10000];
+        new Random(1).nextBytes(bytes);
+        Object stream = sender.export(bytes, byte[].class);
+        Assert.assertTrue(RemoteStreamManager.isStream(stream));
+        Assert.assertArrayEquals(bytes, (byte[]) receiver.resolve(stream));
+    }
+
+    @Test
+    public void testInputStream() throws Exception {
+        byte[] bytes = new byte[10000];
+        new Random(2).nextBytes(bytes);
+        TrackedInputStream in = new TrackedInputStream(bytes);
+        Object stream = sender.export(in, InputStream.class);
+        Assert.assertTrue(RemoteStreamManager.isStream(stream));
+
+        InputStream remote = (InputStream) receiver.resolve(stream);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[100];
+        int read;
+        while ((read = remote.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+            // the sender doesn't read ahead more than the window
+            Assert.assertTrue(in.position() <= out.size() + 1024 * (sender.getWindow() + 1));
+        }
+        Assert.assertArrayEquals(bytes, out.toByteArray());
+        Assert.assertTrue(in.closed);
+    }
+
+    @Test
+    public void testInputStreamClosedEarly() throws Exception {
+        TrackedInputStream in = new TrackedInputStream(new byte[100000]);
+        InputStream remote = (InputStream) receiver.resolve(sender.export(in, InputStream.class));
+        Assert.assertEquals(0, remote.read());
+        remote.close();
+        for (int i = 0; i < 100 && !in.closed; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(in.closed);
+    }
+
+    @Test
+    public void testList() throws Exception {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        Object stream = sender.export(list, List.class);
+        Assert.assertTrue(RemoteStreamManager.isStream(stream));
+        Assert.assertEquals(list, receiver.resolve(stream));
+    }
+
+    @Test
+    public void testListSize() throws Exception {
+        // the list is sent in chunks according to its estimated size, not its number of elements
+        List<Integer> small = new ArrayList<Integer>();
+        for (int i = 0; i < 50; i++) {
+            small.add(i);
+        }
+        Assert.assertSame(small, sender.export(small, List.class));
+        char[] chars = new char[500];
+        Arrays.fill(chars, 'a');
+        List<String> large = Arrays.asList(new String(chars), new String(chars), new String(chars));
+        Object stream = sender.export(large, List.class);
+        Assert.assertTrue(RemoteStreamManager.isStream(stream));
+        Assert.assertEquals(large, receiver.resolve(stream));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRelease() throws Exception {
+        TrackedInputStream in = new TrackedInputStream(new byte[10000]);
+        Object stream = sender.export(in, InputStream.class);
+        // the call holding the stream has not been sent
+        sender.release(stream);
+        Assert.assertTrue(in.closed);
+        ((InputStream) receiver.resolve(stream)).read();
+    }
+
+    @Test
+    public void testIterable() throws Exception {
+        final List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        Iterable<Integer> iterable = new Iterable<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return list.iterator();
+            }
+        };
+        // an iterable is sent in chunks only if the receiver expects an iterable
+        Assert.assertSame(iterable, sender.export(iterable, Object.class));
+
+        Iterable remote = (Iterable) receiver.resolve(sender.export(iterable, Iterable.class));
+        List<Object> received = new ArrayList<Object>();
+        for (Object element : remote) {
+            received.add(element);
+        }
+        Assert.assertEquals(list, received);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownStream() throws Exception {
+        receiver.resolve(new RemoteStream("unknown", NODE1.getId(), RemoteStream.BYTES, 10));
+    }
+
+    private RemoteStreamManager createManager(final Node node) {
+        RemoteStreamManager manager = new RemoteStreamManager();
+        manager.setClusterManager((ClusterManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ ClusterManager.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getNode")) {
+                    return node;
+                }
+                if (method.getName().equals("generateId")) {
+                    return String.valueOf(ids.incrementAndGet());
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+        manager.setEventTransportFactory(new EventTransportFactory() {
+            @Override
+            public EventProducer getEventProducer(String name, Boolean pubsub) {
+                return new StreamProducer(node, name.substring(name.lastIndexOf(Constants.SEPARATOR) + 1));
+            }
+
+            @Override
+            public EventConsumer getEventConsumer(String name, Boolean pubsub) {
+                return new StreamConsumer();
+            }
+        });
+        manager.setChunkSize(1024);
+        manager.setChunkElements(100);
+        manager.setWindow(2);
+        manager.setTimeout(5000);
+        manager.init();
+        managers.put(node.getId(), manager);
+        return manager;
+    }
+
+    /**
+     * Deliver the stream events to the manager of the target node, on a dispatcher thread.
+     */
+    private class StreamProducer implements EventProducer<Event> {
+
+        private final Node source;
+        private final String target;
+        private final Switch producerSwitch = new BasicSwitch("test");
+
+        StreamProducer(Node source, String target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public void produce(final Event event) {
+            event.setSourceNode(source);
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    RemoteStreamManager manager = managers.get(target);
+                    if (event instanceof RemoteStreamRequest) {
+                        manager.serve((RemoteStreamRequest) event);
+                    } else {
+                        manager.receive((RemoteStreamChunk) event);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return producerSwitch;
+        }
+
+    }
+
+    private static class StreamConsumer implements EventConsumer<Event> {
+
+        private boolean consuming;
+
+        @Override
+        public void consume(Event event) {
+        }
+
+        @Override
+        public void start() {
+            consuming = true;
+        }
+
+        @Override
+        public void stop() {
+            consuming = false;
+        }
+
+        @Override
+        public Boolean isConsuming() {
+            return consuming;
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return new BasicSwitch("test");
+        }
+
+    }
+
+    private static class TrackedInputStream extends ByteArrayInputStream {
+
+        private volatile boolean closed;
+
+        TrackedInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        synchronized int position() {
+            return pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+    }
+
+}
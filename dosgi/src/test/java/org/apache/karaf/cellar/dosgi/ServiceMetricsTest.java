@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.dosgi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ServiceMetricsTest {
+
+    private static final String ENDPOINT = "my.Service/1.0.0";
+
+    @Test
+    public void testStatistics() throws Exception {
+        ServiceMetrics metrics = new ServiceMetrics();
+        MethodStatistics statistics = metrics.getStatistics(ServiceMetrics.CALLER, ENDPOINT, "echo(java.lang.String)");
+        Assert.assertSame(statistics, metrics.getStatistics(ServiceMetrics.CALLER, ENDPOINT, "echo(java.lang.String)"));
+
+        statistics.onStart();
+        statistics.onStart();
+        Assert.assertEquals(2, statistics.getInFlight());
+        statistics.onComplete(1000, 5000);
+        statistics.onError();
+        Assert.assertEquals(0, statistics.getInFlight());
+        Assert.assertEquals(2, statistics.getCount());
+        Assert.assertEquals(1, statistics.getErrors());
+        Assert.assertEquals(1, statistics.getWait().getCount());
+        Assert.assertEquals(1, statistics.getExecution().getCount());
+
+        // unknown wait time
+        statistics.onStart();
+        statistics.onComplete(-1, 5000);
+        Assert.assertEquals(1, statistics.getWait().getCount());
+        Assert.assertEquals(2, statistics.getExecution().getCount());
+    }
+
+    @Test
+    public void testSortAndReset() throws Exception {
+        ServiceMetrics metrics = new ServiceMetrics();
+        metrics.getStatistics(ServiceMetrics.PROVIDER, ENDPOINT, "b()");
+        metrics.getStatistics(ServiceMetrics.CALLER, ENDPOINT, "b()");
+        metrics.getStatistics(ServiceMetrics.CALLER, ENDPOINT, "a()");
+
+        List<MethodStatistics> statistics = metrics.getStatistics();
+        Assert.assertEquals(3, statistics.size());
+        Assert.assertEquals(ServiceMetrics.CALLER, statistics.get(0).getSide());
+        Assert.assertEquals("a()", statistics.get(0).getMethod());
+        Assert.assertEquals("b()", statistics.get(1).getMethod());
+        Assert.assertEquals(ServiceMetrics.PROVIDER, statistics.get(2).getSide());
+
+        metrics.reset();
+        Assert.assertTrue(metrics.getStatistics().isEmpty());
+    }
+
+}
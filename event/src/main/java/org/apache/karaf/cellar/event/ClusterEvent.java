@@ -14,14 +14,19 @@
 package org.apache.karaf.cellar.event;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Cluster event.
  */
-public class ClusterEvent extends Event {
+public class ClusterEvent extends Event implements CellarSerializable {
 
     private String topicName;
     private Map<String, Serializable> properties;
@@ -48,4 +53,44 @@ public class ClusterEvent extends Event {
         this.properties = properties;
     }
 
+    @Override
+    public int getFactoryId() {
+        return EventEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return EventEventTypeFactory.CLUSTER_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(topicName);
+        out.writeInt(properties == null ? -1 : properties.size());
+        if (properties != null) {
+            for (Map.Entry<String, Serializable> entry : properties.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeObject(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        topicName = in.readString();
+        int size = in.readInt();
+        if (size < 0) {
+            properties = null;
+        } else {
+            properties = new HashMap<String, Serializable>();
+            for (int i = 0; i < size; i++) {
+                String key = in.readString();
+                Serializable value = in.readObject();
+                properties.put(key, value);
+            }
+        }
+    }
+
 }
@@ -13,13 +13,12 @@
  */
 package org.apache.karaf.cellar.event;
 
-import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventType;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,7 +60,8 @@ public class ClusterEventHandler extends EventSupport implements EventHandler<Cl
             if (isAllowed(event.getSourceGroup(), Constants.CATEGORY, event.getTopicName(), EventType.INBOUND)) {
                 Map<String, Serializable> properties = event.getProperties();
                 properties.put(Constants.EVENT_PROCESSED_KEY, Constants.EVENT_PROCESSED_VALUE);
-                properties.put(Constants.EVENT_SOURCE_GROUP_KEY, event.getSourceGroup());
+                Group sourceGroup = groupManager.findGroupByName(event.getSourceGroupName());
+                properties.put(Constants.EVENT_SOURCE_GROUP_KEY, (sourceGroup != null) ? sourceGroup : event.getSourceGroup());
                 properties.put(Constants.EVENT_SOURCE_NODE_KEY, event.getSourceNode());
                 postEvent(event.getTopicName(), properties);
             } else LOGGER.trace("CELLAR EVENT: event {} is marked BLOCKED INBOUND for cluster group {}", event.getTopicName(), event.getSourceGroup().getName());
@@ -85,19 +85,13 @@ public class ClusterEventHandler extends EventSupport implements EventHandler<Cl
      */
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getHandlerStatus(this.getClass().getName()).equals(SwitchStatus.ON)) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // ignore
         }
         return eventSwitch;
     }
@@ -14,12 +14,17 @@
 package org.apache.karaf.cellar.features;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 import org.apache.karaf.features.FeatureEvent.EventType;
 
+import java.io.IOException;
+
 /**
  * Cluster features event.
  */
-public class ClusterFeaturesEvent extends Event {
+public class ClusterFeaturesEvent extends Event implements CellarSerializable {
 
     private static final String separator = "/";
 
@@ -67,4 +72,37 @@ public class ClusterFeaturesEvent extends Event {
         return type;
     }
 
+    @Override
+    public int getFactoryId() {
+        return FeaturesEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return FeaturesEventTypeFactory.CLUSTER_FEATURES_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(name);
+        out.writeString(version);
+        out.writeByte(noRefresh == null ? -1 : (noRefresh ? 1 : 0));
+        out.writeByte(noStart == null ? -1 : (noStart ? 1 : 0));
+        out.writeByte(type == null ? -1 : type.ordinal());
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        name = in.readString();
+        version = in.readString();
+        byte noRefreshFlag = in.readByte();
+        noRefresh = noRefreshFlag < 0 ? null : noRefreshFlag == 1;
+        byte noStartFlag = in.readByte();
+        noStart = noStartFlag < 0 ? null : noStartFlag == 1;
+        int typeOrdinal = in.readByte();
+        type = typeOrdinal < 0 ? null : EventType.values()[typeOrdinal];
+    }
+
 }
@@ -14,12 +14,17 @@
 package org.apache.karaf.cellar.features;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
 import org.apache.karaf.features.RepositoryEvent.EventType;
 
+import java.io.IOException;
+
 /**
  * Cluster features repository event.
  */
-public class ClusterRepositoryEvent extends Event {
+public class ClusterRepositoryEvent extends Event implements CellarSerializable {
 
 	private EventType type;
     private Boolean install;
@@ -53,9 +58,38 @@ public class ClusterRepositoryEvent extends Event {
     @Override
 	public String toString() {
 		return "ClusterRepositoryEvent [type=" + type + ", id=" + id
-				+ ", sourceNode=" + sourceNode + ", sourceGroup=" + sourceGroup
+				+ ", sourceNode=" + sourceNode + ", sourceGroup=" + sourceGroupName
 				+ ", destination=" + destination + ", force=" + force
 				+ ", postPublish=" + postPublish + "]";
 	}
-    
+
+    @Override
+    public int getFactoryId() {
+        return FeaturesEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return FeaturesEventTypeFactory.CLUSTER_REPOSITORY_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeByte(type == null ? -1 : type.ordinal());
+        out.writeByte(install == null ? -1 : (install ? 1 : 0));
+        out.writeByte(uninstall == null ? -1 : (uninstall ? 1 : 0));
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int typeOrdinal = in.readByte();
+        type = typeOrdinal < 0 ? null : EventType.values()[typeOrdinal];
+        byte installFlag = in.readByte();
+        install = installFlag < 0 ? null : installFlag == 1;
+        byte uninstallFlag = in.readByte();
+        uninstall = uninstallFlag < 0 ? null : uninstallFlag == 1;
+    }
+
 }
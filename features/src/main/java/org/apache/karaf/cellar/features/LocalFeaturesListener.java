@@ -21,11 +21,9 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.FeatureEvent;
 import org.apache.karaf.features.RepositoryEvent;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Dictionary;
 import java.util.Map;
 import java.util.Set;
 
@@ -181,17 +179,7 @@ public class LocalFeaturesListener extends FeaturesSupport implements org.apache
      * @return true if enabled, false else.
      */
     private boolean isEnabled() {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            Dictionary<String, Object> properties = configuration.getProperties();
-            if (properties != null) {
-                String value = properties.get(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER).toString();
-                return Boolean.parseBoolean(value);
-            }
-        } catch (Exception e) {
-            LOGGER.warn("CELLAR FEATURE: can't check listener configuration", e);
-        }
-        return false;
+        return switchRegistry != null && switchRegistry.getListenerStatus(Constants.CATEGORY).equals(SwitchStatus.ON);
     }
 
     public EventProducer getEventProducer() {
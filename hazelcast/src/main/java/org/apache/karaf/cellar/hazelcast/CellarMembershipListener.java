@@ -16,7 +16,9 @@ package org.apache.karaf.cellar.hazelcast;
 import com.hazelcast.core.*;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeListener;
 import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.event.UnicastEventProducer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +34,8 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
 
     private GroupManager groupManager;
     private List<? extends Synchronizer> synchronizers;
+    private UnicastEventProducer unicastProducer;
+    private List<? extends NodeListener> nodeListeners;
 
     public CellarMembershipListener(HazelcastInstance instance) {
         this.instance = instance;
@@ -61,7 +65,20 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
 
     @Override
     public void memberRemoved(MembershipEvent membershipEvent) {
-        // nothing to do
+        Member member = membershipEvent.getMember();
+        HazelcastNode node = new HazelcastNode(member.getInetSocketAddress().getHostName(), member.getInetSocketAddress().getPort());
+        if (unicastProducer != null) {
+            unicastProducer.removeNode(node);
+        }
+        if (nodeListeners != null) {
+            for (NodeListener listener : nodeListeners) {
+                try {
+                    listener.nodeRemoved(node);
+                } catch (Exception e) {
+                    LOGGER.warn("Error while calling memberRemoved", e);
+                }
+            }
+        }
     }
 
     @Override
@@ -85,4 +102,20 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
         this.synchronizers = synchronizers;
     }
 
+    public List<? extends NodeListener> getNodeListeners() {
+        return nodeListeners;
+    }
+
+    public void setNodeListeners(List<? extends NodeListener> nodeListeners) {
+        this.nodeListeners = nodeListeners;
+    }
+
+    public UnicastEventProducer getUnicastProducer() {
+        return unicastProducer;
+    }
+
+    public void setUnicastProducer(UnicastEventProducer unicastProducer) {
+        this.unicastProducer = unicastProducer;
+    }
+
 }
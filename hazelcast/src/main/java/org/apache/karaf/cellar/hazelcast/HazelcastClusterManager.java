@@ -14,12 +14,17 @@
 package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.Cluster;
-import com.hazelcast.core.IdGenerator;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.EntryListener;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.MapEvent;
 import com.hazelcast.core.Member;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.MapListener;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
+import org.apache.karaf.cellar.core.utils.LocalIdGenerator;
 import org.osgi.service.cm.ConfigurationAdmin;
 
 import java.util.Collection;
@@ -35,7 +40,7 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
 
     private static final String GENERATOR_ID = "org.apache.karaf.cellar.idgen";
 
-    private IdGenerator idgenerator;
+    private volatile LocalIdGenerator idGenerator;
 
     private ConfigurationAdmin configurationAdmin;
     private CombinedClassLoader combinedClassLoader;
@@ -51,6 +56,60 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
         return instance.getMap(mapName);
     }
 
+    /**
+     * Listen the changes of a Map in Hazelcast.
+     *
+     * @param mapName the Map name.
+     * @param listener the listener to notify.
+     * @return the Hazelcast entry listener ID.
+     */
+    @Override
+    public String addMapListener(String mapName, final MapListener listener) {
+        IMap map = instance.getMap(mapName);
+        return map.addEntryListener(new EntryListener() {
+            @Override
+            public void entryAdded(EntryEvent event) {
+                listener.entryUpdated(event.getKey(), event.getValue());
+            }
+
+            @Override
+            public void entryUpdated(EntryEvent event) {
+                listener.entryUpdated(event.getKey(), event.getValue());
+            }
+
+            @Override
+            public void entryRemoved(EntryEvent event) {
+                listener.entryRemoved(event.getKey());
+            }
+
+            @Override
+            public void entryEvicted(EntryEvent event) {
+                listener.entryRemoved(event.getKey());
+            }
+
+            @Override
+            public void mapEvicted(MapEvent event) {
+                listener.mapCleared();
+            }
+
+            @Override
+            public void mapCleared(MapEvent event) {
+                listener.mapCleared();
+            }
+        }, true);
+    }
+
+    /**
+     * Stop listening the changes of a Map in Hazelcast.
+     *
+     * @param mapName the Map name.
+     * @param id the Hazelcast entry listener ID.
+     */
+    @Override
+    public void removeMapListener(String mapName, String id) {
+        instance.getMap(mapName).removeEntryListener(id);
+    }
+
     /**
      * Get a List in Hazelcast.
      *
@@ -158,16 +217,24 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
     }
 
     /**
-     * Generate an unique ID.
+     * Generate an unique ID across the cluster.
+     * The Hazelcast ID generator is only used once, to get a prefix unique in the cluster. The IDs are then generated
+     * locally, without lock and without cluster round-trip.
      *
      * @return the generated unique ID.
      */
     @Override
-    public synchronized String generateId() {
-        if (idgenerator == null) {
-            idgenerator = instance.getIdGenerator(GENERATOR_ID);
+    public String generateId() {
+        LocalIdGenerator generator = idGenerator;
+        if (generator == null) {
+            synchronized (this) {
+                if (idGenerator == null) {
+                    idGenerator = new LocalIdGenerator(Long.toString(instance.getIdGenerator(GENERATOR_ID).newId(), Character.MAX_RADIX));
+                }
+                generator = idGenerator;
+            }
         }
-        return String.valueOf(idgenerator.newId());
+        return generator.generateId();
     }
 
     @Override
@@ -16,12 +16,20 @@ package org.apache.karaf.cellar.hazelcast;
 import com.hazelcast.core.IQueue;
 import com.hazelcast.core.ITopic;
 import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
+import org.apache.karaf.cellar.core.event.BatchingEventProducer;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
+import org.apache.karaf.cellar.core.event.UnicastEventProducer;
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.service.cm.ConfigurationAdmin;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * An event transport factory powered by Hazelcast.
  */
@@ -30,6 +38,31 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
     private Dispatcher dispatcher;
     private CombinedClassLoader combinedClassLoader;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private EventMetrics metrics;
+
+    private int batchMaxEvents = BatchingEventProducer.DEFAULT_MAX_EVENTS;
+    private long batchMaxBytes = BatchingEventProducer.DEFAULT_MAX_BYTES;
+    private long batchLinger = BatchingEventProducer.DEFAULT_LINGER;
+    private ScheduledExecutorService batchScheduler;
+
+    public void init() {
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Cellar group batching producer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void destroy() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+            batchScheduler = null;
+        }
+    }
 
     @Override
     public EventProducer getEventProducer(String name, Boolean pubsub) {
@@ -40,17 +73,41 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             producer.setTopic(topic);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setSwitchRegistry(switchRegistry);
+            producer.setMetrics(metrics);
             producer.init();
-            return producer;
+            return batch(producer);
         } else {
             IQueue queue = instance.getQueue(Constants.QUEUE + Constants.SEPARATOR + name);
             QueueProducer producer = new QueueProducer();
             producer.setQueue(queue);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setSwitchRegistry(switchRegistry);
+            producer.setMetrics(metrics);
             producer.init();
+            return batch(producer);
+        }
+    }
+
+    /**
+     * Wrap a producer with a batching producer, if batching is enabled.
+     *
+     * @param producer the producer sending the cluster messages.
+     * @return the producer to use.
+     */
+    private EventProducer batch(EventProducer producer) {
+        if (batchMaxEvents <= 1 || batchScheduler == null) {
             return producer;
         }
+        BatchingEventProducer batchingProducer = new BatchingEventProducer();
+        batchingProducer.setDelegate(producer);
+        batchingProducer.setMaxEvents(batchMaxEvents);
+        batchingProducer.setMaxBytes(batchMaxBytes);
+        batchingProducer.setLinger(batchLinger);
+        batchingProducer.setScheduler(batchScheduler);
+        batchingProducer.init();
+        return batchingProducer;
     }
 
     @Override
@@ -63,6 +120,8 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setSwitchRegistry(switchRegistry);
+            consumer.setMetrics(metrics);
             consumer.init();
             return consumer;
         } else {
@@ -73,11 +132,22 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setSwitchRegistry(switchRegistry);
+            consumer.setMetrics(metrics);
             consumer.init();
             return consumer;
         }
     }
 
+    /**
+     * Get a consumer of the local node inbox, receiving the cluster events sent to this node only.
+     *
+     * @return the inbox consumer.
+     */
+    public EventConsumer getInboxConsumer() {
+        return getEventConsumer(UnicastEventProducer.getInboxName(getNode()), Boolean.TRUE);
+    }
+
     public Dispatcher getDispatcher() {
         return dispatcher;
     }
@@ -102,4 +172,44 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
         this.configurationAdmin = configurationAdmin;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public void setBatchMaxEvents(int batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public long getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public void setBatchMaxBytes(long batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public long getBatchLinger() {
+        return batchLinger;
+    }
+
+    public void setBatchLinger(long batchLinger) {
+        this.batchLinger = batchLinger;
+    }
+
 }
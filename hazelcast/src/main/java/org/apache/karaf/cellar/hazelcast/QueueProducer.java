@@ -29,15 +29,16 @@ package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IQueue;
-import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.command.Result;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
 import org.apache.karaf.cellar.core.event.EventProducer;
-import org.osgi.service.cm.Configuration;
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.PipelineStage;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,8 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
     private IQueue<E> queue;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private EventMetrics metrics;
 
     public void init() {
         if (queue == null) {
@@ -72,9 +75,16 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
     public void produce(E event) {
         if (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce() || event instanceof Result) {
             event.setSourceNode(node);
+            long start = System.nanoTime();
             try {
                 queue.put(event);
+                if (metrics != null) {
+                    metrics.record(PipelineStage.PRODUCE, event, System.nanoTime() - start);
+                }
             } catch (InterruptedException e) {
+                if (metrics != null) {
+                    metrics.error(PipelineStage.PRODUCE, event);
+                }
                 LOGGER.error("CELLAR HAZELCAST: queue producer interrupted", e);
             }
         } else {
@@ -86,19 +96,13 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
 
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.PRODUCER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getProducerStatus().equals(SwitchStatus.ON)) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // ignore
         }
         return eventSwitch;
     }
@@ -135,4 +139,20 @@ public class QueueProducer<E extends Event> implements EventProducer<E> {
         this.configurationAdmin = configurationAdmin;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 }
@@ -17,15 +17,17 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ITopic;
 import com.hazelcast.core.Message;
 import com.hazelcast.core.MessageListener;
-import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Dispatcher;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.control.SwitchRegistry;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
 import org.apache.karaf.cellar.core.event.EventConsumer;
-import org.osgi.service.cm.Configuration;
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.PipelineStage;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +49,8 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     private Dispatcher dispatcher;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private SwitchRegistry switchRegistry;
+    private EventMetrics metrics;
 
     private boolean isConsuming;
 
@@ -62,10 +66,22 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void consume(E event) {
+        if (event instanceof EventBatch) {
+            // unpack the batch and consume each event in order
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                consume((E) batched);
+            }
+            return;
+        }
         // check if event has a specified destination.
         if ((event.getDestination() == null || event.getDestination().contains(node)) && (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce())) {
+            long start = System.nanoTime();
             dispatcher.dispatch(event);
+            if (metrics != null) {
+                metrics.record(PipelineStage.CONSUME, event, System.nanoTime() - start);
+            }
         } else {
             if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
                 LOGGER.debug("CELLAR HAZELCAST: {} switch is OFF, cluster event is not consumed", SWITCH_ID);
@@ -129,19 +145,13 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
 
     @Override
     public Switch getSwitch() {
-        // load the switch status from the config
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.CONSUMER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+        // sync the switch status with the node configuration
+        if (switchRegistry != null) {
+            if (switchRegistry.getConsumerStatus().equals(SwitchStatus.ON)) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
-        } catch (Exception e) {
-            // ignore
         }
         return eventSwitch;
     }
@@ -162,4 +172,20 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
         this.configurationAdmin = configurationAdmin;
     }
 
+    public SwitchRegistry getSwitchRegistry() {
+        return switchRegistry;
+    }
+
+    public void setSwitchRegistry(SwitchRegistry switchRegistry) {
+        this.switchRegistry = switchRegistry;
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 }
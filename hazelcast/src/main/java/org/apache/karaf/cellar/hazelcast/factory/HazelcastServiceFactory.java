@@ -16,9 +16,13 @@ package org.apache.karaf.cellar.hazelcast.factory;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
+import com.hazelcast.config.Config;
+import com.hazelcast.config.SerializerConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
+import org.apache.karaf.cellar.hazelcast.serialization.EventSerializer;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -29,6 +33,7 @@ public class HazelcastServiceFactory {
     private BundleContext bundleContext;
     private CombinedClassLoader combinedClassLoader;
     private HazelcastConfigurationManager configurationManager = new HazelcastConfigurationManager();
+    private EventSerializer eventSerializer;
 
     private CountDownLatch initializationLatch = new CountDownLatch(1);
     private CountDownLatch instanceLatch = new CountDownLatch(1);
@@ -74,7 +79,14 @@ public class HazelcastServiceFactory {
         if (combinedClassLoader != null) {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
         }
-        return Hazelcast.newHazelcastInstance(configurationManager.getHazelcastConfig());
+        Config config = configurationManager.getHazelcastConfig();
+        if (eventSerializer != null) {
+            SerializerConfig serializerConfig = new SerializerConfig();
+            serializerConfig.setTypeClass(CellarSerializable.class);
+            serializerConfig.setImplementation(eventSerializer);
+            config.getSerializationConfig().addSerializerConfig(serializerConfig);
+        }
+        return Hazelcast.newHazelcastInstance(config);
     }
 
     public BundleContext getBundleContext() {
@@ -93,4 +105,12 @@ public class HazelcastServiceFactory {
         this.combinedClassLoader = combinedClassLoader;
     }
 
+    public EventSerializer getEventSerializer() {
+        return eventSerializer;
+    }
+
+    public void setEventSerializer(EventSerializer eventSerializer) {
+        this.eventSerializer = eventSerializer;
+    }
+
 }
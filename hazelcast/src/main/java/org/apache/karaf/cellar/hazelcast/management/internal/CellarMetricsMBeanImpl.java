@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.management.internal;
+
+import org.apache.karaf.cellar.core.management.CellarMetricsMBean;
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.EventStatistics;
+import org.apache.karaf.cellar.core.metrics.LatencyHistogram;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import javax.management.openmbean.*;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the Cellar Metrics MBean.
+ */
+public class CellarMetricsMBeanImpl extends StandardMBean implements CellarMetricsMBean {
+
+    private EventMetrics metrics;
+
+    public CellarMetricsMBeanImpl() throws NotCompliantMBeanException {
+        super(CellarMetricsMBean.class);
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public TabularData getStatistics() throws Exception {
+        CompositeType compositeType = new CompositeType("Event Statistics", "Karaf Cellar cluster event statistics",
+                new String[]{"stage", "type", "group", "count", "errors", "rate", "mean", "p50", "p99", "p999", "max"},
+                new String[]{"Stage of the cluster event pipeline", "Type of the cluster events", "Cluster group of the cluster events",
+                        "Number of cluster events", "Number of failures", "Mean rate of cluster events per second",
+                        "Mean latency", "Median latency", "99th percentile latency", "99.9th percentile latency", "Maximum latency"},
+                new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+                        SimpleType.DOUBLE, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+        TabularType tableType = new TabularType("Event Statistics", "Table of Karaf Cellar cluster event statistics",
+                compositeType, new String[]{"stage", "type", "group"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+
+        for (EventStatistics statistics : metrics.getStatistics()) {
+            LatencyHistogram latency = statistics.getLatency();
+            CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                    new String[]{"stage", "type", "group", "count", "errors", "rate", "mean", "p50", "p99", "p999", "max"},
+                    new Object[]{statistics.getStage().name(), statistics.getEventType(), statistics.getGroup(),
+                            statistics.getCount(), statistics.getErrors(), statistics.getRate(),
+                            toMicros(latency.getMean()), toMicros(latency.getPercentile(50)),
+                            toMicros(latency.getPercentile(99)), toMicros(latency.getPercentile(99.9)),
+                            toMicros(latency.getMax())});
+            table.put(data);
+        }
+
+        return table;
+    }
+
+    @Override
+    public TabularData getGauges() throws Exception {
+        CompositeType compositeType = new CompositeType("Gauge", "Karaf Cellar cluster event pipeline gauge",
+                new String[]{"name", "value"},
+                new String[]{"Name of the gauge", "Current value of the gauge"},
+                new OpenType[]{SimpleType.STRING, SimpleType.LONG});
+        TabularType tableType = new TabularType("Gauges", "Table of Karaf Cellar cluster event pipeline gauges",
+                compositeType, new String[]{"name"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+
+        for (Map.Entry<String, Long> gauge : metrics.getGauges().entrySet()) {
+            CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                    new String[]{"name", "value"},
+                    new Object[]{gauge.getKey(), gauge.getValue()});
+            table.put(data);
+        }
+
+        return table;
+    }
+
+    @Override
+    public void reset() throws Exception {
+        metrics.reset();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
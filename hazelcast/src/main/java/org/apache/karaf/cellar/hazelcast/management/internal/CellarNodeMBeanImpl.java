@@ -17,6 +17,8 @@ import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.command.ExecutionContext;
 import org.apache.karaf.cellar.core.management.CellarNodeMBean;
+import org.apache.karaf.cellar.utils.ping.LatencyProbe;
+import org.apache.karaf.cellar.utils.ping.LatencyStatistics;
 import org.apache.karaf.cellar.utils.ping.Ping;
 
 import javax.management.NotCompliantMBeanException;
@@ -66,6 +68,42 @@ public class CellarNodeMBeanImpl extends StandardMBean implements CellarNodeMBea
         return (stop - start);
     }
 
+    @Override
+    public TabularData latency(int iterations, long timeout, boolean allNodes) throws Exception {
+        CompositeType latencyType = new CompositeType("Latency", "Karaf Cellar round-trip times between two nodes",
+                new String[]{ "from", "to", "sent", "timeouts", "min", "avg", "p99", "max" },
+                new String[]{ "ID of the pinging node", "ID of the pinged node", "Number of pings sent", "Number of pings not answered in time",
+                        "Minimum round-trip time", "Average round-trip time", "99th percentile round-trip time", "Maximum round-trip time" },
+                new OpenType[]{ SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.INTEGER,
+                        SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+
+        TabularType tableType = new TabularType("Latencies", "Table of Karaf Cellar round-trip times", latencyType, new String[]{ "from", "to" });
+
+        TabularData table = new TabularDataSupport(tableType);
+
+        LatencyProbe probe = new LatencyProbe(clusterManager, executionContext);
+        List<LatencyStatistics> statistics = new ArrayList<LatencyStatistics>();
+        if (allNodes) {
+            for (List<LatencyStatistics> list : probe.probeAll(clusterManager.listNodes(), iterations, timeout).values()) {
+                statistics.addAll(list);
+            }
+        } else {
+            Set<Node> nodes = new HashSet<Node>(clusterManager.listNodes());
+            nodes.remove(clusterManager.getNode());
+            statistics.addAll(probe.probe(nodes, iterations, timeout));
+        }
+
+        for (LatencyStatistics statistic : statistics) {
+            CompositeData data = new CompositeDataSupport(latencyType,
+                    new String[]{ "from", "to", "sent", "timeouts", "min", "avg", "p99", "max" },
+                    new Object[]{ statistic.getSource().getId(), statistic.getTarget().getId(), statistic.getSent(), statistic.getTimeouts(),
+                            statistic.getMin() / 1000, statistic.getAvg() / 1000, statistic.getP99() / 1000, statistic.getMax() / 1000 });
+            table.put(data);
+        }
+
+        return table;
+    }
+
     @Override
     public TabularData getNodes() throws Exception {
 
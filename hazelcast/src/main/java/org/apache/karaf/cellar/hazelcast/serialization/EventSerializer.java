@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventTypeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hazelcast serializer of the {@link CellarSerializable} cluster events.
+ * An event is written as its factory id and type id followed by its own state, and is read back
+ * using the {@link EventTypeFactory} registered with the same factory id.
+ */
+public class EventSerializer implements StreamSerializer<CellarSerializable> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventSerializer.class);
+
+    public static final int TYPE_ID = 1000;
+
+    private final ConcurrentMap<Integer, EventTypeFactory> factories = new ConcurrentHashMap<Integer, EventTypeFactory>();
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void write(ObjectDataOutput out, CellarSerializable object) throws IOException {
+        out.writeShort(object.getFactoryId());
+        out.writeShort(object.getTypeId());
+        object.writeData(new HazelcastEventOutput(out));
+    }
+
+    @Override
+    public CellarSerializable read(ObjectDataInput in) throws IOException {
+        int factoryId = in.readShort();
+        int typeId = in.readShort();
+        EventTypeFactory factory = factories.get(factoryId);
+        if (factory == null) {
+            throw new IOException("No cluster event type factory registered with id " + factoryId);
+        }
+        CellarSerializable object = factory.create(typeId);
+        if (object == null) {
+            throw new IOException("Cluster event type factory " + factoryId + " doesn't support type " + typeId);
+        }
+        object.readData(new HazelcastEventInput(in));
+        return object;
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+    /**
+     * Register a cluster event type factory.
+     *
+     * @param factory the factory to register.
+     */
+    public void bind(EventTypeFactory factory) {
+        if (factory != null) {
+            EventTypeFactory previous = factories.put(factory.getFactoryId(), factory);
+            if (previous != null && previous != factory) {
+                LOGGER.warn("CELLAR HAZELCAST: cluster event type factory {} replaced by {} for id {}",
+                        previous.getClass().getName(), factory.getClass().getName(), factory.getFactoryId());
+            }
+        }
+    }
+
+    /**
+     * Unregister a cluster event type factory.
+     *
+     * @param factory the factory to unregister.
+     */
+    public void unbind(EventTypeFactory factory) {
+        if (factory != null) {
+            factories.remove(factory.getFactoryId(), factory);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ObjectDataOutput;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * {@link EventOutput} writing to a Hazelcast {@link ObjectDataOutput}.
+ */
+public class HazelcastEventOutput implements EventOutput {
+
+    private final ObjectDataOutput out;
+
+    public HazelcastEventOutput(ObjectDataOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Override
+    public void writeNode(Node node) throws IOException {
+        out.writeBoolean(node != null);
+        if (node != null) {
+            out.writeUTF(node.getHost());
+            out.writeInt(node.getPort());
+        }
+    }
+
+    @Override
+    public void writeNodes(Set<Node> nodes) throws IOException {
+        out.writeInt(nodes == null ? -1 : nodes.size());
+        if (nodes != null) {
+            for (Node node : nodes) {
+                writeNode(node);
+            }
+        }
+    }
+
+    @Override
+    public void writeGroup(Group group) throws IOException {
+        out.writeBoolean(group != null);
+        if (group != null) {
+            writeString(group.getName());
+            writeNodes(group.getNodes());
+        }
+    }
+
+    @Override
+    public void writeObject(Object object) throws IOException {
+        out.writeObject(object);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        out.writeBoolean(v);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        out.writeByte(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        out.writeShort(v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        out.writeChar(v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        out.writeInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        out.writeLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        out.writeFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        out.writeDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        out.writeBytes(s);
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        out.writeChars(s);
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        out.writeUTF(s);
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.control.ControlEventTypeFactory;
+import org.apache.karaf.cellar.core.control.ManageGroupAction;
+import org.apache.karaf.cellar.core.control.ManageGroupCommand;
+import org.apache.karaf.cellar.core.control.ManageHandlersCommand;
+import org.apache.karaf.cellar.hazelcast.HazelcastNode;
+import org.apache.karaf.cellar.hazelcast.factory.HazelcastServiceFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Cluster events serializer test.
+ */
+@RunWith(JUnit4.class)
+public class EventSerializerTest {
+
+    private HazelcastServiceFactory factory;
+    private HazelcastInstance instance;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("karaf.home", "src/test/resources");
+        EventSerializer serializer = new EventSerializer();
+        serializer.bind(new ControlEventTypeFactory());
+        factory = new HazelcastServiceFactory();
+        factory.setEventSerializer(serializer);
+        factory.init();
+        instance = factory.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        factory.destroy();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        HazelcastNode node = new HazelcastNode("127.0.0.1", 5701);
+        Group group = new Group("default");
+        group.getNodes().add(node);
+
+        ManageGroupCommand command = new ManageGroupCommand("test");
+        command.setSourceNode(node);
+        command.setSourceGroup(group);
+        command.setAction(ManageGroupAction.JOIN);
+        command.setGroupName("test-group");
+        command.setTimeout(5000);
+
+        IMap<String, Object> map = instance.getMap("org.apache.karaf.cellar.test.serializer");
+        map.put("command", command);
+        ManageGroupCommand copy = (ManageGroupCommand) map.get("command");
+
+        Assert.assertNotSame(command, copy);
+        Assert.assertEquals("test", copy.getId());
+        Assert.assertEquals(node, copy.getSourceNode());
+        Assert.assertEquals("default", copy.getSourceGroupName());
+        Assert.assertEquals("default", copy.getSourceGroup().getName());
+        // the group members are not sent with the event
+        Assert.assertTrue(copy.getSourceGroup().getNodes().isEmpty());
+        Assert.assertEquals(ManageGroupAction.JOIN, copy.getAction());
+        Assert.assertEquals("test-group", copy.getGroupName());
+        Assert.assertEquals(5000, copy.getTimeout());
+        Assert.assertNull(copy.getDestination());
+    }
+
+    @Test
+    public void testNullableStatus() {
+        ManageHandlersCommand command = new ManageHandlersCommand("test");
+        command.setStatus(null);
+
+        IMap<String, Object> map = instance.getMap("org.apache.karaf.cellar.test.serializer");
+        map.put("command", command);
+        ManageHandlersCommand copy = (ManageHandlersCommand) map.get("command");
+
+        Assert.assertNull(copy.getStatus());
+        Assert.assertNull(copy.getHandlerName());
+    }
+
+}
@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.obr;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Cluster OBR bundle event.
  */
-public class ClusterObrBundleEvent extends Event {
+public class ClusterObrBundleEvent extends Event implements CellarSerializable {
 
     private String bundleId;
     private Boolean start;
@@ -43,4 +48,32 @@ public class ClusterObrBundleEvent extends Event {
         return this.deployOptional;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ObrEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ObrEventTypeFactory.CLUSTER_OBR_BUNDLE_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(bundleId);
+        out.writeByte(start == null ? -1 : (start ? 1 : 0));
+        out.writeByte(deployOptional == null ? -1 : (deployOptional ? 1 : 0));
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        bundleId = in.readString();
+        byte startFlag = in.readByte();
+        start = startFlag < 0 ? null : startFlag == 1;
+        byte deployOptionalFlag = in.readByte();
+        deployOptional = deployOptionalFlag < 0 ? null : deployOptionalFlag == 1;
+    }
+
 }
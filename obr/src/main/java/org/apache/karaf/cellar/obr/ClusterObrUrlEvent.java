@@ -14,11 +14,16 @@
 package org.apache.karaf.cellar.obr;
 
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
 
 /**
  * Cluster OBR URL event.
  */
-public class ClusterObrUrlEvent extends Event {
+public class ClusterObrUrlEvent extends Event implements CellarSerializable {
 
     private String url;
     private int type;
@@ -37,4 +42,28 @@ public class ClusterObrUrlEvent extends Event {
         return this.type;
     }
 
+    @Override
+    public int getFactoryId() {
+        return ObrEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return ObrEventTypeFactory.CLUSTER_OBR_URL_EVENT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeString(url);
+        out.writeInt(type);
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        url = in.readString();
+        type = in.readInt();
+    }
+
 }
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.shell;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.utils.ping.LatencyProbe;
+import org.apache.karaf.cellar.utils.ping.LatencyStatistics;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.apache.karaf.shell.table.ShellTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Command(scope = "cluster", name = "latency", description = "Measure the round-trip times between the cluster nodes")
+public class LatencyCommand extends ClusterCommandSupport {
+
+    @Argument(index = 0, name = "node", description = "The ID of the nodes to ping (all the other nodes by default)", required = false, multiValued = true)
+    List<String> nodeIds;
+
+    @Option(name = "-i", aliases = { "--iterations" }, description = "The number of pings sent to each node", required = false, multiValued = false)
+    int iterations = 10;
+
+    @Option(name = "-t", aliases = { "--timeout" }, description = "The timeout (in milliseconds) of each ping", required = false, multiValued = false)
+    long timeout = 1000;
+
+    @Option(name = "-a", aliases = { "--all" }, description = "Measure from every node (or the given nodes) to every other node", required = false, multiValued = false)
+    boolean all = false;
+
+    @Override
+    protected Object doExecute() throws Exception {
+        Set<Node> nodes;
+        if (nodeIds == null || nodeIds.isEmpty()) {
+            nodes = new HashSet<Node>(clusterManager.listNodes());
+            if (!all) {
+                nodes.remove(clusterManager.getNode());
+            }
+        } else {
+            nodes = new HashSet<Node>();
+            for (String nodeId : nodeIds) {
+                Node node = clusterManager.findNodeById(nodeId);
+                if (node == null) {
+                    System.err.println("Cluster node " + nodeId + " doesn't exist");
+                    return null;
+                }
+                nodes.add(node);
+            }
+        }
+
+        if (nodes.isEmpty()) {
+            System.err.println("No cluster node to ping");
+            return null;
+        }
+
+        LatencyProbe probe = new LatencyProbe(clusterManager, executionContext);
+        List<LatencyStatistics> statistics = new ArrayList<LatencyStatistics>();
+        if (all) {
+            Map<Node, List<LatencyStatistics>> matrix = probe.probeAll(nodes, iterations, timeout);
+            for (Node node : nodes) {
+                List<LatencyStatistics> list = matrix.get(node);
+                if (list == null) {
+                    System.err.println("No response from node " + node.getId());
+                } else {
+                    statistics.addAll(list);
+                }
+            }
+        } else {
+            statistics.addAll(probe.probe(nodes, iterations, timeout));
+        }
+
+        // slowest links first
+        Collections.sort(statistics, new Comparator<LatencyStatistics>() {
+            @Override
+            public int compare(LatencyStatistics s1, LatencyStatistics s2) {
+                if (s1.getTimeouts() != s2.getTimeouts()) {
+                    return s2.getTimeouts() - s1.getTimeouts();
+                }
+                return s2.getP99() < s1.getP99() ? -1 : (s2.getP99() == s1.getP99() ? 0 : 1);
+            }
+        });
+
+        ShellTable table = new ShellTable();
+        table.column("From");
+        table.column("To");
+        table.column("Sent").alignRight();
+        table.column("Timeouts").alignRight();
+        table.column("Min (ms)").alignRight();
+        table.column("Avg (ms)").alignRight();
+        table.column("P99 (ms)").alignRight();
+        table.column("Max (ms)").alignRight();
+        for (LatencyStatistics statistic : statistics) {
+            boolean answered = statistic.getReceived() > 0;
+            table.addRow().addContent(
+                    statistic.getSource() != null ? statistic.getSource().getId() : "",
+                    statistic.getTarget() != null ? statistic.getTarget().getId() : "",
+                    statistic.getSent(),
+                    statistic.getTimeouts(),
+                    answered ? toMillis(statistic.getMin()) : "-",
+                    answered ? toMillis(statistic.getAvg()) : "-",
+                    answered ? toMillis(statistic.getP99()) : "-",
+                    answered ? toMillis(statistic.getMax()) : "-");
+        }
+        table.print(System.out);
+        return null;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.shell;
+
+import org.apache.karaf.cellar.core.metrics.EventMetrics;
+import org.apache.karaf.cellar.core.metrics.EventStatistics;
+import org.apache.karaf.cellar.core.metrics.LatencyHistogram;
+import org.apache.karaf.cellar.core.metrics.PipelineStage;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.apache.karaf.shell.table.ShellTable;
+
+import java.util.List;
+import java.util.Map;
+
+@Command(scope = "cluster", name = "stats", description = "Display the statistics of the cluster events on the local node")
+public class StatsCommand extends ClusterCommandSupport {
+
+    @Option(name = "-s", aliases = { "--stage" }, description = "Display only the given pipeline stage (PRODUCE, CONSUME, DISPATCH, HANDLE)", required = false, multiValued = false)
+    private String stage;
+
+    @Option(name = "-g", aliases = { "--group" }, description = "Display only the given cluster group", required = false, multiValued = false)
+    private String groupName;
+
+    @Option(name = "--reset", description = "Clear the statistics", required = false, multiValued = false)
+    private boolean reset = false;
+
+    private EventMetrics metrics;
+
+    @Override
+    protected Object doExecute() throws Exception {
+        if (reset) {
+            metrics.reset();
+            return null;
+        }
+
+        PipelineStage pipelineStage = null;
+        if (stage != null) {
+            try {
+                pipelineStage = PipelineStage.valueOf(stage.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Pipeline stage " + stage + " doesn't exist");
+                return null;
+            }
+        }
+
+        List<EventStatistics> statistics = metrics.getStatistics();
+        ShellTable table = new ShellTable();
+        table.column("Stage");
+        table.column("Type");
+        table.column("Group");
+        table.column("Count").alignRight();
+        table.column("Errors").alignRight();
+        table.column("Rate/s").alignRight();
+        table.column("Mean (ms)").alignRight();
+        table.column("P50 (ms)").alignRight();
+        table.column("P99 (ms)").alignRight();
+        table.column("Max (ms)").alignRight();
+        for (EventStatistics statistic : statistics) {
+            if (pipelineStage != null && statistic.getStage() != pipelineStage) {
+                continue;
+            }
+            if (groupName != null && !groupName.equals(statistic.getGroup())) {
+                continue;
+            }
+            LatencyHistogram latency = statistic.getLatency();
+            table.addRow().addContent(statistic.getStage(), simpleName(statistic.getEventType()), statistic.getGroup(),
+                    statistic.getCount(), statistic.getErrors(), String.format("%.2f", statistic.getRate()),
+                    toMillis(latency.getMean()), toMillis(latency.getPercentile(50)),
+                    toMillis(latency.getPercentile(99)), toMillis(latency.getMax()));
+        }
+        table.print(System.out);
+
+        Map<String, Long> gauges = metrics.getGauges();
+        if (!gauges.isEmpty()) {
+            System.out.println();
+            ShellTable gaugeTable = new ShellTable();
+            gaugeTable.column("Gauge");
+            gaugeTable.column("Value").alignRight();
+            for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+                gaugeTable.addRow().addContent(gauge.getKey(), gauge.getValue());
+            }
+            gaugeTable.print(System.out);
+        }
+        return null;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+
+    public EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+}
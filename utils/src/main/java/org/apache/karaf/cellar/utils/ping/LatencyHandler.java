@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.utils.ping;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandHandler;
+import org.apache.karaf.cellar.core.command.ExecutionContext;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Handler for cluster latency command: ping all the other cluster nodes and send back the round-trip times.
+ */
+public class LatencyHandler extends CommandHandler<Latency, LatencyResult> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(LatencyHandler.class);
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.command.latency.switch";
+
+    private final Switch commandSwitch = new BasicSwitch(SWITCH_ID);
+
+    private ExecutionContext executionContext;
+
+    /**
+     * Handle a cluster latency command.
+     * The probe runs asynchronously, so the event dispatching thread is not blocked while the pings are in flight.
+     *
+     * @param command the latency command to handle.
+     */
+    @Override
+    public void handle(final Latency command) {
+        if (producer == null) {
+            return;
+        }
+        if (executionContext == null) {
+            reply(command, new ArrayList<LatencyStatistics>());
+            return;
+        }
+        new LatencyProbe(clusterManager, executionContext).probe(getTargets(), command.getIterations(), command.getPingTimeout(), new LatencyProbe.Listener() {
+            @Override
+            public void onComplete(List<LatencyStatistics> statistics) {
+                reply(command, statistics);
+            }
+        });
+    }
+
+    @Override
+    public LatencyResult execute(Latency command) {
+        LatencyResult result = new LatencyResult(command.getId());
+        if (executionContext == null) {
+            result.setStatistics(new ArrayList<LatencyStatistics>());
+            return result;
+        }
+        try {
+            result.setStatistics(new LatencyProbe(clusterManager, executionContext).probe(getTargets(), command.getIterations(), command.getPingTimeout()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setStatistics(new ArrayList<LatencyStatistics>());
+        }
+        return result;
+    }
+
+    private Set<Node> getTargets() {
+        Set<Node> targets = new HashSet<Node>(clusterManager.listNodes());
+        targets.remove(clusterManager.getNode());
+        return targets;
+    }
+
+    private void reply(Latency command, List<LatencyStatistics> statistics) {
+        LatencyResult result = new LatencyResult(command.getId());
+        result.setStatistics(statistics);
+
+        Set<Node> destination = new HashSet<Node>();
+        destination.add(command.getSourceNode());
+
+        result.setDestination(destination);
+        try {
+            producer.produce(result);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: failed to send the latency result", e);
+        }
+    }
+
+    @Override
+    public Class<Latency> getType() {
+        return Latency.class;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return commandSwitch;
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return executionContext;
+    }
+
+    public void setExecutionContext(ExecutionContext executionContext) {
+        this.executionContext = executionContext;
+    }
+
+}
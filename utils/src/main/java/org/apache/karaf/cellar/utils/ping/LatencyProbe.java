@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.utils.ping;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.CommandCallback;
+import org.apache.karaf.cellar.core.command.ExecutionContext;
+import org.apache.karaf.cellar.core.command.ResultCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the round-trip times from the local node to a set of cluster nodes.
+ * Each iteration sends a single ping to all the nodes at once and the next iteration
+ * starts as soon as the previous one completes (or times out), so no thread is blocked
+ * while the pongs are on the wire.
+ * The completion of an iteration is notified by the command store timer thread (on timeout) or by a dispatcher
+ * thread, so the next iteration is sent from the probe thread, which stops when idle.
+ */
+public class LatencyProbe {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(LatencyProbe.class);
+
+    private static final Executor EXECUTOR = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Cellar latency probe");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Listener notified when a probe is complete.
+     */
+    public interface Listener {
+
+        /**
+         * Called once all the iterations of the probe are done.
+         *
+         * @param statistics the round-trip times per pinged node.
+         */
+        void onComplete(List<LatencyStatistics> statistics);
+
+    }
+
+    private final ClusterManager clusterManager;
+    private final ExecutionContext executionContext;
+
+    public LatencyProbe(ClusterManager clusterManager, ExecutionContext executionContext) {
+        this.clusterManager = clusterManager;
+        this.executionContext = executionContext;
+    }
+
+    /**
+     * Ping a set of nodes without blocking the calling thread.
+     *
+     * @param nodes the nodes to ping.
+     * @param iterations the number of pings sent to each node.
+     * @param timeout the timeout (in milliseconds) of each ping.
+     * @param listener the listener notified with the statistics.
+     */
+    public void probe(Set<Node> nodes, int iterations, long timeout, Listener listener) {
+        new Run(nodes, iterations, timeout, listener).next();
+    }
+
+    /**
+     * Ping a set of nodes and wait for the statistics.
+     *
+     * @param nodes the nodes to ping.
+     * @param iterations the number of pings sent to each node.
+     * @param timeout the timeout (in milliseconds) of each ping.
+     * @return the round-trip times per pinged node.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public List<LatencyStatistics> probe(Set<Node> nodes, int iterations, long timeout) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<LatencyStatistics> result = new ArrayList<LatencyStatistics>();
+        probe(nodes, iterations, timeout, new Listener() {
+            @Override
+            public void onComplete(List<LatencyStatistics> statistics) {
+                synchronized (result) {
+                    result.addAll(statistics);
+                }
+                latch.countDown();
+            }
+        });
+        // each iteration is bounded by the ping timeout, the margin covers the timer tick
+        if (!latch.await(iterations * timeout + timeout, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("CELLAR: latency probe didn't complete in time");
+        }
+        synchronized (result) {
+            return new ArrayList<LatencyStatistics>(result);
+        }
+    }
+
+    /**
+     * Ask each node of a set to ping all the other cluster nodes.
+     *
+     * @param nodes the nodes running the probe.
+     * @param iterations the number of pings sent to each node.
+     * @param timeout the timeout (in milliseconds) of each ping.
+     * @return the round-trip times per probing node, a node which didn't answer is not part of the map.
+     * @throws Exception in case of execution failure.
+     */
+    public Map<Node, List<LatencyStatistics>> probeAll(Set<Node> nodes, int iterations, long timeout) throws Exception {
+        Latency command = new Latency(clusterManager.generateId());
+        command.setDestination(nodes);
+        command.setIterations(iterations);
+        command.setPingTimeout(timeout);
+        command.setTimeout(iterations * timeout + 2 * timeout);
+        Map<Node, LatencyResult> results = executionContext.execute(command);
+        Map<Node, List<LatencyStatistics>> statistics = new LinkedHashMap<Node, List<LatencyStatistics>>();
+        if (results != null) {
+            for (Map.Entry<Node, LatencyResult> entry : results.entrySet()) {
+                List<LatencyStatistics> list = entry.getValue().getStatistics();
+                statistics.put(entry.getKey(), list != null ? list : Collections.<LatencyStatistics>emptyList());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * A probe in progress: the pongs of the current iteration are timestamped as they arrive.
+     */
+    private class Run implements CommandCallback<Pong>, ResultCallback<Pong> {
+
+        private final Node[] targets;
+        private final Map<String, Integer> index = new HashMap<String, Integer>();
+        private final long[][] samples;
+        private final int[] received;
+        private final int iterations;
+        private final long timeout;
+        private final Listener listener;
+
+        private int sent;
+        private long sentAt;
+
+        Run(Set<Node> nodes, int iterations, long timeout, Listener listener) {
+            this.targets = nodes.toArray(new Node[nodes.size()]);
+            for (int i = 0; i < targets.length; i++) {
+                index.put(targets[i].getId(), i);
+            }
+            this.samples = new long[targets.length][Math.max(iterations, 0)];
+            this.received = new int[targets.length];
+            this.iterations = iterations;
+            this.timeout = timeout;
+            this.listener = listener;
+        }
+
+        void next() {
+            if (targets.length == 0 || sent >= iterations) {
+                finish();
+                return;
+            }
+            Ping ping = new Ping(clusterManager.generateId());
+            ping.setDestination(new HashSet<Node>(Arrays.asList(targets)));
+            ping.setTimeout(timeout);
+            ping.setResultCallback(this);
+            synchronized (this) {
+                sent++;
+                sentAt = System.nanoTime();
+            }
+            try {
+                executionContext.executeAsync(ping).addCallback(this);
+            } catch (Exception e) {
+                LOGGER.warn("CELLAR: failed to send the latency ping", e);
+                finish();
+            }
+        }
+
+        @Override
+        public synchronized void onResult(Pong pong) {
+            long rtt = System.nanoTime() - sentAt;
+            if (pong.getSourceNode() == null) {
+                return;
+            }
+            Integer i = index.get(pong.getSourceNode().getId());
+            if (i != null && received[i] < sent) {
+                samples[i][received[i]++] = rtt;
+            }
+        }
+
+        @Override
+        public void onComplete(Map<Node, Pong> results) {
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    next();
+                }
+            });
+        }
+
+        @Override
+        public void onCancel() {
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    finish();
+                }
+            });
+        }
+
+        private void finish() {
+            List<LatencyStatistics> statistics = new ArrayList<LatencyStatistics>(targets.length);
+            synchronized (this) {
+                Node local = clusterManager.getNode();
+                for (int i = 0; i < targets.length; i++) {
+                    statistics.add(new LatencyStatistics(local, targets[i], sent, samples[i], received[i]));
+                }
+            }
+            listener.onComplete(statistics);
+        }
+
+    }
+
+}
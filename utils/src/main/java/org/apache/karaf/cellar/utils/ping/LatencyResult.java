@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.utils.ping;
+
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cluster latency result: the round-trip times from a node to the other cluster nodes.
+ */
+public class LatencyResult extends Result implements CellarSerializable {
+
+    private List<LatencyStatistics> statistics;
+
+    public LatencyResult(String id) {
+        super(id);
+    }
+
+    public List<LatencyStatistics> getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(List<LatencyStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return PingEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return PingEventTypeFactory.LATENCY_RESULT;
+    }
+
+    @Override
+    public void writeData(EventOutput out) throws IOException {
+        super.writeData(out);
+        out.writeInt(statistics == null ? -1 : statistics.size());
+        if (statistics != null) {
+            for (LatencyStatistics statistic : statistics) {
+                statistic.writeData(out);
+            }
+        }
+    }
+
+    @Override
+    public void readData(EventInput in) throws IOException {
+        super.readData(in);
+        int size = in.readInt();
+        if (size >= 0) {
+            statistics = new ArrayList<LatencyStatistics>(size);
+            for (int i = 0; i < size; i++) {
+                LatencyStatistics statistic = new LatencyStatistics();
+                statistic.readData(in);
+                statistics.add(statistic);
+            }
+        } else {
+            statistics = null;
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.utils.ping;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.serialization.EventInput;
+import org.apache.karaf.cellar.core.serialization.EventOutput;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Round-trip times of the pings sent from a node to another node.
+ */
+public class LatencyStatistics implements Serializable {
+
+    private Node source;
+    private Node target;
+    private int sent;
+    private int received;
+    private long min;
+    private long avg;
+    private long p99;
+    private long max;
+
+    public LatencyStatistics() {
+        // used by the deserialization
+    }
+
+    /**
+     * Compute the statistics of the round-trip times.
+     *
+     * @param source the node sending the pings.
+     * @param target the pinged node.
+     * @param sent the number of pings sent.
+     * @param samples the round-trip times (in nanoseconds) of the pings answered.
+     * @param received the number of samples.
+     */
+    public LatencyStatistics(Node source, Node target, int sent, long[] samples, int received) {
+        this.source = source;
+        this.target = target;
+        this.sent = sent;
+        this.received = received;
+        if (received > 0) {
+            long[] sorted = Arrays.copyOf(samples, received);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            this.min = sorted[0];
+            this.max = sorted[received - 1];
+            this.avg = sum / received;
+            this.p99 = sorted[(int) Math.ceil(received * 0.99) - 1];
+        }
+    }
+
+    public Node getSource() {
+        return source;
+    }
+
+    public Node getTarget() {
+        return target;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    /**
+     * Get the number of pings not answered within the timeout.
+     *
+     * @return the number of timeouts.
+     */
+    public int getTimeouts() {
+        return sent - received;
+    }
+
+    /**
+     * Get the min round-trip time.
+     *
+     * @return the min round-trip time in nanoseconds.
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * Get the average round-trip time.
+     *
+     * @return the average round-trip time in nanoseconds.
+     */
+    public long getAvg() {
+        return avg;
+    }
+
+    /**
+     * Get the 99th percentile of the round-trip times.
+     *
+     * @return the 99th percentile in nanoseconds.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Get the max round-trip time.
+     *
+     * @return the max round-trip time in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public void writeData(EventOutput out) throws IOException {
+        out.writeNode(source);
+        out.writeNode(target);
+        out.writeInt(sent);
+        out.writeInt(received);
+        out.writeLong(min);
+        out.writeLong(avg);
+        out.writeLong(p99);
+        out.writeLong(max);
+    }
+
+    public void readData(EventInput in) throws IOException {
+        source = in.readNode();
+        target = in.readNode();
+        sent = in.readInt();
+        received = in.readInt();
+        min = in.readLong();
+        avg = in.readLong();
+        p99 = in.readLong();
+        max = in.readLong();
+    }
+
+}
@@ -14,14 +14,25 @@
 package org.apache.karaf.cellar.utils.ping;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
 
 /**
  * Cluster ping event.
  */
-public class Ping extends Command<Pong> {
+public class Ping extends Command<Pong> implements CellarSerializable {
 
     public Ping(String id) {
         super(id);
     }
 
+    @Override
+    public int getFactoryId() {
+        return PingEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return PingEventTypeFactory.PING;
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.utils.ping;
+
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
+import org.apache.karaf.cellar.core.serialization.EventTypeFactory;
+
+/**
+ * Factory of the cluster ping, pong and latency events.
+ */
+public class PingEventTypeFactory implements EventTypeFactory {
+
+    public static final int FACTORY_ID = 8;
+
+    public static final int PING = 1;
+    public static final int PONG = 2;
+    public static final int LATENCY = 3;
+    public static final int LATENCY_RESULT = 4;
+
+    @Override
+    public int getFactoryId() {
+        return FACTORY_ID;
+    }
+
+    @Override
+    public CellarSerializable create(int typeId) {
+        switch (typeId) {
+            case PING:
+                return new Ping(null);
+            case PONG:
+                return new Pong(null);
+            case LATENCY:
+                return new Latency(null);
+            case LATENCY_RESULT:
+                return new LatencyResult(null);
+            default:
+                return null;
+        }
+    }
+
+}
@@ -14,14 +14,25 @@
 package org.apache.karaf.cellar.utils.ping;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.serialization.CellarSerializable;
 
 /**
  * Cluster pong event.
  */
-public class Pong extends Result {
+public class Pong extends Result implements CellarSerializable {
 
     public Pong(String id) {
         super(id);
     }
 
+    @Override
+    public int getFactoryId() {
+        return PingEventTypeFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getTypeId() {
+        return PingEventTypeFactory.PONG;
+    }
+
 }